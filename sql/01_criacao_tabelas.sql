@@ -62,6 +62,7 @@ CREATE TABLE IF NOT EXISTS demonstracoes_contabeis (
     descricao VARCHAR(255) NOT NULL,
     saldo_inicial DECIMAL(15,2),        -- DECIMAL para precisão financeira
     saldo_final DECIMAL(15,2) NOT NULL, -- DECIMAL para precisão financeira
+    linha_origem BIGINT,                -- Linha no arquivo de origem (consolidado.csv): chave da recarga idempotente
 
     -- Chave Estrangeira para garantir integridade (Só aceita despesa de operadora que existe)
     CONSTRAINT fk_contabil_operadora
@@ -70,5 +71,8 @@ CREATE TABLE IF NOT EXISTS demonstracoes_contabeis (
 
     -- Índices para otimizar as queries analíticas solicitadas (Agrupamento por Data e Operadora)
     INDEX idx_data_ref (data_referencia),
-    INDEX idx_reg_ans_data (registro_ans, data_referencia)
+    INDEX idx_reg_ans_data (registro_ans, data_referencia),
+
+    -- Recarregar o mesmo arquivo atualiza as linhas em vez de duplicá-las (upsert pela linha de origem)
+    UNIQUE KEY uk_conta_linha_origem (cd_conta_contabil, linha_origem)
 );
\ No newline at end of file
@@ -5,6 +5,9 @@
  * INSTRUÇÕES PARA EXECUÇÃO:
  * 1. Certifique-se de que o 'local_infile' está ativado no seu servidor MySQL.
  * 2. Atualize os caminhos dos arquivos .csv abaixo ('C:/Users/...') para o diretório local onde os arquivos se encontram.
+ *
+ * Alternativa sem caminhos fixos: o carregador Java (com.intuitivecare.questao3.CarregadorBanco) faz a mesma carga
+ * com upsert em lotes e várias conexões. As duas formas geram as mesmas chaves (linha_origem) e podem ser repetidas.
  */
 
 USE teste_intuitive_care;
@@ -29,8 +32,10 @@ SET
 -- ==============================================================================
 -- 2. IMPORTAR DEMONSTRAÇÕES CONTÁBEIS (consolidado.csv)
 -- ==============================================================================
+-- linha_origem numera as linhas de dados (1 = primeira após o cabeçalho); com REPLACE, reimportar substitui as linhas
+SET @linha = 0;
 LOAD DATA LOCAL INFILE 'C:/Users/PC/OneDrive/Documentos/MeusProjetos/teste-estagio-intuitivecare/consolidado.csv'
-INTO TABLE demonstracoes_contabeis
+REPLACE INTO TABLE demonstracoes_contabeis
 CHARACTER SET utf8mb4
 FIELDS TERMINATED BY ';'
 LINES TERMINATED BY '\n'
@@ -57,7 +62,9 @@ SET
     saldo_inicial = 0,
     
     -- Trata o formato do dinheiro (Troca vírgula por ponto para o padrão Decimal SQL)
-    saldo_final = CAST(REPLACE(@valor_despesas, ',', '.') AS DECIMAL(15,2));
+    saldo_final = CAST(REPLACE(@valor_despesas, ',', '.') AS DECIMAL(15,2)),
+
+    linha_origem = (@linha := @linha + 1);
 
 /* * NOTA: A importação da tabela 'despesas_agregadas' foi removida pois optou-se
  * pela normalização dos dados e execução das agregações via Query SQL (Arquivo 03).
@@ -0,0 +1,157 @@
+package com.intuitivecare.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Gera arquivos sintéticos com o mesmo formato dos dados da ANS, para os benchmarks.
+ * Todos os métodos recebem uma semente, então a mesma escala gera sempre o mesmo conteúdo.
+ */
+public final class GeradorDadosAns {
+
+    // Registros ANS sintéticos começam aqui (os reais têm 6 dígitos)
+    public static final int PRIMEIRO_REGISTRO = 300000;
+
+    private static final String[] DESCRICOES = {
+            "EVENTOS/ SINISTROS CONHECIDOS OU AVISADOS",
+            "Eventos Indenizáveis Líquidos",
+            "SINISTROS A LIQUIDAR",
+            "Contraprestações Efetivas de Plano de Assistência à Saúde",
+            "Receitas com Operações de Assistência Médico-Hospitalar",
+            "Despesas Administrativas",
+            "Provisão para Remissão",
+            "Tributos Diretos de Operações com Planos de Assistência à Saúde"
+    };
+
+    private static final String[] MODALIDADES = {
+            "Medicina de Grupo", "Cooperativa Médica", "Autogestão",
+            "Odontologia de Grupo", "Cooperativa Odontológica", "Seguradora Especializada em Saúde", "Filantropia"
+    };
+
+    private static final String[] UFS = {
+            "SP", "RJ", "MG", "RS", "PR", "SC", "BA", "PE", "CE", "GO", "DF", "ES", "PA", "AM", "MT", "MS"
+    };
+
+    private GeradorDadosAns() {
+    }
+
+    /**
+     * Arquivo bruto de Demonstrações Contábeis (ex: 3T2025.csv), com BOM e campos entre aspas.
+     * Cerca de 3/8 das linhas passam no filtro de EVENTOS/SINISTROS.
+     */
+    public static void gerarDemonstracoes(Path destino, int linhas, int operadoras, long semente) throws IOException {
+        Random random = new Random(semente);
+        try (BufferedWriter w = Files.newBufferedWriter(destino, StandardCharsets.ISO_8859_1)) {
+            w.write('ï');
+            w.write('»');
+            w.write('¿');
+            w.write("\"DATA\";\"REG_ANS\";\"CD_CONTA_CONTABIL\";\"DESCRICAO\";\"VL_SALDO_INICIAL\";\"VL_SALDO_FINAL\"\n");
+            for (int i = 0; i < linhas; i++) {
+                w.write("\"2025-07-01\";\"");
+                w.write(Integer.toString(PRIMEIRO_REGISTRO + random.nextInt(operadoras)));
+                w.write("\";\"");
+                w.write(Integer.toString(1 + random.nextInt(49999999)));
+                w.write("\";\"");
+                w.write(DESCRICOES[random.nextInt(DESCRICOES.length)]);
+                w.write("\";\"");
+                w.write(valor(random));
+                w.write("\";\"");
+                w.write(valor(random));
+                w.write("\"\n");
+            }
+        }
+    }
+
+    /**
+     * Relatorio_Cadop.csv sintético: 3 linhas de cabeçalho/metadados e uma linha por operadora.
+     * Uma em cada 20 operadoras recebe um CNPJ com dígito verificador errado.
+     */
+    public static void gerarCadop(Path destino, int operadoras, long semente) throws IOException {
+        Random random = new Random(semente);
+        try (BufferedWriter w = Files.newBufferedWriter(destino, StandardCharsets.ISO_8859_1)) {
+            w.write("Relatorio de Operadoras Ativas\n");
+            w.write("Gerado para benchmark\n");
+            w.write("\"Registro_ANS\";\"CNPJ\";\"Razao_Social\";\"Nome_Fantasia\";\"Modalidade\";\"Logradouro\";"
+                    + "\"Numero\";\"Complemento\";\"Bairro\";\"Cidade\";\"UF\";\"CEP\";\"DDD\";\"Telefone\";\"Fax\";"
+                    + "\"Endereco_eletronico\";\"Representante\";\"Cargo_Representante\";\"Data_Registro_ANS\"\n");
+            for (int i = 0; i < operadoras; i++) {
+                String cnpj = gerarCnpj(random, i % 20 != 0);
+                String uf = UFS[random.nextInt(UFS.length)];
+                w.write("\"" + (PRIMEIRO_REGISTRO + i) + "\";\"" + cnpj + "\";\"OPERADORA SINTETICA " + i + " LTDA\";"
+                        + "\"OPS " + i + "\";\"" + MODALIDADES[random.nextInt(MODALIDADES.length)] + "\";"
+                        + "\"RUA " + random.nextInt(1000) + "\";\"" + random.nextInt(5000) + "\";\"\";\"CENTRO\";"
+                        + "\"CIDADE " + uf + "\";\"" + uf + "\";\"01000000\";\"11\";\"30000000\";\"\";"
+                        + "\"contato@ops" + i + ".com.br\";\"FULANO\";\"DIRETOR\";\"01/01/2000\"\n");
+            }
+        }
+    }
+
+    /**
+     * consolidado.csv sintético no layout gerado pela Questão 1 (RazaoSocial;CNPJ;Trimestre;Ano;ValorDespesas).
+     * Cerca de 5% das linhas apontam para registros inexistentes no cadastro.
+     */
+    public static void gerarConsolidado(Path destino, int linhas, int operadoras, long semente) throws IOException {
+        Random random = new Random(semente);
+        try (BufferedWriter w = Files.newBufferedWriter(destino, StandardCharsets.ISO_8859_1)) {
+            w.write("RazaoSocial;CNPJ;Trimestre;Ano;ValorDespesas\n");
+            for (int i = 0; i < linhas; i++) {
+                int registro = PRIMEIRO_REGISTRO + random.nextInt(operadoras + operadoras / 20 + 1);
+                w.write("Operadora " + registro + ";" + registro + ";" + (1 + random.nextInt(4)) + "T;2025;"
+                        + valor(random) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Lista de CNPJs formatados (XX.XXX.XXX/XXXX-XX); {@code percentualInvalidos} deles com dígito errado.
+     */
+    public static String[] gerarCnpjs(int quantidade, int percentualInvalidos, long semente) {
+        Random random = new Random(semente);
+        String[] cnpjs = new String[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            String cnpj = gerarCnpj(random, random.nextInt(100) >= percentualInvalidos);
+            cnpjs[i] = cnpj.substring(0, 2) + "." + cnpj.substring(2, 5) + "." + cnpj.substring(5, 8) + "/"
+                    + cnpj.substring(8, 12) + "-" + cnpj.substring(12);
+        }
+        return cnpjs;
+    }
+
+    /**
+     * CNPJ só com dígitos; se {@code valido} for falso o último dígito verificador é alterado.
+     */
+    public static String gerarCnpj(Random random, boolean valido) {
+        int[] d = new int[14];
+        for (int i = 0; i < 8; i++) d[i] = random.nextInt(10);
+        d[8] = 0;
+        d[9] = 0;
+        d[10] = 0;
+        d[11] = 1;
+        d[12] = digitoVerificador(d, 12);
+        d[13] = digitoVerificador(d, 13);
+        if (!valido) d[13] = (d[13] + 1) % 10;
+
+        StringBuilder sb = new StringBuilder(14);
+        for (int x : d) sb.append(x);
+        return sb.toString();
+    }
+
+    private static int digitoVerificador(int[] d, int posicao) {
+        int soma = 0;
+        int peso = 2;
+        for (int i = posicao - 1; i >= 0; i--) {
+            soma += d[i] * peso;
+            peso = peso == 9 ? 2 : peso + 1;
+        }
+        int r = soma % 11;
+        return r < 2 ? 0 : 11 - r;
+    }
+
+    private static String valor(Random random) {
+        int centavos = random.nextInt(100);
+        return random.nextInt(10_000_000) + "," + (centavos < 10 ? "0" : "") + centavos;
+    }
+}
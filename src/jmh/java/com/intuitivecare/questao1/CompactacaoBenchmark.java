@@ -0,0 +1,57 @@
+package com.intuitivecare.questao1;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compactação do consolidado no ZIP final ({@link ParallelZipWriter}), variando nível e número de threads.
+ * Nível 0 é o modo sem compressão (STORED), limitado só pelo disco.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CompactacaoBenchmark {
+
+    @Param({"5000000"})
+    public int linhas;
+
+    @Param({"0", "1", "6"})
+    public int nivel;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path pasta;
+    private Path consolidado;
+    private Path zip;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = Files.createTempDirectory("jmh-compactacao");
+        consolidado = pasta.resolve("consolidado.csv");
+        zip = pasta.resolve("consolidado_despesas.zip");
+        GeradorDadosAns.gerarConsolidado(consolidado, linhas, 1500, 5L);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public long compactar() throws IOException {
+        try (ParallelZipWriter writer = new ParallelZipWriter(zip, nivel, threads)) {
+            writer.adicionarArquivo(consolidado);
+            return writer.getTotalComprimido();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.intuitivecare.questao1;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consolidação completa (trechos + pool + escrita do consolidado.csv) variando o número de threads,
+ * para levantar a curva de speedup de 1 a N núcleos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ConsolidacaoBenchmark {
+
+    @Param({"2000000"})
+    public int linhas;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path pasta;
+    private List<String> arquivos;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = Files.createTempDirectory("jmh-consolidacao");
+        Path arquivo1 = pasta.resolve("2T2025.csv");
+        Path arquivo2 = pasta.resolve("3T2025.csv");
+        GeradorDadosAns.gerarDemonstracoes(arquivo1, linhas / 2, 1500, 1L);
+        GeradorDadosAns.gerarDemonstracoes(arquivo2, linhas / 2, 1500, 2L);
+        arquivos = List.of(arquivo1.toString(), arquivo2.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public void consolidar() {
+        // Grava consolidado.csv no diretório de trabalho (target/ quando rodado pelo profile)
+        new CsvProcessor().processarArquivos(arquivos, threads);
+    }
+}
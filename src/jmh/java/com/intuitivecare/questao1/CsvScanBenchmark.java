@@ -0,0 +1,132 @@
+package com.intuitivecare.questao1;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BOMInputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing + filtro de um arquivo bruto da ANS: leitor byte a byte (AnsCsvScanner)
+ * contra o caminho original com commons-csv + safeGet + toUpperCase().contains().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CsvScanBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int linhas;
+
+    private Path pasta;
+    private Path arquivo;
+    private EsquemaAns esquema;
+    private final FiltroDespesas porTermos = FiltroDespesas.compilar(List.of(
+            FiltroDespesas.Regra.porTermos("consolidado", List.of("EVENTOS", "SINISTROS"))));
+    private final FiltroDespesas porContas = FiltroDespesas.compilar(List.of(
+            FiltroDespesas.Regra.porContas("consolidado", List.of("41", "10"))));
+    private final FiltroDespesas oitoRegras = FiltroDespesas.compilar(List.of(
+            FiltroDespesas.Regra.porTermos("consolidado", List.of("EVENTOS", "SINISTROS")),
+            FiltroDespesas.Regra.porTermos("administrativas", List.of("ADMINISTRATIVAS")),
+            FiltroDespesas.Regra.porTermos("tributos", List.of("TRIBUTOS", "IMPOSTOS")),
+            FiltroDespesas.Regra.porTermos("contraprestacoes", List.of("CONTRAPRESTA")),
+            FiltroDespesas.Regra.porContas("contas10", List.of("10", "119")),
+            FiltroDespesas.Regra.porContas("contas2", List.of("2")),
+            new FiltroDespesas.Regra("grandes", List.of(), List.of(), 900_000_000L, Long.MAX_VALUE),
+            new FiltroDespesas.Regra("eventosMedios", List.of("1"), List.of("EVENTOS"), 500_000_000L, 600_000_000L)));
+    private long inicioDados;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = Files.createTempDirectory("jmh-csv");
+        arquivo = pasta.resolve("3T2025.csv");
+        GeradorDadosAns.gerarDemonstracoes(arquivo, linhas, 1500, 42L);
+
+        String primeiraLinha;
+        try (var reader = Files.newBufferedReader(arquivo, StandardCharsets.ISO_8859_1)) {
+            primeiraLinha = reader.readLine();
+        }
+        inicioDados = primeiraLinha.length() + 1;
+        esquema = EsquemaAns.resolver(primeiraLinha.substring(3).replace("\"", "").split(";"));
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public int scannerMapeado() throws IOException {
+        List<FiltroDespesas.Linha> saida = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, inicioDados, canal.size() - inicioDados);
+            new AnsCsvScanner(esquema, porTermos).varrer(buffer, new String[]{"3T", "2025"}, false, saida);
+        }
+        return saida.size();
+    }
+
+    /**
+     * Oito regras (contas, palavras e faixas de valor) avaliadas na mesma passada: o custo deve ficar
+     * próximo ao de uma regra só, e não oito vezes maior.
+     */
+    @Benchmark
+    public int scannerOitoRegras() throws IOException {
+        List<FiltroDespesas.Linha> saida = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, inicioDados, canal.size() - inicioDados);
+            new AnsCsvScanner(esquema, oitoRegras).varrer(buffer, new String[]{"3T", "2025"}, false, saida);
+        }
+        return saida.size();
+    }
+
+    /**
+     * Mesmo leitor, filtrando por prefixo de CD_CONTA_CONTABIL (-Dans.filtro.contas) em vez da descrição.
+     */
+    @Benchmark
+    public int scannerPorConta() throws IOException {
+        List<FiltroDespesas.Linha> saida = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, inicioDados, canal.size() - inicioDados);
+            new AnsCsvScanner(esquema, porContas).varrer(buffer, new String[]{"3T", "2025"}, false, saida);
+        }
+        return saida.size();
+    }
+
+    @Benchmark
+    public int commonsCsv() throws IOException {
+        List<String[]> saida = new ArrayList<>();
+        try (Reader reader = new InputStreamReader(
+                     new BOMInputStream(new FileInputStream(arquivo.toFile())), StandardCharsets.ISO_8859_1);
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT
+                     .withDelimiter(';').withFirstRecordAsHeader().withIgnoreHeaderCase().withTrim())) {
+            for (CSVRecord record : parser) {
+                String descricao = record.isSet("DESCRICAO") ? record.get("DESCRICAO") : "";
+                String upper = descricao.toUpperCase();
+                if (upper.contains("EVENTOS") || upper.contains("SINISTROS")) {
+                    String regAns = record.get("REG_ANS");
+                    saida.add(new String[]{"Operadora " + regAns, regAns, "3T", "2025", record.get("VL_SALDO_FINAL")});
+                }
+            }
+        }
+        return saida.size();
+    }
+}
@@ -0,0 +1,72 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import com.intuitivecare.questao1.ColumnarWriter;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapa completa da Questão 2 sobre um consolidado sintético:
+ * leitura, validação, enriquecimento, agrupamento, estatísticas, ordenação e escrita.
+ * Compara a leitura do consolidado.csv com a do consolidado.col (mesmo conteúdo, formato colunar).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class AgregacaoBenchmark {
+
+    @Param({"100000", "1000000", "5000000"})
+    public int linhas;
+
+    private Path pasta;
+    private String consolidado;
+    private String colunar;
+    private String saida;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = Files.createTempDirectory("jmh-agregacao");
+        Path cadop = pasta.resolve("Relatorio_Cadop.csv");
+        Path arquivo = pasta.resolve("consolidado.csv");
+        GeradorDadosAns.gerarCadop(cadop, 1500, 3L);
+        GeradorDadosAns.gerarConsolidado(arquivo, linhas, 1500, 5L);
+        AnsCadastro.carregarCadastro(cadop.toString());
+        consolidado = arquivo.toString();
+
+        Path arquivoColunar = pasta.resolve("consolidado.col");
+        try (BufferedReader reader = Files.newBufferedReader(arquivo);
+             ColumnarWriter writer = new ColumnarWriter(arquivoColunar)) {
+            reader.readLine(); // Cabeçalho
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                writer.adicionar(linha.split(";"));
+            }
+        }
+        colunar = arquivoColunar.toString();
+        saida = pasta.resolve("despesas_agregadas.csv").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public void gerarRelatorio() throws IOException {
+        Main.gerarRelatorio(consolidado, saida);
+    }
+
+    @Benchmark
+    public void gerarRelatorioColunar() throws IOException {
+        Main.gerarRelatorioColunar(colunar, saida);
+    }
+}
@@ -0,0 +1,56 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupamento paralelo da Questão 2 sobre um consolidado sintético grande (50M linhas, ~2GB),
+ * variando o número de threads, para levantar a curva de speedup de 1 a N núcleos.
+ * O relatório gerado é o mesmo para qualquer número de threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class AgregacaoParalelaBenchmark {
+
+    @Param({"50000000"})
+    public int linhas;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path pasta;
+    private String consolidado;
+    private String saida;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = Files.createTempDirectory("jmh-agregacao-paralela");
+        Path cadop = pasta.resolve("Relatorio_Cadop.csv");
+        Path arquivo = pasta.resolve("consolidado.csv");
+        GeradorDadosAns.gerarCadop(cadop, 1500, 3L);
+        GeradorDadosAns.gerarConsolidado(arquivo, linhas, 1500, 5L);
+        AnsCadastro.carregarCadastro(cadop.toString());
+        consolidado = arquivo.toString();
+        saida = pasta.resolve("despesas_agregadas.csv").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public void agregar() throws IOException {
+        Main.gerarRelatorio(consolidado, saida, threads);
+    }
+}
@@ -0,0 +1,115 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga do Relatorio_Cadop.csv e o join feito para cada linha do consolidado:
+ * {@link RegistroOperadoras} (int, endereçamento aberto) contra o HashMap<String, String[]> usado antes.
+ * A carga é medida lendo o CSV e abrindo o snapshot mapeado em memória; o join usa o cadastro do snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CadastroBenchmark {
+
+    @Param({"1500", "50000"})
+    public int operadoras;
+
+    private Path pasta;
+    private String arquivoCadop;
+    private Path snapshot;
+    private String[] chavesBusca;
+    private RegistroOperadoras registro;
+    private Map<String, String[]> mapaLegado;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException {
+        pasta = Files.createTempDirectory("jmh-cadop");
+        Path cadop = pasta.resolve("Relatorio_Cadop.csv");
+        GeradorDadosAns.gerarCadop(cadop, operadoras, 3L);
+        arquivoCadop = cadop.toString();
+        snapshot = pasta.resolve("Relatorio_Cadop.csv.snapshot");
+        // A primeira carga lê o CSV e grava o snapshot; a segunda já abre o snapshot
+        AnsCadastro.carregarCadastro(arquivoCadop, snapshot);
+        AnsCadastro.carregarCadastro(arquivoCadop, snapshot);
+        registro = AnsCadastro.getRegistro();
+        mapaLegado = carregarMapaLegado(cadop);
+
+        // 10.000 buscas, ~5% de registros que não existem no cadastro
+        Random random = new Random(11L);
+        chavesBusca = new String[10_000];
+        for (int i = 0; i < chavesBusca.length; i++) {
+            chavesBusca[i] = Integer.toString(GeradorDadosAns.PRIMEIRO_REGISTRO + random.nextInt(operadoras + operadoras / 20 + 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public void carregarCadastro() {
+        AnsCadastro.carregarCadastro(arquivoCadop, null);
+    }
+
+    @Benchmark
+    public void carregarCadastroSnapshot() {
+        AnsCadastro.carregarCadastro(arquivoCadop, snapshot);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10_000)
+    public int joinRegistroCompacto() {
+        int encontradas = 0;
+        for (String chave : chavesBusca) {
+            int indice = registro.indiceDe(chave);
+            if (indice >= 0) {
+                encontradas += registro.razaoSocial(indice).length() + registro.modalidade(indice).length();
+            }
+        }
+        return encontradas;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10_000)
+    public int joinMapaLegado() {
+        int encontradas = 0;
+        for (String chave : chavesBusca) {
+            String[] dados = mapaLegado.get(chave);
+            if (dados != null) {
+                // Mesmo tratamento que o Main fazia nos campos usados
+                encontradas += dados[2].replace("\"", "").trim().length() + dados[4].replace("\"", "").trim().length();
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Reproduz a carga antiga (linha inteira como String[] num HashMap) para comparação.
+     */
+    private static Map<String, String[]> carregarMapaLegado(Path cadop) throws IOException {
+        Map<String, String[]> mapa = new HashMap<>();
+        List<String> linhas = Files.readAllLines(cadop, StandardCharsets.ISO_8859_1);
+        for (String linha : linhas.subList(3, linhas.size())) {
+            String[] colunas = linha.split(";");
+            mapa.put(colunas[0].replace("\"", "").trim(), colunas);
+        }
+        return mapa;
+    }
+}
@@ -0,0 +1,57 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação de CNPJ sobre uma coluna de CNPJs formatados (10% inválidos).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CnpjBenchmark {
+
+    @Param({"1000", "100000"})
+    public int quantidade;
+
+    private String[] cnpjs;
+    private byte[][] cnpjsBytes;
+
+    @Setup(Level.Trial)
+    public void gerar() {
+        cnpjs = GeradorDadosAns.gerarCnpjs(quantidade, 10, 7L);
+        cnpjsBytes = new byte[quantidade][];
+        for (int i = 0; i < quantidade; i++) {
+            cnpjsBytes[i] = cnpjs[i].getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Benchmark
+    public int isCNPJ() {
+        int validos = 0;
+        for (String cnpj : cnpjs) {
+            if (CnpjValidator.isCNPJ(cnpj)) validos++;
+        }
+        return validos;
+    }
+
+    @Benchmark
+    public int isCNPJBytes() {
+        int validos = 0;
+        for (byte[] cnpj : cnpjsBytes) {
+            if (CnpjValidator.isCNPJ(cnpj, 0, cnpj.length)) validos++;
+        }
+        return validos;
+    }
+
+    @Benchmark
+    public boolean[] validarLote() {
+        return CnpjValidator.validarLote(cnpjs);
+    }
+}
@@ -0,0 +1,64 @@
+package com.intuitivecare.questao3;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga das despesas com o {@link CarregadorBanco} num H2 embutido em modo MySQL, variando o tamanho do lote
+ * e o número de escritores. Cada iteração recarrega o mesmo consolidado sobre a tabela já preenchida,
+ * ou seja, mede o caminho de upsert (recarga idempotente).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CargaBancoBenchmark {
+
+    @Param({"200000"})
+    public int linhas;
+
+    @Param({"100", "1000"})
+    public int lote;
+
+    @Param({"1", "4"})
+    public int escritores;
+
+    private Path pasta;
+    private Path consolidado;
+    private CarregadorBanco carregador;
+
+    @Setup(Level.Trial)
+    public void gerar() throws IOException, SQLException {
+        pasta = Files.createTempDirectory("jmh-carga");
+        Path cadop = pasta.resolve("Relatorio_Cadop.csv");
+        consolidado = pasta.resolve("consolidado.csv");
+        GeradorDadosAns.gerarCadop(cadop, 1500, 3L);
+        GeradorDadosAns.gerarConsolidado(consolidado, linhas, 1500, 5L);
+
+        String url = "jdbc:h2:" + pasta.resolve("banco") + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        carregador = new CarregadorBanco(url, "sa", "", lote, 20_000, escritores);
+        // O benchmark roda em target/ (exec-maven-plugin): o script DDL fica um nível acima
+        carregador.criarTabelas(Paths.get("..", "sql", "01_criacao_tabelas.sql"));
+        carregador.carregarOperadoras(cadop);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public long carregarDespesas() throws IOException, SQLException {
+        return carregador.carregarDespesas(consolidado);
+    }
+}
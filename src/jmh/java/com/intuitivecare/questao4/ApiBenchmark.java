@@ -0,0 +1,113 @@
+package com.intuitivecare.questao4;
+
+import com.intuitivecare.benchmark.GeradorDadosAns;
+import com.intuitivecare.questao2.AnsCadastro;
+import com.intuitivecare.questao2.DespesasStore;
+import com.intuitivecare.questao2.RegistroOperadoras;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Teste de carga da API ({@link ServidorApi}) com clientes HTTP concorrentes, sobre uma base sintética.
+ * O modo SampleTime mede a latência de cada requisição e o JMH reporta os percentis (p0.50, p0.99...).
+ * Mais clientes: {@code -Djmh.args="ApiBenchmark -t 64"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(16)
+@Fork(1)
+public class ApiBenchmark {
+
+    @Param({"1500"})
+    public int operadoras;
+
+    private Path pasta;
+    private ServidorApi servidor;
+    private HttpClient cliente;
+    private String base;
+    private String[] cnpjs;
+    private int paginas;
+    private String etagEstatisticas;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws IOException, InterruptedException {
+        pasta = Files.createTempDirectory("jmh-api");
+        Path cadop = pasta.resolve("Relatorio_Cadop.csv");
+        GeradorDadosAns.gerarCadop(cadop, operadoras, 3L);
+        AnsCadastro.carregarCadastro(cadop.toString());
+        RegistroOperadoras cadastro = AnsCadastro.getRegistro();
+
+        // Oito trimestres de despesas por operadora
+        Random random = new Random(7L);
+        DespesasStore.Construtor construtor = new DespesasStore.Construtor(cadastro);
+        for (int i = 0; i < cadastro.tamanho(); i++) {
+            for (int t = 0; t < 8; t++) {
+                construtor.adicionarDespesa(i, (2024 + t / 4) * 10 + t % 4 + 1, random.nextLong(1_000_000_000L), 1 + random.nextInt(500));
+            }
+        }
+        Path store = pasta.resolve("despesas.store");
+        construtor.gravar(store);
+
+        cnpjs = new String[cadastro.tamanho()];
+        for (int i = 0; i < cnpjs.length; i++) cnpjs[i] = cadastro.cnpj(i);
+        paginas = Math.max(1, cnpjs.length / 10);
+
+        servidor = new ServidorApi(store, pasta.resolve("despesas_agregadas.csv"), 0);
+        servidor.iniciar(0);
+        base = "http://127.0.0.1:" + servidor.getPorta();
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        etagEstatisticas = cliente.send(HttpRequest.newBuilder(URI.create(base + "/api/estatisticas")).build(),
+                HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag").orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() throws IOException {
+        servidor.close();
+        FileUtils.deleteDirectory(pasta.toFile());
+    }
+
+    @Benchmark
+    public int operadoras() throws IOException, InterruptedException {
+        int pagina = 1 + ThreadLocalRandom.current().nextInt(paginas);
+        return get("/api/operadoras?page=" + pagina + "&limit=10", null);
+    }
+
+    @Benchmark
+    public int despesasPorCnpj() throws IOException, InterruptedException {
+        return get("/api/operadoras/" + cnpjs[ThreadLocalRandom.current().nextInt(cnpjs.length)] + "/despesas", null);
+    }
+
+    @Benchmark
+    public int estatisticas() throws IOException, InterruptedException {
+        return get("/api/estatisticas", null);
+    }
+
+    @Benchmark
+    public int estatisticasNaoModificadas() throws IOException, InterruptedException {
+        return get("/api/estatisticas", etagEstatisticas);
+    }
+
+    private int get(String caminho, String etag) throws IOException, InterruptedException {
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(base + caminho));
+        if (etag != null) requisicao.header("If-None-Match", etag);
+        HttpResponse<byte[]> resposta = cliente.send(requisicao.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() != 200 && resposta.statusCode() != 304) {
+            throw new IllegalStateException("HTTP " + resposta.statusCode() + " em " + caminho);
+        }
+        return resposta.body().length;
+    }
+}
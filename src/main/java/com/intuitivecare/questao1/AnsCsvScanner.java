@@ -0,0 +1,211 @@
+package com.intuitivecare.questao1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Leitor especializado para o layout das Demonstrações Contábeis da ANS.
+ * Trabalha direto nos bytes (ISO-8859-1, 1 byte por caractere) de um {@link ByteBuffer},
+ * normalmente um MappedByteBuffer de um trecho do arquivo: acha os ';' e as aspas na mão,
+ * avalia as regras do {@link FiltroDespesas} (prefixo da conta, palavras da descrição, faixa de valor) sem criar
+ * Strings e só decodifica os campos das linhas aprovadas. Uma linha rejeitada não gera nenhuma alocação.
+ * As colunas são localizadas pelo {@link EsquemaAns} do arquivo, uma vez por trecho.
+ *
+ * Não é thread-safe (reaproveita arrays internos); use uma instância por tarefa.
+ */
+class AnsCsvScanner {
+
+    private static final byte SEPARADOR = ';';
+    private static final byte ASPAS = '"';
+    private static final byte FIM_LINHA = '\n';
+    private static final byte RETORNO = '\r';
+
+    private static final int DESCRICAO = EsquemaAns.Coluna.DESCRICAO.ordinal();
+    private static final int VALOR = EsquemaAns.Coluna.VL_SALDO_FINAL.ordinal();
+    private static final int REG_ANS = EsquemaAns.Coluna.REG_ANS.ordinal();
+    private static final int CONTA = EsquemaAns.Coluna.CD_CONTA_CONTABIL.ordinal();
+    private static final int DATA = EsquemaAns.Coluna.DATA.ordinal();
+
+    // Slot (ordinal da EsquemaAns.Coluna) de cada coluna do arquivo até a última de interesse, -1 para as demais
+    private final int[] slotPorColuna;
+    private final int ultimaColuna;
+    // Regras já compiladas para o esquema do arquivo
+    private final FiltroDespesas filtro;
+
+    // Início/fim (em bytes) do conteúdo de cada coluna na linha atual (por slot), reaproveitados entre linhas
+    private final int[] inicioCampo = new int[EsquemaAns.Coluna.values().length];
+    private final int[] fimCampo = new int[EsquemaAns.Coluna.values().length];
+    private final boolean[] campoComAspas = new boolean[EsquemaAns.Coluna.values().length];
+
+    private byte[] rascunho = new byte[64];
+
+    /**
+     * @param esquema Colunas do arquivo.
+     * @param filtro Regras que decidem se (e para quais saídas) cada linha vai.
+     */
+    AnsCsvScanner(EsquemaAns esquema, FiltroDespesas filtro) {
+        this.ultimaColuna = esquema.ultimaColuna();
+        this.slotPorColuna = new int[ultimaColuna + 1];
+        Arrays.fill(slotPorColuna, -1);
+        for (EsquemaAns.Coluna coluna : EsquemaAns.Coluna.values()) {
+            if (esquema.possui(coluna)) slotPorColuna[esquema.indice(coluna)] = coluna.ordinal();
+        }
+        this.filtro = filtro;
+    }
+
+    /**
+     * Varre todas as linhas entre {@code position()} e {@code limit()} do buffer e adiciona em
+     * {@code saida} as linhas aprovadas por alguma regra, já no formato do consolidado e com as saídas de destino.
+     * @param periodo {trimestre, ano} do arquivo (ex: {"3T", "2025"}).
+     * @param periodoPelaData Se verdadeiro, o período de cada linha aprovada vem da coluna DATA
+     *                        (quando válida); {@code periodo} fica só como reserva.
+     * @return Quantidade de linhas lidas (aprovadas ou não), para as métricas do filtro. Linhas vazias
+     *         ("\n" ou "\r\n" sozinhos) são puladas sem contar, como no commons-csv.
+     */
+    long varrer(ByteBuffer buf, String[] periodo, boolean periodoPelaData, List<FiltroDespesas.Linha> saida) {
+        int pos = buf.position();
+        int limite = buf.limit();
+        long linhas = 0;
+
+        while (pos < limite) {
+            int fimVazia = buf.get(pos) == RETORNO ? pos + 1 : pos;
+            if (fimVazia >= limite || buf.get(fimVazia) == FIM_LINHA) {
+                pos = fimVazia + 1;
+                continue;
+            }
+            pos = lerLinha(buf, pos, limite);
+            linhas++;
+
+            long saidas = filtro.avaliar(buf, inicioCampo[CONTA], fimCampo[CONTA], inicioCampo[DESCRICAO], fimCampo[DESCRICAO]);
+            if (saidas != 0 && filtro.precisaValor(saidas)) {
+                saidas = aplicarFaixas(buf, saidas);
+            }
+            if (saidas == 0) {
+                continue;
+            }
+
+            String[] periodoLinha = periodo;
+            if (periodoPelaData) {
+                String[] daData = EsquemaAns.periodoDaData(texto(buf, DATA));
+                if (daData != null) periodoLinha = daData;
+            }
+            String regAns = texto(buf, REG_ANS);
+            saida.add(new FiltroDespesas.Linha(new String[]{
+                    "Operadora " + regAns, // Razão Social (placeholder, o arquivo original não tem)
+                    regAns,                // CNPJ (REG_ANS como ID provisório)
+                    periodoLinha[0],
+                    periodoLinha[1],
+                    texto(buf, VALOR)
+            }, saidas));
+        }
+        return linhas;
+    }
+
+    /**
+     * Lê uma linha a partir de {@code pos}, registrando os limites das colunas de interesse.
+     * @return Posição do início da próxima linha.
+     */
+    private int lerLinha(ByteBuffer buf, int pos, int limite) {
+        Arrays.fill(fimCampo, -1);
+        int coluna = 0;
+
+        while (true) {
+            int inicio = pos;
+            int fim;
+            boolean comAspas = false;
+
+            // Campo entre aspas: procura a aspa de fechamento, pulando as aspas escapadas ("")
+            int p = pularBrancos(buf, pos, limite);
+            if (p < limite && buf.get(p) == ASPAS) {
+                comAspas = true;
+                inicio = p + 1;
+                p = inicio;
+                while (p < limite) {
+                    if (buf.get(p) == ASPAS) {
+                        if (p + 1 < limite && buf.get(p + 1) == ASPAS) {
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                fim = p;
+                // Descarta o que vier entre a aspa de fechamento e o separador
+                while (p < limite && buf.get(p) != SEPARADOR && buf.get(p) != FIM_LINHA) p++;
+            } else {
+                p = pos;
+                while (p < limite && buf.get(p) != SEPARADOR && buf.get(p) != FIM_LINHA) p++;
+                fim = p;
+            }
+
+            guardarCampo(buf, coluna, inicio, fim, comAspas);
+
+            if (p >= limite) return limite;
+            if (buf.get(p) == FIM_LINHA) return p + 1;
+
+            pos = p + 1;
+            coluna++;
+            // Depois da última coluna de interesse, só precisamos achar o fim da linha
+            if (coluna > ultimaColuna) {
+                while (pos < limite && buf.get(pos) != FIM_LINHA) pos++;
+                return Math.min(pos + 1, limite);
+            }
+        }
+    }
+
+    /**
+     * Se a coluna for uma das reconhecidas no esquema, guarda seus limites já sem espaços/\r nas pontas.
+     */
+    private void guardarCampo(ByteBuffer buf, int coluna, int inicio, int fim, boolean comAspas) {
+        int slot = coluna < slotPorColuna.length ? slotPorColuna[coluna] : -1;
+        if (slot < 0) return;
+
+        while (inicio < fim && (buf.get(inicio) & 0xFF) <= ' ') inicio++;
+        while (fim > inicio && (buf.get(fim - 1) & 0xFF) <= ' ') fim--;
+        inicioCampo[slot] = inicio;
+        fimCampo[slot] = fim;
+        campoComAspas[slot] = comAspas;
+    }
+
+    private int pularBrancos(ByteBuffer buf, int pos, int limite) {
+        while (pos < limite && (buf.get(pos) == ' ' || buf.get(pos) == '\t')) pos++;
+        return pos;
+    }
+
+    /**
+     * Converte o valor da linha atual para centavos (só quando alguma regra candidata tem faixa de valor).
+     */
+    private long aplicarFaixas(ByteBuffer buf, long candidatas) {
+        int inicio = inicioCampo[VALOR];
+        int fim = fimCampo[VALOR];
+        if (fim < 0) return filtro.aplicarFaixas(candidatas, 0, false);
+
+        int tamanho = fim - inicio;
+        if (rascunho.length < tamanho) rascunho = new byte[tamanho * 2];
+        buf.get(inicio, rascunho, 0, tamanho);
+        try {
+            return filtro.aplicarFaixas(candidatas, Centavos.parse(rascunho, 0, tamanho), true);
+        } catch (NumberFormatException e) {
+            return filtro.aplicarFaixas(candidatas, 0, false);
+        }
+    }
+
+    /**
+     * Decodifica o campo guardado no slot (só chamado para linhas aprovadas no filtro).
+     */
+    private String texto(ByteBuffer buf, int slot) {
+        int inicio = inicioCampo[slot];
+        int fim = fimCampo[slot];
+        if (fim < 0) return "";
+
+        int tamanho = fim - inicio;
+        if (rascunho.length < tamanho) rascunho = new byte[tamanho * 2];
+        buf.get(inicio, rascunho, 0, tamanho);
+
+        String valor = new String(rascunho, 0, tamanho, StandardCharsets.ISO_8859_1);
+        return campoComAspas[slot] && valor.indexOf('"') >= 0 ? valor.replace("\"\"", "\"") : valor;
+    }
+}
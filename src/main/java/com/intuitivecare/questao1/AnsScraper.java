@@ -3,19 +3,35 @@ package com.intuitivecare.questao1;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Responsável por navegar no site da ANS e identificar os links de download
  * dos arquivos de Demonstrações Contábeis.
  * Implementa uma busca dinâmica que varre os diretórios de anos para encontrar
  * os arquivos mais recentes, independente da data atual.
+ *
+ * As listagens são baixadas por um único HttpClient (conexões reaproveitadas via keep-alive), as pastas
+ * dos anos em paralelo, e ficam em cache em disco ({@link CacheListagens}): uma listagem que não mudou
+ * desde a última execução custa só uma resposta 304.
  */
 
 public class AnsScraper {
@@ -23,80 +39,199 @@ public class AnsScraper {
     private static final String BASE_URL = "https://dadosabertos.ans.gov.br/FTP/PDA/demonstracoes_contabeis/";
     // User-Agent para simular um navegador real e evitar bloqueios
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    // Pastas de ano ("2024/" ou "2023") e arquivos de trimestre (ex: 1T2023.zip ou 3T2025.zip), compilados uma vez
+    private static final Pattern PADRAO_ANO = Pattern.compile("\\d{4}/?");
+    private static final Pattern PADRAO_TRIMESTRE = Pattern.compile("(\\d{1,2})T(\\d{4}).*zip$");
+
+    // Pasta padrão do cache das listagens
+    private static final Path PASTA_CACHE = Paths.get("downloads", "cache");
+
+    /**
+     * Arquivo de um trimestre encontrado na pasta de um ano.
+     */
+    private record ArquivoTrimestre(int trimestre, String href, String url) {
+    }
+
+    private final HttpClient cliente;
+    private final CacheListagens cache;
+    private final String baseUrl;
+
+    public AnsScraper() throws IOException {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build(), PASTA_CACHE);
+    }
+
+    /**
+     * @param cliente HttpClient usado em todas as listagens (compartilhado entre as threads).
+     * @param pastaCache Pasta do cache das listagens.
+     */
+    public AnsScraper(HttpClient cliente, Path pastaCache) throws IOException {
+        this(cliente, pastaCache, BASE_URL);
+    }
+
+    /**
+     * @param baseUrl Raiz das demonstrações contábeis (terminada em '/'); outro endereço só para testes/espelhos.
+     */
+    AnsScraper(HttpClient cliente, Path pastaCache, String baseUrl) throws IOException {
+        this.cliente = cliente;
+        this.cache = new CacheListagens(pastaCache);
+        this.baseUrl = baseUrl;
+    }
 
     /**
      * Busca os links dos arquivos .zip referentes aos últimos 3 trimestres disponíveis.
-     * A lógica varre as pastas de anos (ex: 2025, 2024) e ordena os trimestres encontrados.
      *
      * @return Lista de Strings contendo as URLs completas para download.
      * @throws IOException em caso de erro de conexão com a ANS.
      */
-
     public List<String> getLinksUltimos3Trimestres() throws IOException {
-        System.out.println("Iniciando busca pelos últimos 3 trimestres...");
-        List<String> zipLinks = new ArrayList<>();
+        return getLinksUltimosTrimestres(3);
+    }
 
-        // 1. Conecta no site e lista os diretórios de anos disponíveis
-        Document docAnos = Jsoup.connect(BASE_URL)
-                .userAgent(USER_AGENT)
-                .timeout(10000)
-                .get();
+    /**
+     * Busca os links dos {@code quantidade} trimestres mais recentes, do mais novo para o mais antigo.
+     * Como cada ano tem no máximo 4 trimestres, só as pastas dos anos que podem conter os trimestres pedidos
+     * são listadas (em paralelo); se algum ano estiver incompleto, o próximo lote de anos é buscado.
+     *
+     * @return Lista de Strings contendo as URLs completas para download.
+     * @throws IOException em caso de erro ao listar os anos no site da ANS.
+     */
+    public List<String> getLinksUltimosTrimestres(int quantidade) throws IOException {
+        System.out.println("Iniciando busca pelos últimos " + quantidade + " trimestres...");
+        List<String> zipLinks = new ArrayList<>();
 
-        List<String> anos = listarSubdiretorios(docAnos);
+        // 1. Lista os diretórios de anos disponíveis
+        List<String> anos = listarSubdiretorios(buscar(baseUrl));
         anos.sort(Collections.reverseOrder()); // Ordena decrescente: 2025, 2024, 2023...
 
-        // 2. Itera pelos anos para buscar os ZIPS dentro deles
-        for (String ano : anos) {
-            if (zipLinks.size() >= 3) break;  // Se já achou 3, para a busca
+        // 2. Busca os ZIPs dos anos em lotes, do mais recente para o mais antigo
+        int proximo = 0;
+        while (zipLinks.size() < quantidade && proximo < anos.size()) {
+            // Anos necessários para o que falta (+1 no primeiro lote: o ano corrente costuma estar incompleto)
+            int faltam = quantidade - zipLinks.size();
+            int lote = Math.min(anos.size() - proximo, (faltam + 3) / 4 + (proximo == 0 ? 1 : 0));
+            List<List<ArquivoTrimestre>> porAno = listarAnos(anos.subList(proximo, proximo + lote));
+            proximo += lote;
+
+            for (List<ArquivoTrimestre> zipsDoAno : porAno) {
+                for (ArquivoTrimestre zip : zipsDoAno) {
+                    if (zipLinks.size() >= quantidade) break;
+                    zipLinks.add(zip.url());
+                    System.out.println("  Adicionado: " + zip.url());
+                }
+            }
+        }
 
-            String urlAno = BASE_URL + (ano.endsWith("/") ? ano : ano + "/");
-            System.out.println("Entrando na pasta do ano: " + urlAno);
+        return zipLinks;
+    }
 
+    /**
+     * Lista as pastas dos anos em paralelo (uma virtual thread por ano), devolvendo na mesma ordem dos anos.
+     * A falha em um ano é registrada e ele fica sem arquivos, como na busca sequencial.
+     */
+    private List<List<ArquivoTrimestre>> listarAnos(List<String> anos) throws IOException {
+        List<Future<List<ArquivoTrimestre>>> tarefas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String ano : anos) {
+                tarefas.add(executor.submit(() -> listarZipsDoAno(ano)));
+            }
+        }
+
+        List<List<ArquivoTrimestre>> resultado = new ArrayList<>();
+        for (int i = 0; i < tarefas.size(); i++) {
             try {
-                Document docArquivos = Jsoup.connect(urlAno)
-                        .userAgent(USER_AGENT)
-                        .get();
-
-                // Pega todos os links que terminam com .zip
-                Elements links = docArquivos.select("a[href$=.zip]");
-                
-                // Lista temporária para ordenar os trimestres deste ano (4T antes de 1T)
-                List<String> zipsDoAno = new ArrayList<>();
-
-                for (Element link : links) {
-                    String href = link.attr("href");
-                    // Regex: garante que é um arquivo de trimestre (ex: 1T2023.zip ou 3T2025.zip)
-                    if (href.matches(".*\\d{1,2}T\\d{4}.*zip")) {
-                        zipsDoAno.add(urlAno + href);
-                    }
-                }
+                resultado.add(tarefas.get(i).get());
+            } catch (ExecutionException e) {
+                System.err.println("Erro ao ler ano " + anos.get(i) + ": " + e.getCause().getMessage());
+                resultado.add(List.of());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Busca interrompida", e);
+            }
+        }
+        return resultado;
+    }
 
-                // Ordena ZIPS do ano em ordem decrescente (4T antes de 1T)
-                zipsDoAno.sort(Collections.reverseOrder());
+    /**
+     * Lista os ZIPs de trimestre da pasta de um ano, do trimestre mais recente para o mais antigo (4T antes de 1T).
+     */
+    private List<ArquivoTrimestre> listarZipsDoAno(String ano) throws IOException {
+        String urlAno = baseUrl + (ano.endsWith("/") ? ano : ano + "/");
+        System.out.println("Entrando na pasta do ano: " + urlAno);
+
+        List<ArquivoTrimestre> zipsDoAno = new ArrayList<>();
+        // Pega todos os links que terminam com .zip
+        for (Element link : buscar(urlAno).select("a[href$=.zip]")) {
+            String href = link.attr("href");
+            Matcher m = PADRAO_TRIMESTRE.matcher(href);
+            if (m.find()) {
+                zipsDoAno.add(new ArquivoTrimestre(Integer.parseInt(m.group(1)), href, urlAno + href));
+            }
+        }
 
-                for (String zip : zipsDoAno) {
-                    if (zipLinks.size() >= 3) break;
-                    
-                    zipLinks.add(zip);
-                    System.out.println("  Adicionado: " + zip);
-                }
+        zipsDoAno.sort(Comparator.comparingInt(ArquivoTrimestre::trimestre)
+                .thenComparing(ArquivoTrimestre::href)
+                .reversed());
+        return zipsDoAno;
+    }
 
-            } catch (IOException e) {
-                System.err.println("Erro ao ler ano " + ano + ": " + e.getMessage());
-            }
+    /**
+     * Baixa (ou revalida no cache) uma página de listagem e devolve o HTML já parseado.
+     * Se houver versão em cache, a requisição é condicional e um 304 reaproveita o HTML guardado.
+     */
+    private Document buscar(String url) throws IOException {
+        CacheListagens.Listagem anterior = cache.ler(url);
+
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(url))
+                .timeout(TIMEOUT)
+                .header("User-Agent", USER_AGENT)
+                .GET();
+        if (anterior != null) {
+            if (anterior.etag() != null) requisicao.header("If-None-Match", anterior.etag());
+            if (anterior.lastModified() != null) requisicao.header("If-Modified-Since", anterior.lastModified());
         }
 
-        return zipLinks;
+        HttpResponse<String> resposta;
+        try {
+            resposta = cliente.send(requisicao.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requisição interrompida: " + url, e);
+        }
+        Metricas.contar("scraping.listagens", 1);
+
+        String html;
+        if (resposta.statusCode() == 304 && anterior != null) {
+            Metricas.contar("scraping.naoModificadas", 1);
+            html = anterior.html();
+        } else if (resposta.statusCode() == 200) {
+            html = resposta.body();
+            cache.gravar(url,
+                    resposta.headers().firstValue("ETag").orElse(null),
+                    resposta.headers().firstValue("Last-Modified").orElse(null),
+                    html);
+        } else {
+            throw new IOException("HTTP " + resposta.statusCode() + " em " + url);
+        }
+        return Jsoup.parse(html, url);
     }
 
     /**
      * Método auxiliar para extrair apenas pastas que são Anos (4 dígitos) da listagem HTML.
      */
     private List<String> listarSubdiretorios(Document doc) {
-        return doc.select("a[href]").stream()
-                .map(link -> link.attr("href"))
-                .filter(href -> href.matches("\\d{4}/?")) // Aceita apenas "2024/" ou "2023" etc.
-                .filter(href -> !href.equals("../"))  // Ignora link de diretório pai
-                .collect(Collectors.toList());
+        List<String> anos = new ArrayList<>();
+        for (Element link : doc.select("a[href]")) {
+            String href = link.attr("href");
+            if (PADRAO_ANO.matcher(href).matches()) { // Aceita apenas "2024/" ou "2023" etc. (ignora "../")
+                anos.add(href);
+            }
+        }
+        return anos;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package com.intuitivecare.questao1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Cache em disco das páginas de listagem do site da ANS (índice de anos e pastas de cada ano).
+ * Para cada URL guarda o HTML e os validadores HTTP (ETag, Last-Modified); na execução seguinte a
+ * requisição vai com If-None-Match/If-Modified-Since e uma listagem que não mudou custa só um 304.
+ *
+ * O índice é um .properties (chave = hash da URL) e o HTML fica num arquivo por URL.
+ * Os métodos são sincronizados porque as listagens dos anos são buscadas em paralelo.
+ */
+class CacheListagens {
+
+    /**
+     * Versão guardada de uma listagem.
+     */
+    record Listagem(String etag, String lastModified, String html) {
+    }
+
+    private final Path pasta;
+    private final Path indice;
+    private final Properties propriedades = new Properties();
+
+    /**
+     * Abre o cache na pasta informada (criada na primeira gravação).
+     */
+    CacheListagens(Path pasta) throws IOException {
+        this.pasta = pasta;
+        this.indice = pasta.resolve("listagens.properties");
+        if (Files.exists(indice)) {
+            try (Reader reader = Files.newBufferedReader(indice, StandardCharsets.UTF_8)) {
+                propriedades.load(reader);
+            }
+        }
+    }
+
+    /**
+     * @return A listagem guardada para a URL, ou null se não houver (ou se o HTML sumiu do disco).
+     */
+    synchronized Listagem ler(String url) throws IOException {
+        String id = id(url);
+        Path html = pasta.resolve(id + ".html");
+        if (!url.equals(propriedades.getProperty(id + ".url")) || !Files.exists(html)) {
+            return null;
+        }
+        return new Listagem(propriedades.getProperty(id + ".etag"),
+                propriedades.getProperty(id + ".lastModified"),
+                Files.readString(html, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Guarda uma listagem recém-baixada. Sem nenhum validador não há como revalidar, então nada é guardado.
+     */
+    synchronized void gravar(String url, String etag, String lastModified, String html) throws IOException {
+        if (etag == null && lastModified == null) return;
+
+        Files.createDirectories(pasta);
+        String id = id(url);
+        Path temporario = pasta.resolve(id + ".html.tmp");
+        Files.writeString(temporario, html, StandardCharsets.UTF_8);
+        Files.move(temporario, pasta.resolve(id + ".html"), StandardCopyOption.REPLACE_EXISTING);
+
+        propriedades.setProperty(id + ".url", url);
+        definir(id + ".etag", etag);
+        definir(id + ".lastModified", lastModified);
+        try (Writer writer = Files.newBufferedWriter(indice, StandardCharsets.UTF_8)) {
+            propriedades.store(writer, "Cache das listagens da ANS (nao editar)");
+        }
+    }
+
+    private void definir(String chave, String valor) {
+        if (valor == null) {
+            propriedades.remove(chave);
+        } else {
+            propriedades.setProperty(chave, valor);
+        }
+    }
+
+    /**
+     * Nome de arquivo estável para a URL (16 primeiros dígitos hex do SHA-256).
+     */
+    private static String id(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.intuitivecare.questao1;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conversão dos valores monetários da ANS (formato brasileiro, ex: "1.234,56") para centavos em {@code long}.
+ * Mesma semântica de um DECIMAL(15,2) do MySQL: casas além da segunda são arredondadas
+ * (meio para longe do zero), então somas feitas em centavos batem com as do banco.
+ *
+ * A conversão é feita numa única passada sobre os caracteres (ou bytes), sem criar Strings intermediárias.
+ */
+public final class Centavos {
+
+    // Dígitos da parte inteira: 16 noves vezes 100, mais os centavos e o arredondamento, ainda cabem num long
+    // (com 17 já passa de Long.MAX_VALUE); acima disso o valor é inválido em vez de dar overflow
+    private static final int MAX_DIGITOS = 16;
+
+    private Centavos() {
+    }
+
+    /**
+     * Aceita "1234,56", "1.234,56", "-12,3", "1234.56" (ponto decimal quando não há vírgula) e "1234".
+     * Aspas e espaços nas pontas são ignorados.
+     * @throws NumberFormatException se o texto não for um número válido.
+     */
+    public static long parse(CharSequence texto) {
+        boolean temVirgula = false;
+        for (int i = 0; i < texto.length() && !temVirgula; i++) {
+            temVirgula = texto.charAt(i) == ',';
+        }
+
+        Acumulador acc = new Acumulador(temVirgula);
+        for (int i = 0; i < texto.length(); i++) {
+            if (!acc.adicionar(texto.charAt(i))) throw new NumberFormatException("Valor inválido: " + texto);
+        }
+        if (!acc.valido()) throw new NumberFormatException("Valor inválido: " + texto);
+        return acc.centavos();
+    }
+
+    /**
+     * Mesmo que {@link #parse(CharSequence)}, lendo bytes ASCII/ISO-8859-1 no intervalo [inicio, fim).
+     */
+    public static long parse(byte[] dados, int inicio, int fim) {
+        boolean temVirgula = false;
+        for (int i = inicio; i < fim && !temVirgula; i++) {
+            temVirgula = dados[i] == ',';
+        }
+
+        Acumulador acc = new Acumulador(temVirgula);
+        for (int i = inicio; i < fim; i++) {
+            if (!acc.adicionar((char) (dados[i] & 0xFF))) throw invalido(dados, inicio, fim);
+        }
+        if (!acc.valido()) throw invalido(dados, inicio, fim);
+        return acc.centavos();
+    }
+
+    /**
+     * Formata centavos como decimal com ponto e duas casas (ex: 123456 -> "1234.56").
+     */
+    public static String formatar(long centavos) {
+        StringBuilder sb = new StringBuilder(24);
+        if (centavos < 0) sb.append('-');
+        long abs = Math.abs(centavos);
+        sb.append(abs / 100).append('.');
+        long resto = abs % 100;
+        if (resto < 10) sb.append('0');
+        return sb.append(resto).toString();
+    }
+
+    private static NumberFormatException invalido(byte[] dados, int inicio, int fim) {
+        return new NumberFormatException("Valor inválido: " + new String(dados, inicio, fim - inicio, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Estado da passada única: sinal, parte inteira, até duas casas decimais e o dígito de arredondamento.
+     * Vive só na pilha (o JIT elimina a alocação).
+     */
+    private static final class Acumulador {
+        private final char decimal;
+        private final boolean pontoDeMilhar;
+        private boolean comecou;
+        private boolean terminou;
+        private boolean negativo;
+        private long inteiro;
+        private int digitos;
+        private int casas = -1; // -1 enquanto não passou pelo separador decimal
+        private long fracao;
+        private boolean arredondar;
+
+        /**
+         * @param temVirgula Com vírgula, ela é o separador decimal e os pontos são de milhar; sem vírgula, o ponto é decimal.
+         */
+        Acumulador(boolean temVirgula) {
+            this.decimal = temVirgula ? ',' : '.';
+            this.pontoDeMilhar = temVirgula;
+        }
+
+        /**
+         * @return false se o caractere não cabe num número (ou aparece depois de aspas/espaços finais).
+         */
+        boolean adicionar(char c) {
+            if (c == '"' || c <= ' ') {
+                if (comecou) terminou = true;
+                return true;
+            }
+            if (terminou) return false;
+
+            if (!comecou && (c == '-' || c == '+')) {
+                comecou = true;
+                negativo = c == '-';
+                return true;
+            }
+            comecou = true;
+
+            if (c >= '0' && c <= '9') {
+                if (casas < 0) {
+                    if (++digitos > MAX_DIGITOS) return false;
+                    inteiro = inteiro * 10 + (c - '0');
+                } else {
+                    if (casas < 2) fracao = fracao * 10 + (c - '0');
+                    else if (casas == 2) arredondar = c >= '5';
+                    casas++;
+                }
+                return true;
+            }
+            if (c == decimal && casas < 0) {
+                casas = 0;
+                return true;
+            }
+            return c == '.' && pontoDeMilhar && casas < 0;
+        }
+
+        boolean valido() {
+            return digitos > 0 || casas > 0;
+        }
+
+        long centavos() {
+            long f = casas < 1 ? fracao * 100 : casas == 1 ? fracao * 10 : fracao;
+            long valor = inteiro * 100 + f + (arredondar ? 1 : 0);
+            return negativo ? -valor : valor;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.intuitivecare.questao1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de download baseado em {@link HttpClient} para os ZIPs grandes da ANS.
+ *
+ * - Retoma downloads interrompidos com HTTP Range (o que já está em disco não é baixado de novo);
+ * - Divide arquivos grandes em segmentos baixados em paralelo (um arquivo ".parteN" por segmento);
+ * - Repete cada trecho com backoff exponencial em caso de falha de rede ou HTTP 5xx; erros do cliente (4xx,
+ *   exceto 408 e 429) falham na hora, e um 416 na retomada recomeça o trecho do zero;
+ * - Aborta a leitura do corpo quando nenhum byte chega dentro do timeout (o trecho é repetido de onde parou);
+ * - Grava em disco por um buffer direto grande, sem passar por byte[] intermediários;
+ * - Informa progresso e vazão de cada arquivo.
+ *
+ * Se o servidor não aceitar Range, cai para um GET simples (sem retomada).
+ */
+public class ChunkedDownloader {
+
+    private static final int TAMANHO_BUFFER = 1024 * 1024;              // 1MB (buffer direto)
+    private static final long INTERVALO_PROGRESSO = 16L * 1024 * 1024;  // Loga a cada 16MB
+    private static final long ESPERA_INICIAL_MS = 500;
+
+    // O timeout do HttpRequest só cobre a espera pelos cabeçalhos; as leituras do corpo são vigiadas por esta thread
+    private static final ScheduledExecutorService VIGIA = Executors.newSingleThreadScheduledExecutor(
+            r -> Thread.ofPlatform().name("download-vigia").daemon().unstarted(r));
+
+    private final HttpClient cliente;
+    private final Duration timeout;
+    private final int segmentos;
+    private final long tamanhoMinimoSegmentado;
+    private final int tentativas;
+
+    /**
+     * Resultado de um download.
+     * @param naoModificado true se o servidor respondeu 304 (nada foi baixado)
+     */
+    public record Resultado(long bytes, long nanos, boolean naoModificado, String etag, String lastModified) {
+
+        /** Vazão média em MB/s. */
+        public double megabytesPorSegundo() {
+            return nanos == 0 ? 0 : (bytes / 1_048_576.0) / (nanos / 1e9);
+        }
+    }
+
+    /**
+     * @param cliente HttpClient compartilhado (mantém as conexões abertas entre requisições)
+     * @param timeout Timeout de cada requisição
+     * @param segmentos Número de segmentos paralelos para arquivos grandes (1 = sem divisão)
+     * @param tamanhoMinimoSegmentado Arquivos menores que isso são baixados num único stream
+     * @param tentativas Número máximo de tentativas por trecho
+     */
+    public ChunkedDownloader(HttpClient cliente, Duration timeout, int segmentos, long tamanhoMinimoSegmentado, int tentativas) {
+        this.cliente = cliente;
+        this.timeout = timeout;
+        this.segmentos = Math.max(1, segmentos);
+        this.tamanhoMinimoSegmentado = tamanhoMinimoSegmentado;
+        this.tentativas = Math.max(1, tentativas);
+    }
+
+    /**
+     * Baixa {@code url} para {@code destino}. O arquivo final só aparece quando o download termina.
+     * @param condicionais Cabeçalhos condicionais (If-None-Match / If-Modified-Since); pode ser vazio
+     */
+    public Resultado baixar(String url, Path destino, Map<String, String> condicionais) throws IOException {
+        URI uri = URI.create(url);
+        long inicio = System.nanoTime();
+        String nome = destino.getFileName().toString();
+
+        // 1. HEAD: tamanho, suporte a Range e validadores (e 304 se nada mudou)
+        HttpResponse<Void> head = comRetentativas(nome, () -> enviar(requisicao(uri, condicionais).method("HEAD",
+                HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding()));
+
+        int status = head.statusCode();
+        if (status == 304) {
+            return new Resultado(0, System.nanoTime() - inicio, true, null, null);
+        }
+
+        HttpHeaders cabecalhos = head.headers();
+        String etag = cabecalhos.firstValue("ETag").orElse(null);
+        String lastModified = cabecalhos.firstValue("Last-Modified").orElse(null);
+        long tamanho = status < 300 ? cabecalhos.firstValueAsLong("Content-Length").orElse(-1) : -1;
+        boolean aceitaRange = status < 300 && cabecalhos.firstValue("Accept-Ranges").map("bytes"::equalsIgnoreCase).orElse(false);
+        // Validador para o If-Range: garante que as partes em disco são da mesma versão do arquivo
+        String validador = etag != null ? etag : lastModified;
+
+        prepararPartes(destino, validador);
+
+        Progresso progresso = new Progresso(nome, tamanho);
+        if (aceitaRange && tamanho > 0 && segmentos > 1 && tamanho >= tamanhoMinimoSegmentado) {
+            baixarSegmentado(uri, destino, tamanho, validador, progresso);
+        } else {
+            Path parte = parte(destino, 0);
+            baixarTrecho(uri, parte, 0, tamanho > 0 ? tamanho - 1 : -1, aceitaRange, validador, progresso);
+            Files.move(parte, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (tamanho > 0 && Files.size(destino) != tamanho) {
+            throw new IOException("Tamanho inesperado em " + nome + ": " + Files.size(destino) + " de " + tamanho + " bytes");
+        }
+        Files.deleteIfExists(marcaVersao(destino));
+
+        Resultado resultado = new Resultado(progresso.baixados.get(), System.nanoTime() - inicio, false, etag, lastModified);
+        System.out.printf("  %s: %.1f MB em %.1fs (%.1f MB/s)%n", nome,
+                resultado.bytes() / 1_048_576.0, resultado.nanos() / 1e9, resultado.megabytesPorSegundo());
+        return resultado;
+    }
+
+    /**
+     * Partes de uma execução anterior só são reaproveitadas se forem da mesma versão do arquivo
+     * (mesmo ETag/Last-Modified, guardado num arquivo ".versao" ao lado das partes).
+     */
+    private void prepararPartes(Path destino, String validador) throws IOException {
+        Path marca = marcaVersao(destino);
+        String anterior = Files.exists(marca) ? Files.readString(marca) : null;
+        if (validador == null || !validador.equals(anterior)) {
+            String prefixo = destino.getFileName() + ".parte";
+            try (var arquivos = Files.list(marca.getParent())) {
+                for (Path p : arquivos.filter(p -> p.getFileName().toString().startsWith(prefixo)).toList()) {
+                    Files.delete(p);
+                }
+            }
+        }
+        if (validador != null) {
+            Files.writeString(marca, validador);
+        }
+    }
+
+    /**
+     * Divide [0, tamanho) em segmentos, baixa cada um em paralelo no seu ".parteN" e junta tudo no destino.
+     */
+    private void baixarSegmentado(URI uri, Path destino, long tamanho, String validador, Progresso progresso) throws IOException {
+        long porSegmento = (tamanho + segmentos - 1) / segmentos;
+        List<Future<Void>> tarefas = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < segmentos; i++) {
+                long primeiro = i * porSegmento;
+                long ultimo = Math.min(tamanho, primeiro + porSegmento) - 1;
+                if (primeiro > ultimo) break;
+                Path parte = parte(destino, i);
+                tarefas.add(executor.submit(() -> {
+                    baixarTrecho(uri, parte, primeiro, ultimo, true, validador, progresso);
+                    return null;
+                }));
+            }
+            for (Future<Void> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrompido", e);
+        }
+
+        // Junta as partes na ordem (transferTo deixa a cópia com o sistema operacional)
+        Path temporario = parte(destino, -1);
+        try (FileChannel saida = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < tarefas.size(); i++) {
+                Path parte = parte(destino, i);
+                try (FileChannel entrada = FileChannel.open(parte, StandardOpenOption.READ)) {
+                    long posicao = 0;
+                    long tamanhoParte = entrada.size();
+                    while (posicao < tamanhoParte) {
+                        posicao += entrada.transferTo(posicao, tamanhoParte - posicao, saida);
+                    }
+                }
+            }
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        for (int i = 0; i < tarefas.size(); i++) {
+            Files.deleteIfExists(parte(destino, i));
+        }
+    }
+
+    /**
+     * Baixa os bytes [primeiro, ultimo] para {@code parte}, retomando do que já existe no arquivo.
+     * Com {@code ultimo = -1} o tamanho é desconhecido e o trecho vai até o fim da resposta.
+     */
+    private void baixarTrecho(URI uri, Path parte, long primeiro, long ultimo, boolean aceitaRange,
+                              String validador, Progresso progresso) throws IOException {
+        comRetentativas(parte.getFileName().toString(), () -> {
+            long jaBaixado = aceitaRange && Files.exists(parte) ? Files.size(parte) : 0;
+            long esperado = ultimo >= 0 ? ultimo - primeiro + 1 : -1;
+            if (esperado >= 0 && jaBaixado >= esperado) {
+                if (jaBaixado > esperado) Files.delete(parte); else return null; // Parte já completa
+                jaBaixado = 0;
+            }
+
+            HttpRequest.Builder req = requisicao(uri, Map.of()).GET();
+            boolean pedindoRange = aceitaRange && (primeiro + jaBaixado > 0 || ultimo >= 0 && ultimo < progresso.total - 1);
+            if (pedindoRange) {
+                req.header("Range", "bytes=" + (primeiro + jaBaixado) + "-" + (ultimo >= 0 ? ultimo : ""));
+                if (validador != null) req.header("If-Range", validador);
+            }
+
+            HttpResponse<InputStream> resposta = enviar(req.build(), HttpResponse.BodyHandlers.ofInputStream());
+            int status = resposta.statusCode();
+            boolean continuar = status == 206;
+            if (status == 416 && jaBaixado > 0) {
+                // A parte em disco não bate mais com o arquivo no servidor: descarta e recomeça do início
+                resposta.body().close();
+                Files.delete(parte);
+                throw new IOException("HTTP 416 ao retomar do byte " + (primeiro + jaBaixado) + " em " + uri);
+            }
+            if (status != 200 && status != 206) {
+                resposta.body().close();
+                throw falhaHttp(status, uri);
+            }
+            if (!continuar && (primeiro > 0 || ultimo >= 0 && ultimo < progresso.total - 1)) {
+                // Pedimos um pedaço e o servidor mandou o arquivo inteiro: segmento impossível
+                resposta.body().close();
+                throw new IOException("Servidor ignorou o Range em " + uri);
+            }
+            // Sem 206 o servidor mandou o arquivo inteiro (ex: mudou e o If-Range falhou): recomeça do zero
+            try (InputStream corpo = resposta.body();
+                 LeituraVigiada vigia = new LeituraVigiada(corpo);
+                 ReadableByteChannel entrada = Channels.newChannel(corpo);
+                 FileChannel saida = FileChannel.open(parte, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         continuar ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+                while (vigia.ler(entrada, buffer) >= 0) {
+                    buffer.flip();
+                    int escritos = 0;
+                    while (buffer.hasRemaining()) escritos += saida.write(buffer);
+                    buffer.clear();
+                    progresso.somar(escritos);
+                }
+            }
+            return null;
+        });
+    }
+
+    private HttpRequest.Builder requisicao(URI uri, Map<String, String> cabecalhos) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(timeout);
+        cabecalhos.forEach(builder::header);
+        return builder;
+    }
+
+    private <T> HttpResponse<T> enviar(HttpRequest requisicao, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            HttpResponse<T> resposta = cliente.send(requisicao, handler);
+            if (resposta.statusCode() >= 500) {
+                throw new IOException("HTTP " + resposta.statusCode() + " em " + requisicao.uri());
+            }
+            return resposta;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrompido", e);
+        }
+    }
+
+    /**
+     * Erro de um status HTTP inesperado: 4xx (fora 408 Request Timeout e 429 Too Many Requests) não muda
+     * repetindo a requisição, então não passa pelas retentativas.
+     */
+    private static IOException falhaHttp(int status, URI uri) {
+        String mensagem = "HTTP " + status + " em " + uri;
+        boolean permanente = status >= 400 && status < 500 && status != 408 && status != 429;
+        return permanente ? new FalhaPermanente(mensagem) : new IOException(mensagem);
+    }
+
+    /**
+     * Executa a ação com até {@code tentativas} tentativas, esperando 0,5s, 1s, 2s... entre elas.
+     * Uma {@link FalhaPermanente} é repassada na primeira vez.
+     */
+    private <T> T comRetentativas(String nome, Acao<T> acao) throws IOException {
+        long espera = ESPERA_INICIAL_MS;
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return acao.executar();
+            } catch (IOException e) {
+                if (tentativa >= tentativas || e instanceof FalhaPermanente) throw e;
+                System.err.println("  " + nome + ": falha na tentativa " + tentativa + " (" + e.getMessage()
+                        + "), nova tentativa em " + espera + "ms");
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                espera *= 2;
+            }
+        }
+    }
+
+    private static Path marcaVersao(Path destino) {
+        return destino.toAbsolutePath().resolveSibling(destino.getFileName() + ".versao");
+    }
+
+    private static Path parte(Path destino, int indice) {
+        String sufixo = indice < 0 ? ".tmp" : ".parte" + indice;
+        return destino.toAbsolutePath().resolveSibling(destino.getFileName() + sufixo);
+    }
+
+    @FunctionalInterface
+    private interface Acao<T> {
+        T executar() throws IOException;
+    }
+
+    /**
+     * Falha que não adianta repetir (ex: HTTP 404).
+     */
+    private static final class FalhaPermanente extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        FalhaPermanente(String mensagem) {
+            super(mensagem);
+        }
+    }
+
+    /**
+     * Leituras do corpo de uma resposta com prazo: se um read() fica mais que {@code timeout} sem retornar,
+     * a vigia fecha o corpo (o que desbloqueia a leitura) e {@link #ler} lança IOException, para o trecho
+     * ser repetido pelo {@link #comRetentativas}. Uma verificação periódica por resposta, e não uma tarefa
+     * agendada por read(), que aconteceria a cada poucos KB.
+     */
+    private final class LeituraVigiada implements AutoCloseable {
+        private final InputStream corpo;
+        private final ScheduledFuture<?> verificacao;
+        private volatile long inicioLeitura = System.nanoTime();
+        private volatile boolean lendo;
+        private volatile boolean expirou;
+
+        LeituraVigiada(InputStream corpo) {
+            this.corpo = corpo;
+            long periodo = Math.max(10, timeout.toMillis() / 4);
+            this.verificacao = VIGIA.scheduleAtFixedRate(this::verificar, periodo, periodo, TimeUnit.MILLISECONDS);
+        }
+
+        int ler(ReadableByteChannel entrada, ByteBuffer buffer) throws IOException {
+            inicioLeitura = System.nanoTime();
+            lendo = true;
+            int lidos;
+            try {
+                lidos = entrada.read(buffer);
+            } catch (IOException e) {
+                if (expirou) throw semDados(e);
+                throw e;
+            } finally {
+                lendo = false;
+            }
+            // Fechado pela vigia, o corpo pode terminar como se fosse um fim normal (-1)
+            if (expirou) throw semDados(null);
+            return lidos;
+        }
+
+        private void verificar() {
+            if (!lendo || expirou || System.nanoTime() - inicioLeitura < timeout.toNanos()) return;
+            expirou = true;
+            try {
+                corpo.close();
+            } catch (IOException e) {
+                // O importante é desbloquear a leitura; o erro de fechamento não muda nada
+            }
+        }
+
+        private IOException semDados(IOException causa) {
+            return new IOException("Nenhum byte recebido em " + timeout.toMillis() + "ms", causa);
+        }
+
+        @Override
+        public void close() {
+            verificacao.cancel(false);
+        }
+    }
+
+    /**
+     * Contador dos bytes recebidos pela rede nesta execução, compartilhado pelos segmentos. Loga a cada 16MB.
+     */
+    private static final class Progresso {
+        private final String nome;
+        private final long total;
+        private final AtomicLong baixados = new AtomicLong();
+        private final AtomicLong proximoLog = new AtomicLong(INTERVALO_PROGRESSO);
+
+        Progresso(String nome, long total) {
+            this.nome = nome;
+            this.total = total;
+        }
+
+        void somar(long bytes) {
+            long atual = baixados.addAndGet(bytes);
+            long limite = proximoLog.get();
+            if (atual >= limite && proximoLog.compareAndSet(limite, limite + INTERVALO_PROGRESSO)) {
+                if (total > 0) {
+                    System.out.printf("  %s: %d%% (%d/%d MB)%n", nome, atual * 100 / total, atual >> 20, total >> 20);
+                } else {
+                    System.out.printf("  %s: %d MB%n", nome, atual >> 20);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.intuitivecare.questao1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lê o consolidado.col gerado pelo {@link ColumnarWriter}.
+ *
+ * Cada bloco é mapeado em memória (mmap) e exposto como views de coluna ({@link LongBuffer}/{@link IntBuffer}),
+ * então um agregador percorre só as colunas de que precisa, sem decodificar linhas nem criar Strings.
+ * O índice do rodapé guarda o menor/maior Registro ANS e período de cada bloco, permitindo pular blocos inteiros.
+ *
+ * Depois de aberto pode ser lido por várias threads (os blocos devolvidos são views independentes).
+ */
+public class ColumnarReader implements Closeable {
+
+    /**
+     * Colunas de um bloco. As views são somente leitura e indexadas de 0 a {@code linhas() - 1}.
+     */
+    public record Bloco(int linhas, LongBuffer valores, IntBuffer registros, IntBuffer periodos, IntBuffer codigosRazao) {
+    }
+
+    private final FileChannel canal;
+    private final long[] posicoes;
+    private final int[] linhas;
+    private final int[] menorRegistro;
+    private final int[] maiorRegistro;
+    private final int[] menorPeriodo;
+    private final int[] maiorPeriodo;
+    private final String[] dicionario;
+    private final long totalLinhas;
+
+    private ColumnarReader(Path arquivo) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            long tamanho = canal.size();
+            int tamanhoFim = 2 * Long.BYTES + ColumnarWriter.ASSINATURA.length;
+            if (tamanho < ColumnarWriter.ASSINATURA.length + tamanhoFim) {
+                throw new IOException("Arquivo colunar inválido (muito pequeno): " + arquivo);
+            }
+
+            ByteBuffer fim = ler(tamanho - tamanhoFim, tamanhoFim);
+            this.totalLinhas = fim.getLong();
+            long inicioRodape = fim.getLong();
+            byte[] assinatura = new byte[ColumnarWriter.ASSINATURA.length];
+            fim.get(assinatura);
+            if (!Arrays.equals(assinatura, ColumnarWriter.ASSINATURA)) {
+                throw new IOException("Arquivo colunar inválido (assinatura): " + arquivo);
+            }
+
+            // O rodapé é pequeno (índice + dicionário): lido inteiro para a heap
+            ByteBuffer rodape = ler(inicioRodape, (int) (tamanho - tamanhoFim - inicioRodape));
+            int blocos = rodape.getInt();
+            this.posicoes = new long[blocos];
+            this.linhas = new int[blocos];
+            this.menorRegistro = new int[blocos];
+            this.maiorRegistro = new int[blocos];
+            this.menorPeriodo = new int[blocos];
+            this.maiorPeriodo = new int[blocos];
+            for (int i = 0; i < blocos; i++) {
+                posicoes[i] = rodape.getLong();
+                linhas[i] = rodape.getInt();
+                menorRegistro[i] = rodape.getInt();
+                maiorRegistro[i] = rodape.getInt();
+                menorPeriodo[i] = rodape.getInt();
+                maiorPeriodo[i] = rodape.getInt();
+            }
+
+            this.dicionario = new String[rodape.getInt()];
+            byte[] bytes = new byte[Short.MAX_VALUE];
+            for (int i = 0; i < dicionario.length; i++) {
+                int len = rodape.getShort();
+                rodape.get(bytes, 0, len);
+                dicionario[i] = new String(bytes, 0, len, StandardCharsets.UTF_8);
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    public static ColumnarReader abrir(Path arquivo) throws IOException {
+        return new ColumnarReader(arquivo);
+    }
+
+    public long getTotalLinhas() {
+        return totalLinhas;
+    }
+
+    public int quantidadeBlocos() {
+        return posicoes.length;
+    }
+
+    public int linhasDoBloco(int bloco) {
+        return linhas[bloco];
+    }
+
+    /**
+     * Indica se o bloco pode conter o Registro ANS informado (pelo menor/maior do índice).
+     */
+    public boolean blocoPodeConterRegistro(int bloco, int registroAns) {
+        return registroAns >= menorRegistro[bloco] && registroAns <= maiorRegistro[bloco];
+    }
+
+    /**
+     * Indica se o bloco pode conter linhas do período [de, ate] (ano * 10 + trimestre).
+     */
+    public boolean blocoPodeConterPeriodo(int bloco, int de, int ate) {
+        return ate >= menorPeriodo[bloco] && de <= maiorPeriodo[bloco];
+    }
+
+    /**
+     * Mapeia as colunas do bloco em memória.
+     */
+    public Bloco bloco(int bloco) throws IOException {
+        int n = linhas[bloco];
+        MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, posicoes[bloco],
+                (long) n * ColumnarWriter.BYTES_POR_LINHA);
+        mapa.order(ByteOrder.LITTLE_ENDIAN);
+
+        LongBuffer valores = mapa.slice(0, n * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        int inicioInts = n * Long.BYTES;
+        IntBuffer registros = coluna(mapa, inicioInts, n);
+        IntBuffer periodos = coluna(mapa, inicioInts + n * Integer.BYTES, n);
+        IntBuffer codigos = coluna(mapa, inicioInts + 2 * n * Integer.BYTES, n);
+        return new Bloco(n, valores, registros, periodos, codigos);
+    }
+
+    /**
+     * Razão social correspondente a um código da coluna {@code codigosRazao}.
+     */
+    public String razaoSocial(int codigo) {
+        return dicionario[codigo];
+    }
+
+    public int tamanhoDicionario() {
+        return dicionario.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private static IntBuffer coluna(MappedByteBuffer mapa, int inicio, int n) {
+        return mapa.slice(inicio, n * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private ByteBuffer ler(long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                throw new IOException("Fim inesperado do arquivo colunar");
+            }
+        }
+        return buffer.flip();
+    }
+}
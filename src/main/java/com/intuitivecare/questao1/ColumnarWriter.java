@@ -0,0 +1,202 @@
+package com.intuitivecare.questao1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grava o consolidado num formato binário colunar (consolidado.col), ao lado do consolidado.csv.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   "ANSCOL1\0"                                     assinatura (8 bytes)
+ *   bloco*                                          até 64K linhas cada, alinhado em 8 bytes:
+ *     long[n] valores em centavos
+ *     int[n]  Registro ANS
+ *     int[n]  período (ano * 10 + trimestre, ex: 20253)
+ *     int[n]  código da razão social no dicionário
+ *   rodapé:
+ *     int quantidadeBlocos
+ *     por bloco: long posição, int linhas, int menorRegistro, int maiorRegistro, int menorPeriodo, int maiorPeriodo
+ *     int tamanhoDicionario; por entrada: short bytes + texto UTF-8
+ *     long totalLinhas
+ *   long posiçãoDoRodapé, "ANSCOL1\0"
+ * </pre>
+ * Como o rodapé fica no fim, o arquivo é escrito em streaming; só o bloco atual fica em memória.
+ * Não é thread-safe: deve ser alimentado pela mesma thread que grava o CSV.
+ */
+public class ColumnarWriter implements Closeable {
+
+    static final byte[] ASSINATURA = {'A', 'N', 'S', 'C', 'O', 'L', '1', 0};
+    static final int LINHAS_POR_BLOCO = 64 * 1024;
+    static final int BYTES_POR_LINHA = Long.BYTES + 3 * Integer.BYTES;
+    static final int BYTES_INDICE_BLOCO = Long.BYTES + 5 * Integer.BYTES;
+
+    private final FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(LINHAS_POR_BLOCO * BYTES_POR_LINHA + Long.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    // Bloco atual, coluna por coluna
+    private final long[] valores = new long[LINHAS_POR_BLOCO];
+    private final int[] registros = new int[LINHAS_POR_BLOCO];
+    private final int[] periodos = new int[LINHAS_POR_BLOCO];
+    private final int[] codigosRazao = new int[LINHAS_POR_BLOCO];
+    private int linhasNoBloco;
+
+    private final Map<String, Integer> dicionario = new HashMap<>();
+    private final List<String> razoes = new ArrayList<>();
+    private final List<long[]> indice = new ArrayList<>();
+    private long posicao;
+    private long totalLinhas;
+    private long descartadas;
+
+    public ColumnarWriter(Path destino) throws IOException {
+        this.canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(ASSINATURA);
+        escrever();
+    }
+
+    /**
+     * Adiciona uma linha no formato do consolidado: {RazaoSocial, RegistroANS, "3T", "2025", "1234,56"}.
+     * Linhas sem Registro ANS, trimestre/ano ou valor numérico não têm representação no formato e são só contadas.
+     */
+    public void adicionar(String[] linha) throws IOException {
+        int registro;
+        int periodo;
+        long centavos;
+        try {
+            registro = Integer.parseInt(linha[1].trim());
+            periodo = periodo(linha[2], linha[3]);
+            centavos = Centavos.parse(linha[4]);
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            // Trimestre vazio cai no charAt(0)
+            descartadas++;
+            return;
+        }
+        adicionar(linha[0], registro, periodo, centavos);
+    }
+
+    /**
+     * @param periodo Ano * 10 + trimestre (ex: 20253)
+     */
+    public void adicionar(String razaoSocial, int registroAns, int periodo, long centavos) throws IOException {
+        Integer codigo = dicionario.get(razaoSocial);
+        if (codigo == null) {
+            codigo = razoes.size();
+            dicionario.put(razaoSocial, codigo);
+            razoes.add(razaoSocial);
+        }
+
+        valores[linhasNoBloco] = centavos;
+        registros[linhasNoBloco] = registroAns;
+        periodos[linhasNoBloco] = periodo;
+        codigosRazao[linhasNoBloco] = codigo;
+        if (++linhasNoBloco == LINHAS_POR_BLOCO) {
+            gravarBloco();
+        }
+    }
+
+    /**
+     * Empacota trimestre e ano num int (ex: "3T", "2025" -> 20253).
+     * @throws NumberFormatException se o ano não for numérico ou o trimestre não começar com 1 a 4
+     */
+    public static int periodo(String trimestre, String ano) {
+        int t = Character.digit(trimestre.trim().charAt(0), 10);
+        if (t < 1 || t > 4) throw new NumberFormatException("Trimestre inválido: " + trimestre);
+        return Integer.parseInt(ano.trim()) * 10 + t;
+    }
+
+    public long getTotalLinhas() {
+        return totalLinhas + linhasNoBloco;
+    }
+
+    public long getDescartadas() {
+        return descartadas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            gravarBloco();
+            gravarRodape();
+        } finally {
+            canal.close();
+        }
+    }
+
+    private void gravarBloco() throws IOException {
+        int n = linhasNoBloco;
+        if (n == 0) return;
+
+        int menorRegistro = Integer.MAX_VALUE, maiorRegistro = Integer.MIN_VALUE;
+        int menorPeriodo = Integer.MAX_VALUE, maiorPeriodo = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            menorRegistro = Math.min(menorRegistro, registros[i]);
+            maiorRegistro = Math.max(maiorRegistro, registros[i]);
+            menorPeriodo = Math.min(menorPeriodo, periodos[i]);
+            maiorPeriodo = Math.max(maiorPeriodo, periodos[i]);
+        }
+        indice.add(new long[]{posicao, n, menorRegistro, maiorRegistro, menorPeriodo, maiorPeriodo});
+
+        buffer.asLongBuffer().put(valores, 0, n);
+        buffer.position(n * Long.BYTES);
+        buffer.asIntBuffer().put(registros, 0, n).put(periodos, 0, n).put(codigosRazao, 0, n);
+        buffer.position(n * BYTES_POR_LINHA);
+        // Mantém o próximo bloco alinhado em 8 bytes para as views de long na leitura
+        while (buffer.position() % Long.BYTES != 0) buffer.put((byte) 0);
+        escrever();
+
+        totalLinhas += n;
+        linhasNoBloco = 0;
+    }
+
+    private void gravarRodape() throws IOException {
+        long inicioRodape = posicao;
+
+        ByteBuffer rodape = ByteBuffer.allocate(Integer.BYTES + indice.size() * BYTES_INDICE_BLOCO)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        rodape.putInt(indice.size());
+        for (long[] bloco : indice) {
+            rodape.putLong(bloco[0]);
+            for (int i = 1; i < bloco.length; i++) rodape.putInt((int) bloco[i]);
+        }
+        escrever(rodape.flip());
+
+        ByteBuffer entrada = ByteBuffer.allocate(Short.BYTES + Short.MAX_VALUE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer tamanho = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        escrever(tamanho.putInt(razoes.size()).flip());
+        for (String razao : razoes) {
+            byte[] bytes = razao.getBytes(StandardCharsets.UTF_8);
+            int len = Math.min(bytes.length, Short.MAX_VALUE);
+            entrada.clear();
+            entrada.putShort((short) len).put(bytes, 0, len);
+            escrever(entrada.flip());
+        }
+
+        ByteBuffer fim = ByteBuffer.allocate(2 * Long.BYTES + ASSINATURA.length).order(ByteOrder.LITTLE_ENDIAN);
+        fim.putLong(totalLinhas).putLong(inicioRodape).put(ASSINATURA);
+        escrever(fim.flip());
+    }
+
+    private void escrever() throws IOException {
+        buffer.flip();
+        escrever(buffer);
+        buffer.clear();
+    }
+
+    private void escrever(ByteBuffer dados) throws IOException {
+        while (dados.hasRemaining()) {
+            posicao += canal.write(dados);
+        }
+    }
+}
@@ -4,125 +4,851 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.BOMInputStream; // Para remover caracteres estranhos do início do arquivo
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.TeeOutputStream;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets; // Usei ISO_8859_1 pois arquivos gov br geralmente são ANSI
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * Responsável pelo processamento, transformação e consolidação dos dados (ETL).
  * Lê múltiplos arquivos CSV, filtra as linhas relevantes e gera um arquivo unificado.
+ * Os arquivos (e trechos de arquivos grandes) são processados em paralelo num ForkJoinPool;
+ * os resultados são gravados sempre na ordem arquivo -> trecho, então a saída é a mesma
+ * independente do número de threads.
  */
 
 public class CsvProcessor {
 
     private static final String DOWNLOAD_DIR = "downloads";
     private static final String ARQUIVO_SAIDA = "consolidado.csv";
+    private static final String ARQUIVO_COLUNAR = "consolidado.col";
 
     // Termos que indicam que a linha é uma Despesa com Evento/Sinistro
     private static final String[] TERMOS_DESPESA = {"EVENTOS", "SINISTROS"};
 
+    // Prefixos de CD_CONTA_CONTABIL que identificam a despesa (-Dans.filtro.contas=41,...); vazio = filtro pela descrição
+    private static final List<String> PREFIXOS_CONTA = Arrays.stream(System.getProperty("ans.filtro.contas", "").split(","))
+            .map(String::trim).filter(p -> !p.isEmpty()).toList();
+
+    // Arquivo com regras de saídas extras, avaliadas na mesma passada (-Dans.filtro.regras, ver FiltroDespesas.lerRegras)
+    private static final String ARQUIVO_REGRAS = System.getProperty("ans.filtro.regras");
+
+    // Bit da regra do consolidado na máscara de saídas (as regras extras vêm depois)
+    private static final long SAIDA_CONSOLIDADO = 1L;
+
+    // Identifica o período no nome do arquivo/entrada (ex: "3T2025.csv" ou "pasta/3T2025.csv")
+    private static final Pattern PADRAO_PERIODO = Pattern.compile("(\\d)T(\\d{4})");
+
+    // Tamanho alvo de cada trecho de um arquivo grande (o corte é ajustado para o fim da linha)
+    private static final long TAMANHO_TRECHO = 64L * 1024 * 1024;
+
+    // Linhas de despesa por lote entregue a um {@link DestinoLotes}
+    private static final int TAMANHO_LOTE = 4096;
+
+    // Formato de leitura dos CSVs da ANS (separador ';', cabeçalho sem distinção de maiúsculas)
+    private static final CSVFormat FORMATO_ANS = CSVFormat.DEFAULT
+            .withDelimiter(';') // O separador oficial da ANS costuma ser ponto e vírgula
+            .withIgnoreHeaderCase()
+            .withTrim();
+
+    // Formato do consolidado: delimitador ';' (Ponto e vírgula é melhor para Excel BR)
+    private static final CSVFormat FORMATO_SAIDA = CSVFormat.DEFAULT.withDelimiter(';');
+
     /**
-     * Orquestra a leitura de todos os arquivos baixados e a escrita no arquivo final.
-     * Utiliza buffers para garantir performance mesmo com grandes volumes de dados.
+     * Pedaço de um arquivo CSV delimitado por bytes, sempre começando e terminando em fim de linha.
+     * Carrega o esquema do arquivo, já que só o primeiro trecho enxerga o cabeçalho.
+     */
+    private record Trecho(String caminho, EsquemaAns esquema, FiltroDespesas filtro, long inicio, long fim) {
+    }
+
+    /**
+     * Recebe lotes de linhas filtradas com suas saídas de destino (uso interno; ver {@link DestinoLotes}).
+     */
+    @FunctionalInterface
+    private interface DestinoLinhas {
+        void receber(List<FiltroDespesas.Linha> lote) throws IOException;
+    }
+
+    /**
+     * Recebe as linhas de despesa já filtradas (no formato do consolidado), em lotes de até
+     * {@value #TAMANHO_LOTE}, à medida que cada ZIP é lido. Chamado pelas threads do pool, uma por ZIP
+     * ao mesmo tempo: cada lote chega inteiro e na ordem do seu ZIP, mas lotes de ZIPs diferentes se intercalam.
+     * O lote passa a ser de quem recebe.
+     */
+    @FunctionalInterface
+    public interface DestinoLotes {
+        void receber(List<String[]> lote) throws IOException;
+    }
+
+    // Se verdadeiro, grava também o consolidado.col (formato colunar binário) na mesma passada
+    private final boolean gerarColunar;
+
+    // ZIP que recebe o consolidado.csv enquanto ele é gravado (null = não compacta)
+    private final ParallelZipWriter zipSaida;
+
+    // Regras das saídas extras da execução atual (só nas consolidações completas; vazio nos outros modos)
+    private List<FiltroDespesas.Regra> regrasExtras = List.of();
+
+    // Linhas e bytes de CSV lidos pelas tarefas deste processador, para quem cronometra a etapa "parse"
+    private final LongAdder linhasLidas = new LongAdder();
+    private final LongAdder bytesLidos = new LongAdder();
+
+    public CsvProcessor() {
+        this(false);
+    }
+
+    /**
+     * @param gerarColunar Grava também o consolidado.col (ver {@link ColumnarWriter}).
+     */
+    public CsvProcessor(boolean gerarColunar) {
+        this(gerarColunar, null);
+    }
+
+    /**
+     * @param gerarColunar Grava também o consolidado.col (ver {@link ColumnarWriter}).
+     * @param zipSaida Se não for null, o consolidado.csv é compactado neste ZIP na mesma passada em que é gravado,
+     *                 sem ser lido de novo do disco.
+     */
+    public CsvProcessor(boolean gerarColunar, ParallelZipWriter zipSaida) {
+        this.gerarColunar = gerarColunar;
+        this.zipSaida = zipSaida;
+    }
+
+    /**
+     * Orquestra a leitura de todos os arquivos baixados e a escrita no arquivo final,
+     * usando todos os núcleos disponíveis.
      *  @param arquivosParaProcessar Lista com o caminho absoluto dos arquivos CSV.
      */
 
     public void processarArquivos(List<String> arquivosParaProcessar) {
-        System.out.println("\n--- Iniciando Processamento e Consolidação ---");
+        processarArquivos(arquivosParaProcessar, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Consolida os arquivos em paralelo.
+     * Arquivos grandes são divididos em trechos de ~64MB alinhados em quebra de linha; cada trecho
+     * vira uma tarefa que mapeia o trecho em memória e aplica o filtro de despesas direto nos bytes.
+     * Utiliza buffers para garantir performance mesmo com grandes volumes de dados.
+     * Com -Dans.filtro.regras, as saídas extras são gravadas na mesma leitura (ver {@link SaidasExtras}).
+     * @param arquivosParaProcessar Lista com o caminho absoluto dos arquivos CSV.
+     * @param paralelismo Número de threads do pool (1 = processamento sequencial).
+     */
+    public void processarArquivos(List<String> arquivosParaProcessar, int paralelismo) {
+        System.out.println("\n--- Iniciando Processamento e Consolidação (" + paralelismo + " threads) ---");
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, paralelismo));
 
-        // Configura o CSVPrinter com cabeçalho personalizado e delimitador ';' (padrão Excel Brasil)
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(ARQUIVO_SAIDA));
-             CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
-                     .withHeader("RazaoSocial", "CNPJ", "Trimestre", "Ano", "ValorDespesas") // Cabeçalho do arquivo final
-                     .withDelimiter(';'))) { // Ponto e vírgula é melhor para Excel BR
+        try (BufferedWriter writer = abrirSaida();
+             CSVPrinter csvPrinter = criarPrinter(writer);
+             ColumnarWriter colunar = abrirColunar();
+             SaidasExtras extras = abrirSaidasExtras()) {
 
+            // Dispara todas as tarefas primeiro, depois junta na ordem em que foram criadas
+            List<ForkJoinTask<List<FiltroDespesas.Linha>>> tarefas = new ArrayList<>();
             for (String caminhoArquivo : arquivosParaProcessar) {
-                processarUmArquivo(caminhoArquivo, csvPrinter);
+                System.out.println("Processando: " + caminhoArquivo);
+                try {
+                    for (Trecho trecho : dividirEmTrechos(caminhoArquivo)) {
+                        tarefas.add(pool.submit(() -> processarTrecho(trecho)));
+                    }
+                } catch (IOException e) {
+                    System.err.println("Erro ao ler arquivo " + caminhoArquivo + ": " + e.getMessage());
+                }
             }
-            
+
+            gravarResultados(tarefas, csvPrinter, colunar, extras);
+
             System.out.println("  Consolidação finalizada! Arquivo criado: " + ARQUIVO_SAIDA);
 
         } catch (IOException e) {
             System.err.println("Erro ao processar CSVs: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+            regrasExtras = List.of();
+        }
+    }
+
+    /**
+     * Consolida os CSVs lendo direto de dentro dos arquivos ZIP, sem extraí-los para o disco.
+     * Cada {@link ZipEntry} .csv é entregue ao parser a partir do próprio {@link ZipInputStream};
+     * trimestre e ano são tirados do nome da entrada. Como um ZIP não permite acesso aleatório,
+     * o paralelismo aqui é de um ZIP por tarefa. As saídas extras (-Dans.filtro.regras) também valem aqui.
+     * @param zipsParaProcessar Lista com o caminho dos arquivos .zip baixados.
+     */
+    public void processarZips(List<String> zipsParaProcessar) {
+        System.out.println("\n--- Iniciando Processamento e Consolidação (direto dos ZIPs) ---");
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        try (BufferedWriter writer = abrirSaida();
+             CSVPrinter csvPrinter = criarPrinter(writer);
+             ColumnarWriter colunar = abrirColunar();
+             SaidasExtras extras = abrirSaidasExtras()) {
+
+            List<ForkJoinTask<List<FiltroDespesas.Linha>>> tarefas = new ArrayList<>();
+            for (String caminhoZip : zipsParaProcessar) {
+                tarefas.add(pool.submit(() -> {
+                    List<FiltroDespesas.Linha> saida = new ArrayList<>();
+                    try {
+                        lerZip(caminhoZip, saida::addAll);
+                    } catch (IOException e) {
+                        System.err.println("Erro ao ler arquivo " + caminhoZip + ": " + e.getMessage());
+                    }
+                    return saida;
+                }));
+            }
+
+            gravarResultados(tarefas, csvPrinter, colunar, extras);
+
+            System.out.println("  Consolidação finalizada! Arquivo criado: " + ARQUIVO_SAIDA);
+
+        } catch (IOException e) {
+            System.err.println("Erro ao processar CSVs: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+            regrasExtras = List.of();
+        }
+    }
+
+    /**
+     * Modo fundido: lê os ZIPs como {@link #processarZips(List)}, mas entrega as linhas de despesa ao
+     * {@code destino} em lotes, enquanto cada entrada ainda está sendo lida, em vez de gravar o consolidado
+     * para a próxima etapa reler. Se o destino demorar (ex: uma fila cheia), a leitura daquele ZIP espera.
+     * Com {@code gravarConsolidado}, cada tarefa grava também os seus lotes num parcial (antes de entregá-los)
+     * e, no fim, os parciais são emendados no consolidado.csv (e no ZIP/colunar, como em {@link #juntarParciais}),
+     * idêntico ao de {@link #processarZips(List)}; serve só de auditoria.
+     * Qualquer falha (ZIP corrompido, parcial, destino) interrompe a execução com a exceção, depois que as
+     * demais tarefas terminam: o destino nunca recebe um conjunto incompleto como se estivesse completo.
+     * @param zipsParaProcessar Lista com o caminho dos arquivos .zip baixados.
+     * @param gravarConsolidado Grava também o consolidado.csv.
+     */
+    public void transmitirZips(List<String> zipsParaProcessar, boolean gravarConsolidado, DestinoLotes destino)
+            throws IOException {
+        System.out.println("\n--- Iniciando Processamento (modo fundido, direto dos ZIPs) ---");
+
+        Path pastaParciais = gravarConsolidado ? Files.createTempDirectory(Paths.get(DOWNLOAD_DIR), "fundido") : null;
+        List<Path> parciais = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<ForkJoinTask<?>> tarefas = new ArrayList<>();
+            for (String caminhoZip : zipsParaProcessar) {
+                if (pastaParciais == null) {
+                    tarefas.add(pool.submit(() -> {
+                        try {
+                            lerZip(caminhoZip, somenteConsolidado(destino));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                    continue;
+                }
+                Path parcial = pastaParciais.resolve(parciais.size() + ".csv");
+                parciais.add(parcial);
+                tarefas.add(pool.submit(() -> {
+                    try (BufferedWriter writer = Files.newBufferedWriter(parcial);
+                         CSVPrinter csvPrinter = new CSVPrinter(writer, FORMATO_SAIDA)) {
+                        lerZip(caminhoZip, somenteConsolidado(lote -> {
+                            for (String[] linha : lote) {
+                                csvPrinter.printRecord((Object[]) linha);
+                            }
+                            destino.receber(lote);
+                        }));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            // Espera todas as tarefas (as que ainda rodam continuam entregando ao destino) e repassa a primeira falha
+            RuntimeException falha = null;
+            for (ForkJoinTask<?> tarefa : tarefas) {
+                try {
+                    tarefa.join();
+                } catch (RuntimeException e) {
+                    if (falha == null) falha = e;
+                }
+            }
+            if (falha != null) {
+                IOException io = falhaDeLeitura(falha);
+                if (io != null) throw io;
+                throw falha;
+            }
+            if (pastaParciais != null) {
+                juntarParciais(parciais);
+            }
+        } finally {
+            pool.shutdown();
+            if (pastaParciais != null) {
+                FileUtils.deleteQuietly(pastaParciais.toFile());
+            }
+        }
+    }
+
+    /**
+     * A {@link IOException} de uma tarefa, embrulhada em {@link UncheckedIOException} dentro dela
+     * (o join pode devolver uma cópia da exceção, então a cadeia de causas é percorrida), ou null.
+     */
+    private static IOException falhaDeLeitura(RuntimeException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof UncheckedIOException u) return u.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * Gera o consolidado parcial de um único trimestre (mesmo formato do consolidado.csv, sem cabeçalho).
+     * Usado nas execuções incrementais: cada trimestre tem seu parcial, e só os alterados são refeitos.
+     * Se a leitura do ZIP falhar em qualquer ponto, lança a exceção e não toca no {@code destino}:
+     * um parcial truncado nunca é gravado (nem, portanto, registrado no manifesto).
+     * @param caminhoZip ZIP do trimestre.
+     * @param destino Arquivo parcial a ser (re)escrito.
+     */
+    public void gerarParcial(String caminhoZip, Path destino) throws IOException {
+        Files.createDirectories(destino.toAbsolutePath().getParent());
+        List<String[]> linhas = processarUmZip(caminhoZip);
+
+        Path temporario = Paths.get(destino + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporario);
+                 CSVPrinter csvPrinter = new CSVPrinter(writer, FORMATO_SAIDA)) {
+                for (String[] linha : linhas) {
+                    csvPrinter.printRecord((Object[]) linha);
+                }
+            }
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    /**
+     * Identifica a configuração de filtro desta execução: os prefixos de conta (-Dans.filtro.contas) e o
+     * SHA-256 do arquivo de regras (-Dans.filtro.regras). O manifesto guarda isso junto de cada parcial,
+     * para que um parcial gerado com outro filtro não seja reaproveitado.
+     */
+    public static String assinaturaFiltro() throws IOException {
+        String regras = ARQUIVO_REGRAS == null ? "" : ManifestoIncremental.sha256(Paths.get(ARQUIVO_REGRAS));
+        return "contas=" + String.join(",", PREFIXOS_CONTA) + ";regras=" + regras;
+    }
+
+    /**
+     * Monta o consolidado.csv juntando os parciais na ordem informada (cabeçalho + bytes de cada parcial).
+     * O resultado é idêntico ao de processar todos os ZIPs de uma vez.
+     */
+    public void juntarParciais(List<Path> parciais) throws IOException {
+        Path saida = Paths.get(ARQUIVO_SAIDA);
+        try (BufferedWriter writer = Files.newBufferedWriter(saida);
+             CSVPrinter csvPrinter = criarPrinter(writer)) {
+            csvPrinter.flush();
+        }
+        try (OutputStream out = Files.newOutputStream(saida, StandardOpenOption.APPEND)) {
+            for (Path parcial : parciais) {
+                Files.copy(parcial, out);
+            }
+        }
+        System.out.println("  Consolidação finalizada! Arquivo criado: " + ARQUIVO_SAIDA + " (" + parciais.size() + " trimestres)");
+        if (zipSaida != null) {
+            // O consolidado foi emendado byte a byte, então é compactado a partir do arquivo
+            zipSaida.adicionarArquivo(saida);
+        }
+
+        if (gerarColunar) {
+            // Os parciais são CSV: o colunar é refeito a partir do consolidado emendado
+            try (Reader reader = Files.newBufferedReader(saida);
+                 CSVParser csvParser = new CSVParser(reader, FORMATO_SAIDA.withFirstRecordAsHeader());
+                 ColumnarWriter colunar = abrirColunar()) {
+                for (CSVRecord record : csvParser) {
+                    colunar.adicionar(record.values());
+                }
+                informarColunar(colunar);
+            }
+        }
+    }
+
+    /**
+     * Calcula os indicadores do parse a partir dos contadores (chame depois da consolidação):
+     * taxa de acerto do filtro = linhas de despesa / linhas lidas.
+     */
+    public static void registrarIndicadores() {
+        long linhas = Metricas.valor("parse.linhas");
+        long despesas = Metricas.valor("parse.despesas");
+        Metricas.definir("filtro.taxaAcerto", Metricas.razao(despesas, linhas));
+        System.out.println("  Filtro: " + despesas + " despesas em " + linhas + " linhas lidas");
+    }
+
+    /**
+     * Linhas de CSV lidas até agora por este processador (todas as consolidações feitas com ele).
+     */
+    public long getLinhasLidas() {
+        return linhasLidas.sum();
+    }
+
+    /**
+     * Bytes de CSV lidos até agora por este processador (nos ZIPs, o tamanho descompactado das entradas).
+     */
+    public long getBytesLidos() {
+        return bytesLidos.sum();
+    }
+
+    /**
+     * Publica nas métricas o resultado de uma tarefa (uma vez por trecho ou entrada, nunca por linha).
+     */
+    private void registrarLinhas(long lidas, long despesas, long bytes) {
+        Metricas.contar("parse.linhas", lidas);
+        Metricas.contar("parse.despesas", despesas);
+        linhasLidas.add(lidas);
+        bytesLidos.add(bytes);
+    }
+
+    /**
+     * Abre o consolidado.csv para escrita (UTF-8). Com ZIP de saída, cada byte gravado no arquivo
+     * também vai para a entrada do ZIP.
+     */
+    private BufferedWriter abrirSaida() throws IOException {
+        OutputStream arquivo = Files.newOutputStream(Paths.get(ARQUIVO_SAIDA));
+        OutputStream destino = zipSaida == null ? arquivo : new TeeOutputStream(arquivo, zipSaida.novaEntrada(ARQUIVO_SAIDA));
+        return new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Abre o gravador colunar, ou devolve null se a saída colunar não foi pedida
+     * (recurso nulo é ignorado pelo try-with-resources).
+     */
+    private ColumnarWriter abrirColunar() throws IOException {
+        return gerarColunar ? new ColumnarWriter(Paths.get(ARQUIVO_COLUNAR)) : null;
+    }
+
+    private void informarColunar(ColumnarWriter colunar) {
+        System.out.println("  Arquivo colunar: " + ARQUIVO_COLUNAR + " (" + colunar.getTotalLinhas() + " linhas"
+                + (colunar.getDescartadas() > 0 ? ", " + colunar.getDescartadas() + " descartadas" : "") + ")");
+    }
+
+    /**
+     * Configura o CSVPrinter com cabeçalho personalizado e delimitador ';' (padrão Excel Brasil)
+     */
+    private CSVPrinter criarPrinter(Writer writer) throws IOException {
+        return new CSVPrinter(writer, FORMATO_SAIDA
+                .withHeader("RazaoSocial", "CNPJ", "Trimestre", "Ano", "ValorDespesas")); // Cabeçalho do arquivo final
+    }
+
+    /**
+     * Aguarda cada tarefa na ordem de criação e grava suas linhas no consolidado e nas saídas extras indicadas
+     * na máscara de cada linha. Só esta thread escreve nos CSVPrinters (e no gravador colunar), então eles não
+     * precisam ser sincronizados.
+     * @param colunar Gravador colunar, ou null se a saída colunar não foi pedida.
+     */
+    private void gravarResultados(List<ForkJoinTask<List<FiltroDespesas.Linha>>> tarefas, CSVPrinter csvPrinter,
+                                  ColumnarWriter colunar, SaidasExtras extras) throws IOException {
+        for (ForkJoinTask<List<FiltroDespesas.Linha>> tarefa : tarefas) {
+            for (FiltroDespesas.Linha linha : tarefa.join()) {
+                if ((linha.saidas() & SAIDA_CONSOLIDADO) != 0) {
+                    csvPrinter.printRecord((Object[]) linha.campos());
+                    if (colunar != null) {
+                        colunar.adicionar(linha.campos());
+                    }
+                }
+                extras.gravar(linha);
+            }
+        }
+        if (colunar != null) {
+            informarColunar(colunar);
+        }
+        extras.informar();
+    }
+
+    /**
+     * Lê as regras de -Dans.filtro.regras (se houver) e abre um CSV para cada saída extra.
+     */
+    private SaidasExtras abrirSaidasExtras() throws IOException {
+        regrasExtras = ARQUIVO_REGRAS == null ? List.of() : FiltroDespesas.lerRegras(Paths.get(ARQUIVO_REGRAS));
+        if (regrasExtras.size() >= FiltroDespesas.MAX_REGRAS) {
+            throw new IOException("No máximo " + (FiltroDespesas.MAX_REGRAS - 1) + " saídas extras: " + regrasExtras.size());
+        }
+        SaidasExtras extras = new SaidasExtras();
+        try {
+            for (FiltroDespesas.Regra regra : regrasExtras) {
+                extras.abrir(regra.nome());
+            }
+        } catch (IOException e) {
+            extras.close();
+            throw e;
+        }
+        return extras;
+    }
+
+    /**
+     * Regras do arquivo: a do consolidado (bit 0) e as extras. A do consolidado filtra pelo prefixo da conta
+     * (-Dans.filtro.contas) quando o arquivo tem CD_CONTA_CONTABIL, senão pelos termos da descrição.
+     * Compilado uma vez por arquivo e compartilhado pelos seus trechos.
+     */
+    private FiltroDespesas filtroPara(EsquemaAns esquema) {
+        List<FiltroDespesas.Regra> regras = new ArrayList<>();
+        regras.add(!PREFIXOS_CONTA.isEmpty() && esquema.possui(EsquemaAns.Coluna.CD_CONTA_CONTABIL)
+                ? FiltroDespesas.Regra.porContas("consolidado", PREFIXOS_CONTA)
+                : FiltroDespesas.Regra.porTermos("consolidado", List.of(TERMOS_DESPESA)));
+        regras.addAll(regrasExtras);
+        return FiltroDespesas.compilar(regras);
+    }
+
+    /**
+     * Adapta um {@link DestinoLotes} para receber só as linhas do consolidado, sem a máscara de saídas.
+     */
+    private static DestinoLinhas somenteConsolidado(DestinoLotes destino) {
+        return lote -> {
+            List<String[]> linhas = new ArrayList<>(lote.size());
+            for (FiltroDespesas.Linha linha : lote) {
+                if ((linha.saidas() & SAIDA_CONSOLIDADO) != 0) linhas.add(linha.campos());
+            }
+            if (!linhas.isEmpty()) destino.receber(linhas);
+        };
+    }
+
+    /**
+     * CSVs das saídas extras (consolidado_&lt;nome&gt;.csv, mesmo formato do consolidado), indexados pelo bit
+     * da regra menos um. Cada linha vai para todas as saídas cujas regras aprovou.
+     */
+    private final class SaidasExtras implements Closeable {
+        private final List<CSVPrinter> printers = new ArrayList<>();
+        private final List<String> arquivos = new ArrayList<>();
+        private final List<Long> linhas = new ArrayList<>();
+
+        void abrir(String nome) throws IOException {
+            String arquivo = "consolidado_" + nome + ".csv";
+            printers.add(criarPrinter(Files.newBufferedWriter(Paths.get(arquivo), StandardCharsets.UTF_8)));
+            arquivos.add(arquivo);
+            linhas.add(0L);
+        }
+
+        void gravar(FiltroDespesas.Linha linha) throws IOException {
+            for (long resto = linha.saidas() >>> 1; resto != 0; resto &= resto - 1) {
+                int i = Long.numberOfTrailingZeros(resto);
+                printers.get(i).printRecord((Object[]) linha.campos());
+                linhas.set(i, linhas.get(i) + 1);
+            }
+        }
+
+        void informar() {
+            for (int i = 0; i < arquivos.size(); i++) {
+                Metricas.contar("filtro.saida." + regrasExtras.get(i).nome(), linhas.get(i));
+                System.out.println("  Saída extra: " + arquivos.get(i) + " (" + linhas.get(i) + " linhas)");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException erro = null;
+            for (CSVPrinter printer : printers) {
+                try {
+                    printer.close();
+                } catch (IOException e) {
+                    if (erro == null) erro = e;
+                }
+            }
+            if (erro != null) throw erro;
         }
     }
 
     /**
-     * Processa um arquivo CSV individualmente.
-     * Realiza o parsing, extrai metadados do nome do arquivo e aplica filtros.
+     * Lê o cabeçalho do arquivo, resolve o esquema de colunas e calcula os trechos em que ele será dividido.
+     * Os cortes são feitos por byte e avançados até o próximo '\n', o que é seguro porque
+     * os arquivos da ANS são ISO-8859-1 (1 byte por caractere) e não têm quebras de linha dentro de campos.
      */
-    private void processarUmArquivo(String caminhoArquivo, CSVPrinter csvPrinter) {
-        System.out.println("Processando: " + caminhoArquivo);
-        
-        // Extrai Ano e Trimestre do nome do arquivo (ex: .../3T2025.csv)
-        // Assume formato estrito "XTYYYY.csv" onde X=Trimestre e Y=Ano
-        String nomeArquivo = new File(caminhoArquivo).getName(); // 3T2025.csv
-        String ano = nomeArquivo.substring(2, 6);      // ex: 2025
-        String trimestre = nomeArquivo.substring(0, 2); // ex: 3T
+    private List<Trecho> dividirEmTrechos(String caminhoArquivo) throws IOException {
+        String[] cabecalho = lerCabecalho(caminhoArquivo);
+        if (cabecalho == null) {
+            System.err.println("  Arquivo vazio, ignorado: " + caminhoArquivo);
+            Metricas.contar("parse.arquivosVazios", 1);
+            return List.of();
+        }
+        EsquemaAns esquema = EsquemaAns.resolver(cabecalho);
+        avisarEsquema(caminhoArquivo, esquema);
+        FiltroDespesas filtro = filtroPara(esquema);
+        List<Trecho> trechos = new ArrayList<>();
+
+        try (FileChannel canal = FileChannel.open(Paths.get(caminhoArquivo), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            // Pula a linha de cabeçalho; sem cabeçalho, só o BOM (se houver)
+            long inicio = esquema.temCabecalho() ? proximoFimDeLinha(canal, 0) : tamanhoBom(canal);
+
+            while (inicio < tamanho) {
+                long fim = inicio + TAMANHO_TRECHO >= tamanho
+                        ? tamanho
+                        : proximoFimDeLinha(canal, inicio + TAMANHO_TRECHO);
+                trechos.add(new Trecho(caminhoArquivo, esquema, filtro, inicio, fim));
+                inicio = fim;
+            }
+        }
+        return trechos;
+    }
+
+    /**
+     * Lê apenas a primeira linha do arquivo e devolve os nomes das colunas (ou os campos, se não houver cabeçalho).
+     * @return null se o arquivo não tiver nenhuma linha
+     */
+    private String[] lerCabecalho(String caminhoArquivo) throws IOException {
+        try (Reader reader = new InputStreamReader(
+                     BOMInputStream.builder().setPath(Paths.get(caminhoArquivo)).get(), StandardCharsets.ISO_8859_1);
+             CSVParser csvParser = new CSVParser(reader, FORMATO_ANS)) {
+            Iterator<CSVRecord> registros = csvParser.iterator();
+            if (!registros.hasNext()) return null;
+            return registros.next().toList().toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Tamanho do BOM UTF-8 no início do arquivo (0 ou 3 bytes).
+     */
+    private long tamanhoBom(FileChannel canal) throws IOException {
+        ByteBuffer inicio = ByteBuffer.allocate(3);
+        canal.read(inicio, 0);
+        return inicio.position() == 3 && (inicio.get(0) & 0xFF) == 0xEF && (inicio.get(1) & 0xFF) == 0xBB
+                && (inicio.get(2) & 0xFF) == 0xBF ? 3 : 0;
+    }
+
+    /**
+     * Informa (uma vez por arquivo) colunas que não foram encontradas e layouts alternativos,
+     * em vez de deixar as linhas saírem com campos vazios sem aviso.
+     */
+    private void avisarEsquema(String nomeOrigem, EsquemaAns esquema) {
+        if (!esquema.temCabecalho()) {
+            System.out.println("  Arquivo sem cabeçalho, usando o layout oficial: " + nomeOrigem);
+        }
+        if (!esquema.colunasAusentes().isEmpty()) {
+            System.err.println("  Aviso: colunas não encontradas em " + nomeOrigem + ": " + esquema.colunasAusentes());
+        }
+        if (!PREFIXOS_CONTA.isEmpty() && !esquema.possui(EsquemaAns.Coluna.CD_CONTA_CONTABIL)) {
+            System.err.println("  Aviso: " + nomeOrigem + " sem CD_CONTA_CONTABIL, filtrando pela descrição");
+        }
+        if (!esquema.possui(EsquemaAns.Coluna.CD_CONTA_CONTABIL)
+                && regrasExtras.stream().anyMatch(regra -> !regra.contas().isEmpty())) {
+            System.err.println("  Aviso: " + nomeOrigem + " sem CD_CONTA_CONTABIL, regras extras por conta não casam");
+        }
+    }
+
+    /**
+     * Devolve a posição logo após o primeiro '\n' a partir de {@code posicao} (ou o fim do arquivo).
+     */
+    private long proximoFimDeLinha(FileChannel canal, long posicao) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long atual = posicao;
+        while (canal.read(buffer, atual) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                atual++;
+                if (buffer.get() == '\n') {
+                    return atual;
+                }
+            }
+            buffer.clear();
+        }
+        return canal.size();
+    }
+
+    /**
+     * Processa um trecho de arquivo. Executado pelas threads do pool.
+     * O trecho é mapeado em memória e varrido byte a byte pelo {@link AnsCsvScanner},
+     * sem decodificar as linhas que não passam no filtro.
+     */
+    private List<FiltroDespesas.Linha> processarTrecho(Trecho trecho) {
+        List<FiltroDespesas.Linha> saida = new ArrayList<>();
+        String[] periodo = extrairPeriodo(trecho.caminho());
+        boolean periodoPelaData = !periodoNoNome(trecho.caminho()) && trecho.esquema().possui(EsquemaAns.Coluna.DATA);
+
+        try (FileChannel canal = FileChannel.open(Paths.get(trecho.caminho()), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY,
+                    trecho.inicio(), trecho.fim() - trecho.inicio());
+            // O trecho não tem linha de cabeçalho, então usamos o esquema do arquivo
+            long lidas = new AnsCsvScanner(trecho.esquema(), trecho.filtro()).varrer(buffer, periodo, periodoPelaData, saida);
+            registrarLinhas(lidas, contarConsolidado(saida), trecho.fim() - trecho.inicio());
+        } catch (IOException e) {
+            System.err.println("Erro ao ler arquivo " + trecho.caminho() + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+        return saida;
+    }
+
+    /**
+     * Percorre as entradas de um ZIP e processa cada CSV encontrado em streaming (só as linhas do consolidado).
+     * Uma falha de leitura é repassada: o resultado nunca é um ZIP lido pela metade.
+     */
+    private List<String[]> processarUmZip(String caminhoZip) throws IOException {
+        List<String[]> saida = new ArrayList<>();
+        lerZip(caminhoZip, somenteConsolidado(saida::addAll));
+        return saida;
+    }
+
+    /**
+     * Lê as entradas .csv de um ZIP em streaming e entrega as linhas de despesa ao destino, lote a lote.
+     * Erros de leitura ou do destino são repassados a quem chamou (cada modo decide se pula o ZIP ou falha).
+     */
+    private void lerZip(String caminhoZip, DestinoLinhas destino) throws IOException {
+        System.out.println("Processando: " + caminhoZip);
+
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(caminhoZip)))) {
+            ZipEntry entrada;
+            while ((entrada = zis.getNextEntry()) != null) {
+                if (entrada.isDirectory() || !entrada.getName().toLowerCase().endsWith(".csv")) {
+                    continue;
+                }
+                System.out.println("  Entrada: " + entrada.getName());
+                // CloseShield evita que o parser feche o ZipInputStream ao terminar a entrada
+                filtrarStream(CloseShieldInputStream.wrap(zis), entrada.getName(), destino);
+                // Lida a entrada até o fim, o ZipInputStream já conhece o tamanho descompactado
+                bytesLidos.add(Math.max(0, entrada.getSize()));
+            }
+        } catch (UncheckedIOException e) {
+            // O iterador do commons-csv embrulha as falhas de leitura do stream (ex: entrada truncada)
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Faz o parsing de um CSV da ANS a partir de um stream qualquer (arquivo, trecho ou entrada de ZIP),
+     * aplicando o filtro e entregando as linhas aprovadas ao {@code destino} em lotes de {@value #TAMANHO_LOTE}.
+     * A primeira linha define o {@link EsquemaAns}; as demais são lidas por índice.
+     * @param nomeOrigem Nome do arquivo/entrada, usado para descobrir trimestre e ano.
+     */
+    private void filtrarStream(InputStream is, String nomeOrigem, DestinoLinhas destino) throws IOException {
+        // Extrai Ano e Trimestre do nome (ex: .../3T2025.csv); sem o padrão no nome, vale a coluna DATA de cada linha
+        // Este caminho (commons-csv) atende os streams de ZIP; arquivos em disco usam o AnsCsvScanner
+        String[] periodo = extrairPeriodo(nomeOrigem);
+        boolean periodoNoNome = periodoNoNome(nomeOrigem);
 
         // Configuração para ler o CSV (Trata encoding Windows/Latin1 comum no Brasil)
-        try (InputStream is = new FileInputStream(caminhoArquivo);
-             // BOMInputStream remove caracteres invisíveis que atrapalham a leitura da 1ª coluna
-             Reader reader = new InputStreamReader(new BOMInputStream(is), StandardCharsets.ISO_8859_1); 
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT
-                     .withDelimiter(';') // O separador oficial da ANS costuma ser ponto e vírgula
-                     .withFirstRecordAsHeader()  // Pula a primeira linha (cabeçalho original)
-                     .withIgnoreHeaderCase()
-                     .withTrim())) {
+        // BOMInputStream remove caracteres invisíveis que atrapalham a leitura da 1ª coluna
+        Reader reader = new InputStreamReader(BOMInputStream.builder().setInputStream(is).get(), StandardCharsets.ISO_8859_1);
+        long lidas = 0;
+        long despesas = 0;
+        List<FiltroDespesas.Linha> lote = new ArrayList<>();
+        try (CSVParser csvParser = new CSVParser(reader, FORMATO_ANS)) {
+            // Índices das colunas, resolvidos uma vez pela primeira linha (seus nomes mudam às vezes nos arquivos oficiais)
+            EsquemaAns esquema = null;
+            int idxDescricao = -1, idxValor = -1, idxRegAns = -1, idxConta = -1, idxData = -1;
+            FiltroDespesas filtro = null;
 
             for (CSVRecord record : csvParser) {
-                // 1. Tenta identificar as colunas (seus nomes mudam as vezes nos arquivos oficiais)
-                // Usei um método 'safeGet' para evitar erro se a coluna não existir
-                String descricao = safeGet(record, "DESCRICAO");
-                String valorStr = safeGet(record, "VL_SALDO_FINAL");
-                String regAns = safeGet(record, "REG_ANS"); 
-                // Nota: O arquivo 3T2025.csv parece não ter coluna "RazaoSocial" nem "CNPJ". 
+                if (esquema == null) {
+                    esquema = EsquemaAns.resolver(record.values());
+                    avisarEsquema(nomeOrigem, esquema);
+                    idxDescricao = esquema.indice(EsquemaAns.Coluna.DESCRICAO);
+                    idxValor = esquema.indice(EsquemaAns.Coluna.VL_SALDO_FINAL);
+                    idxRegAns = esquema.indice(EsquemaAns.Coluna.REG_ANS);
+                    idxConta = esquema.indice(EsquemaAns.Coluna.CD_CONTA_CONTABIL);
+                    idxData = periodoNoNome ? -1 : esquema.indice(EsquemaAns.Coluna.DATA);
+                    filtro = filtroPara(esquema);
+                    if (esquema.temCabecalho()) continue;
+                }
+                lidas++;
+                // Nota: O arquivo 3T2025.csv parece não ter coluna "RazaoSocial" nem "CNPJ".
                 // Isso é uma INCONSISTÊNCIA dos dados brutos que tratei aqui.
-                
-                // 2. Filtra: Só queremos linhas de Despesa/Sinistro
-                if (ehDespesa(descricao)) {
-                    // Escreve no arquivo consolidado
-                    csvPrinter.printRecord(
+
+                // Filtra: Só queremos linhas de Despesa/Sinistro (e as das saídas extras), numa única avaliação por linha
+                long saidas = filtro.avaliar(campo(record, idxConta), campo(record, idxDescricao));
+                if (saidas != 0 && filtro.precisaValor(saidas)) {
+                    saidas = aplicarFaixas(filtro, saidas, campo(record, idxValor));
+                }
+                if (saidas != 0) {
+                    String regAns = campo(record, idxRegAns);
+                    String[] periodoLinha = idxData >= 0 ? EsquemaAns.periodoDaData(campo(record, idxData)) : null;
+                    if (periodoLinha == null) periodoLinha = periodo;
+                    lote.add(new FiltroDespesas.Linha(new String[]{
                         "Operadora " + regAns, // Razão Social (Fictícia/Placeholder pois não tem no arquivo original)
                         regAns,                // CNPJ (Usando REG_ANS como ID provisório devido à falta da coluna CNPJ)
-                        trimestre,
-                        ano,
-                        valorStr
-                    );
+                        periodoLinha[0],       // ex: 3T
+                        periodoLinha[1],       // ex: 2025
+                        campo(record, idxValor)
+                    }, saidas));
+                    if (lote.size() == TAMANHO_LOTE) {
+                        despesas += contarConsolidado(lote);
+                        destino.receber(lote);
+                        lote = new ArrayList<>();
+                    }
                 }
             }
+            if (!lote.isEmpty()) {
+                despesas += contarConsolidado(lote);
+                destino.receber(lote);
+            }
+            // Os bytes da entrada são contados por quem abriu o stream (ver processarUmZip)
+            registrarLinhas(lidas, despesas, 0);
+        }
+    }
 
-        } catch (IOException e) {
-            System.err.println("Erro ao ler arquivo " + caminhoArquivo + ": " + e.getMessage());
+    /**
+     * Descobre trimestre e ano a partir do nome do arquivo ou da entrada do ZIP.
+     * Procura o padrão "XTYYYY" no último segmento do caminho; se não achar,
+     * cai no formato estrito "XTYYYY.csv" usado originalmente (nomes curtos demais ficam sem período).
+     * @return Array {trimestre, ano}, ex: {"3T", "2025"}
+     */
+    private String[] extrairPeriodo(String nomeOrigem) {
+        String nome = ultimoSegmento(nomeOrigem);
+        Matcher m = PADRAO_PERIODO.matcher(nome);
+        if (m.find()) {
+            return new String[]{m.group(1) + "T", m.group(2)};
         }
+        return nome.length() >= 6 ? new String[]{nome.substring(0, 2), nome.substring(2, 6)} : new String[]{"", ""};
     }
 
     /**
-     * Verifica se a descrição contém os termos chave (filtros).
+     * Se o nome traz o padrão "XTYYYY"; sem ele, o período é lido da coluna DATA quando o arquivo a tem.
      */
-    private boolean ehDespesa(String descricao) {
-        if (descricao == null) return false;
-        String descUpper = descricao.toUpperCase();
-        for (String termo : TERMOS_DESPESA) {
-            if (descUpper.contains(termo)) {
-                return true;
-            }
+    private boolean periodoNoNome(String nomeOrigem) {
+        return PADRAO_PERIODO.matcher(ultimoSegmento(nomeOrigem)).find();
+    }
+
+    private static String ultimoSegmento(String caminho) {
+        return caminho.substring(Math.max(caminho.lastIndexOf('/'), caminho.lastIndexOf('\\')) + 1);
+    }
+
+    /**
+     * Aplica as faixas de valor das regras candidatas (valor não numérico reprova as regras com faixa).
+     */
+    private static long aplicarFaixas(FiltroDespesas filtro, long candidatas, String valor) {
+        try {
+            return filtro.aplicarFaixas(candidatas, Centavos.parse(valor), true);
+        } catch (NumberFormatException e) {
+            return filtro.aplicarFaixas(candidatas, 0, false);
         }
-        return false;
     }
 
     /**
-     * Método auxiliar para evitar 'IllegalArgumentException' se a coluna não existir no CSV.
-     * Arquivos governamentais frequentemente mudam o esquema de colunas entre períodos.
+     * Quantas linhas do lote vão para o consolidado (as métricas do filtro contam só essas).
      */
-    private String safeGet(CSVRecord record, String colName) {
-        if (record.isMapped(colName)) {
-            return record.get(colName);
+    private static long contarConsolidado(List<FiltroDespesas.Linha> linhas) {
+        long total = 0;
+        for (FiltroDespesas.Linha linha : linhas) {
+            if ((linha.saidas() & SAIDA_CONSOLIDADO) != 0) total++;
         }
-        return "";
+        return total;
+    }
+
+    /**
+     * Campo pelo índice resolvido no esquema, ou "" se a coluna não existir no arquivo (índice -1) ou na linha.
+     * Arquivos governamentais frequentemente mudam o esquema de colunas entre períodos.
+     */
+    private static String campo(CSVRecord record, int indice) {
+        return indice >= 0 && indice < record.size() ? record.get(indice) : "";
     }
-}
\ No newline at end of file
+}
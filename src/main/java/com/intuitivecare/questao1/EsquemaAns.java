@@ -0,0 +1,147 @@
+package com.intuitivecare.questao1;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Posição das colunas de um arquivo de Demonstrações Contábeis, resolvida uma única vez a partir da primeira linha.
+ *
+ * A ANS já renomeou colunas entre trimestres (acentos, caixa, "REGISTRO_ANS" x "REG_ANS"...). Cada coluna
+ * lógica ({@link Coluna}) tem uma lista de nomes aceitos, comparados depois de normalizar o cabeçalho
+ * (maiúsculas, sem acentos, espaços/hífens viram '_'). Se nenhum nome for reconhecido e a linha tiver as
+ * 6 colunas do layout oficial, o arquivo é tratado como sem cabeçalho, na ordem oficial, e a primeira linha já é dado.
+ *
+ * Depois disso as linhas são lidas por índice: nada de busca por nome a cada linha.
+ */
+final class EsquemaAns {
+
+    /**
+     * Colunas lógicas do arquivo, com os nomes aceitos para cada uma (já normalizados).
+     */
+    enum Coluna {
+        DATA("DATA", "DT_REFERENCIA", "DATA_REFERENCIA", "DT_REF"),
+        REG_ANS("REG_ANS", "REGISTRO_ANS", "CD_REGISTRO_ANS", "CD_OPERADORA", "REGISTRO_OPERADORA"),
+        CD_CONTA_CONTABIL("CD_CONTA_CONTABIL", "CD_CONTA", "COD_CONTA_CONTABIL", "CONTA_CONTABIL"),
+        DESCRICAO("DESCRICAO", "DS_CONTA_CONTABIL", "DESCRICAO_CONTA", "DS_CONTA"),
+        VL_SALDO_INICIAL("VL_SALDO_INICIAL", "SALDO_INICIAL", "VL_INICIAL"),
+        VL_SALDO_FINAL("VL_SALDO_FINAL", "SALDO_FINAL", "VL_FINAL");
+
+        private final String[] nomes;
+
+        Coluna(String... nomes) {
+            this.nomes = nomes;
+        }
+    }
+
+    // Datas aceitas na coluna DATA: "2025-07-01" ou "01/07/2025"
+    private static final Pattern DATA_ISO = Pattern.compile("(\\d{4})-(\\d{2})-\\d{2}.*");
+    private static final Pattern DATA_BR = Pattern.compile("\\d{2}/(\\d{2})/(\\d{4}).*");
+
+    private final int[] indice = new int[Coluna.values().length];
+    private final boolean temCabecalho;
+    private final int ultimaColuna;
+
+    private EsquemaAns(int[] indice, boolean temCabecalho) {
+        System.arraycopy(indice, 0, this.indice, 0, indice.length);
+        this.temCabecalho = temCabecalho;
+        this.ultimaColuna = Arrays.stream(indice).max().orElse(-1);
+    }
+
+    /**
+     * Resolve o esquema a partir da primeira linha do arquivo (cabeçalho ou, no layout sem cabeçalho, a primeira linha de dados).
+     */
+    static EsquemaAns resolver(String[] primeiraLinha) {
+        int[] indice = new int[Coluna.values().length];
+        Arrays.fill(indice, -1);
+        boolean reconheceu = false;
+        for (int i = 0; i < primeiraLinha.length; i++) {
+            String nome = normalizar(primeiraLinha[i]);
+            for (Coluna coluna : Coluna.values()) {
+                if (indice[coluna.ordinal()] < 0 && Arrays.asList(coluna.nomes).contains(nome)) {
+                    indice[coluna.ordinal()] = i;
+                    reconheceu = true;
+                    break;
+                }
+            }
+        }
+        if (!reconheceu && primeiraLinha.length == Coluna.values().length) {
+            // Layout oficial sem cabeçalho: DATA;REG_ANS;CD_CONTA_CONTABIL;DESCRICAO;VL_SALDO_INICIAL;VL_SALDO_FINAL
+            for (Coluna coluna : Coluna.values()) indice[coluna.ordinal()] = coluna.ordinal();
+            return new EsquemaAns(indice, false);
+        }
+        return new EsquemaAns(indice, true);
+    }
+
+    /**
+     * Índice da coluna no arquivo, ou -1 se ela não existe.
+     */
+    int indice(Coluna coluna) {
+        return indice[coluna.ordinal()];
+    }
+
+    boolean possui(Coluna coluna) {
+        return indice[coluna.ordinal()] >= 0;
+    }
+
+    /**
+     * Falso quando o arquivo não tem cabeçalho (a primeira linha deve ser processada como dado).
+     */
+    boolean temCabecalho() {
+        return temCabecalho;
+    }
+
+    /**
+     * Maior índice entre as colunas encontradas (depois dele, o resto da linha pode ser pulado).
+     */
+    int ultimaColuna() {
+        return ultimaColuna;
+    }
+
+    /**
+     * Colunas necessárias para o consolidado que não foram encontradas (vazio se estiver tudo certo).
+     */
+    List<Coluna> colunasAusentes() {
+        List<Coluna> ausentes = new ArrayList<>();
+        for (Coluna coluna : new Coluna[]{Coluna.REG_ANS, Coluna.DESCRICAO, Coluna.VL_SALDO_FINAL}) {
+            if (!possui(coluna)) ausentes.add(coluna);
+        }
+        return ausentes;
+    }
+
+    /**
+     * Trimestre e ano a partir da coluna DATA (ex: "2025-07-01" -> {"3T", "2025"}), ou null se a data for inválida.
+     * Usado quando o nome do arquivo não informa o período.
+     */
+    static String[] periodoDaData(String data) {
+        if (data == null) return null;
+        String texto = data.trim();
+        Matcher m = DATA_ISO.matcher(texto);
+        String ano, mes;
+        if (m.matches()) {
+            ano = m.group(1);
+            mes = m.group(2);
+        } else if ((m = DATA_BR.matcher(texto)).matches()) {
+            mes = m.group(1);
+            ano = m.group(2);
+        } else {
+            return null;
+        }
+        int numeroMes = Integer.parseInt(mes);
+        if (numeroMes < 1 || numeroMes > 12) return null;
+        return new String[]{((numeroMes - 1) / 3 + 1) + "T", ano};
+    }
+
+    /**
+     * Nome de coluna normalizado: sem BOM/aspas/acentos, maiúsculas, espaços e hífens como '_'.
+     */
+    static String normalizar(String nome) {
+        if (nome == null) return "";
+        String semAcento = Normalizer.normalize(nome.replace("\uFEFF", "").replace("\"", "").trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return semAcento.toUpperCase().replaceAll("[\\s-]+", "_");
+    }
+}
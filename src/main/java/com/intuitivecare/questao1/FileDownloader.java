@@ -4,21 +4,68 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.*;
 import java.net.URL;
+import java.net.http.HttpClient;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
  * Gerencia o download e a extração dos arquivos da ANS.
  * Utiliza a biblioteca Apache Commons IO para facilitar o download com timeouts de segurança.
+ * Os modos concorrentes usam o {@link ChunkedDownloader} (HttpClient compartilhado, retomada via
+ * Range, segmentos paralelos e novas tentativas com backoff).
  */
 public class FileDownloader {
 
     // Define uma pasta "downloads" dentro do projeto para salvar tudo
     private static final String DOWNLOAD_DIR = "downloads";
-    
+
+    // Timeout (ms) de conexão e de leitura usado em todos os downloads
+    private static final int TIMEOUT_MS = 10000;
+
+    // Número padrão de conexões simultâneas com o servidor da ANS no modo concorrente
+    public static final int CONEXOES_PADRAO = 3;
+
+    // Segmentos paralelos por arquivo (-Dans.segmentos) e tamanho mínimo para dividir um arquivo
+    private static final int SEGMENTOS = Integer.getInteger("ans.segmentos", 4);
+    private static final long TAMANHO_MINIMO_SEGMENTADO = 32L * 1024 * 1024;
+
+    // Tentativas por trecho antes de desistir do arquivo
+    private static final int TENTATIVAS = 5;
+
+    // Um único HttpClient para todos os downloads: reaproveita as conexões (keep-alive)
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final ChunkedDownloader downloader = new ChunkedDownloader(cliente,
+            Duration.ofMillis(TIMEOUT_MS), SEGMENTOS, TAMANHO_MINIMO_SEGMENTADO, TENTATIVAS);
+
+    // Pasta onde os ZIPs são salvos e extraídos
+    private final File pasta;
+
+    public FileDownloader() {
+        this(new File(DOWNLOAD_DIR));
+    }
+
+    /**
+     * @param pasta Pasta dos downloads no lugar de "downloads" (usado nos testes)
+     */
+    FileDownloader(File pasta) {
+        this.pasta = pasta;
+    }
+
     /**
      * Baixa a lista de arquivos ZIP e os extrai imediatamente.
      * Define timeouts de conexão para evitar que o programa trave se o site da ANS estiver lento.
@@ -27,19 +74,19 @@ public class FileDownloader {
     public void baixarEExtrair(List<String> links) {
         try {
             // Cria a pasta de downloads se ela não existir
-            Files.createDirectories(Paths.get(DOWNLOAD_DIR));
+            Files.createDirectories(pasta.toPath());
 
             for (String link : links) {
                 // Pega o nome do arquivo (ex: 3T2025.zip) a partir do link
                 String nomeArquivo = link.substring(link.lastIndexOf("/") + 1);
-                File destino = new File(DOWNLOAD_DIR, nomeArquivo);
+                File destino = new File(pasta, nomeArquivo);
 
                 System.out.println("  Baixando: " + nomeArquivo + "...");
                 
                 // A mágica do Commons-IO: baixa o arquivo com uma linha de código!
                 // (Link, Arquivo Destino, Timeout Conexão, Timeout Leitura)
                 // Usei 10000ms (10s) para garantir que não fique esperando eternamente.
-                FileUtils.copyURLToFile(new URL(link), destino, 10000, 10000);
+                FileUtils.copyURLToFile(new URL(link), destino, TIMEOUT_MS, TIMEOUT_MS);
                 System.out.println("  Download concluído!");
 
                 // Chama o método para extrair o zip baixado
@@ -50,12 +97,144 @@ public class FileDownloader {
         }
     }
 
+    /**
+     * Versão concorrente de {@link #baixarEExtrair(List)}.
+     * Cada link roda em uma virtual thread própria: o download é limitado por um semáforo
+     * (no máximo {@code maxConexoes} transferências simultâneas) e a extração acontece logo
+     * em seguida, fora do semáforo, sobrepondo-se ao download dos próximos arquivos.
+     * Uma falha em um arquivo é registrada e não interrompe as demais transferências.
+     *
+     * @param links Lista de URLs diretas para os arquivos .zip
+     * @param maxConexoes Número máximo de downloads simultâneos (mínimo 1)
+     * @return Lista com a descrição das falhas (vazia se tudo deu certo)
+     */
+    public List<String> baixarEExtrairConcorrente(List<String> links, int maxConexoes) {
+        return baixarConcorrente(links, maxConexoes, true);
+    }
+
+    /**
+     * Igual a {@link #baixarEExtrairConcorrente(List, int)}, mas permite pular a extração.
+     * Com {@code extrair = false} apenas os .zip ficam em disco, para serem lidos
+     * diretamente por {@link CsvProcessor#processarZips(List)} sem arquivos intermediários.
+     */
+    public List<String> baixarConcorrente(List<String> links, int maxConexoes, boolean extrair) {
+        return baixarConcorrente(links, maxConexoes, extrair, null);
+    }
+
+    /**
+     * Igual a {@link #baixarConcorrente(List, int, boolean)}, com download condicional.
+     * Se {@code manifesto} não for nulo e o ZIP já estiver em disco, a requisição leva
+     * If-None-Match/If-Modified-Since e uma resposta 304 pula o download; os validadores
+     * e o SHA-256 de cada ZIP baixado são gravados no manifesto.
+     */
+    public List<String> baixarConcorrente(List<String> links, int maxConexoes, boolean extrair,
+                                          ManifestoIncremental manifesto) {
+        List<String> falhas = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            Files.createDirectories(pasta.toPath());
+        } catch (IOException e) {
+            falhas.add(pasta + ": " + e.getMessage());
+            return falhas;
+        }
+
+        Semaphore conexoes = new Semaphore(Math.max(1, maxConexoes));
+
+        // O close() do executor aguarda todas as tarefas terminarem
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String link : links) {
+                executor.submit(() -> {
+                    String nomeArquivo = link.substring(link.lastIndexOf("/") + 1);
+                    File destino = new File(pasta, nomeArquivo);
+                    try {
+                        conexoes.acquire();
+                        // A etapa "download" mede só a transferência de cada arquivo; a extração tem a sua ("extracao")
+                        try (Metricas.Cronometro cronometro = Metricas.etapa("download").iniciar()) {
+                            System.out.println("  Baixando: " + nomeArquivo + "...");
+                            ChunkedDownloader.Resultado resultado = manifesto == null
+                                    ? downloader.baixar(link, destino.toPath(), Map.of())
+                                    : baixarSeAlterado(link, destino, manifesto);
+                            if (resultado.naoModificado()) {
+                                Metricas.contar("download.naoModificados", 1);
+                                System.out.println("  Sem alterações no servidor: " + nomeArquivo);
+                            } else {
+                                cronometro.itens(1).bytes(resultado.bytes());
+                                System.out.println("  Download concluído: " + nomeArquivo);
+                            }
+                        } finally {
+                            conexoes.release();
+                        }
+
+                        if (extrair) {
+                            extrair(destino);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("  Erro em " + nomeArquivo + ": " + e.getMessage());
+                        Metricas.contar("download.falhas", 1);
+                        falhas.add(nomeArquivo + ": " + e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        falhas.add(nomeArquivo + ": interrompido");
+                    } catch (RuntimeException e) {
+                        // Ex: link malformado. O Future do submit é descartado, então sem isto o erro sumiria
+                        System.err.println("  Erro em " + nomeArquivo + ": " + e);
+                        Metricas.contar("download.falhas", 1);
+                        falhas.add(nomeArquivo + ": " + e);
+                    }
+                });
+            }
+        }
+
+        return falhas;
+    }
+
+    /**
+     * Faz um download condicional usando os validadores guardados no manifesto.
+     * O arquivo é baixado em partes temporárias e só substitui o anterior quando termina.
+     * @return O resultado do download; {@code naoModificado()} se o servidor respondeu 304 (o ZIP em disco continua válido).
+     */
+    private ChunkedDownloader.Resultado baixarSeAlterado(String link, File destino, ManifestoIncremental manifesto) throws IOException {
+        String trimestre = destino.getName().replace(".zip", "");
+
+        Map<String, String> condicionais = new HashMap<>();
+        if (destino.exists()) {
+            String etag = manifesto.getEtag(trimestre);
+            String lastModified = manifesto.getLastModified(trimestre);
+            if (etag != null) condicionais.put("If-None-Match", etag);
+            if (lastModified != null) condicionais.put("If-Modified-Since", lastModified);
+        }
+
+        ChunkedDownloader.Resultado resultado = downloader.baixar(link, destino.toPath(), condicionais);
+        if (resultado.naoModificado()) {
+            return resultado;
+        }
+
+        manifesto.registrarOrigem(trimestre,
+                resultado.etag(),
+                resultado.lastModified(),
+                destino.length(),
+                ManifestoIncremental.sha256(destino.toPath()));
+        return resultado;
+    }
+
     /**
      * Descompacta um arquivo ZIP em uma subpasta própria.
      * Utiliza buffers para extração eficiente de memória.
      */
 
     private void descompactar(File arquivoZip) {
+        try {
+            extrair(arquivoZip);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Faz a extração propriamente dita, propagando erros de I/O para quem chamou.
+     * Cada ZIP é extraído na sua própria pasta, então chamadas em paralelo não se atrapalham.
+     */
+    private void extrair(File arquivoZip) throws IOException {
         System.out.println("  Extraindo " + arquivoZip.getName() + "...");
         // Buffer de 1KB para leitura otimizada
         byte[] buffer = new byte[1024];
@@ -63,11 +242,12 @@ public class FileDownloader {
         // Cria uma subpasta com o nome do arquivo (ex: downloads/3T2025)
         // Isso é importante para organizar os CSVs por período
         String nomePasta = arquivoZip.getName().replace(".zip", "");
-        File pastaDestino = new File(DOWNLOAD_DIR, nomePasta);
+        File pastaDestino = new File(pasta, nomePasta);
         pastaDestino.mkdirs();
 
         // Código padrão Java para descompactar ZIPs
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(arquivoZip))) {
+        try (Metricas.Cronometro cronometro = Metricas.etapa("extracao").iniciar();
+             ZipInputStream zis = new ZipInputStream(new FileInputStream(arquivoZip))) {
             ZipEntry zipEntry = zis.getNextEntry();
             while (zipEntry != null) {
                 File novoArquivo = new File(pastaDestino, zipEntry.getName());
@@ -80,20 +260,20 @@ public class FileDownloader {
                     new File(novoArquivo.getParent()).mkdirs();
                     
                     // Escreve o arquivo no disco
+                    long extraidos = 0;
                     try (FileOutputStream fos = new FileOutputStream(novoArquivo)) {
                         int len;
                         while ((len = zis.read(buffer)) > 0) {
                             fos.write(buffer, 0, len);
+                            extraidos += len;
                         }
                     }
+                    cronometro.itens(1).bytes(extraidos);
                 }
                 zipEntry = zis.getNextEntry();
             }
             zis.closeEntry();
             System.out.println("  Extração concluída em: " + pastaDestino.getPath() + "\n");
-            
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 }
\ No newline at end of file
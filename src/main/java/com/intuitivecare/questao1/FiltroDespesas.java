@@ -0,0 +1,318 @@
+package com.intuitivecare.questao1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Conjunto de regras de filtro compilado para avaliar cada linha numa única passada, qualquer que seja o número de regras.
+ *
+ * Cada {@link Regra} tem um nome (a saída para onde vão as linhas aprovadas) e até três critérios, todos
+ * opcionais e combinados com E: prefixos de CD_CONTA_CONTABIL, palavras na descrição e faixa de valor.
+ * Na compilação:
+ * - os prefixos de todas as regras vão para uma trie: um único caminho pela conta da linha diz quais regras casaram;
+ * - as palavras de todas as regras vão para um autômato Aho-Corasick: uma única varredura da descrição acha
+ *   todas as palavras, sem repetir a busca por palavra (ignora maiúsculas/minúsculas, inclusive acentuadas);
+ * - o valor só é convertido para centavos se alguma regra ainda candidata tiver faixa.
+ * O resultado de uma linha é uma máscara de bits com as regras aprovadas (bit i = regra i), então há no
+ * máximo {@value #MAX_REGRAS} regras.
+ *
+ * Imutável depois de compilado: pode ser compartilhado entre as threads.
+ */
+final class FiltroDespesas {
+
+    static final int MAX_REGRAS = 64;
+
+    // Transições da trie/autômato sobre bytes ISO-8859-1 (-1 = sem filho na trie)
+    private static final int ALFABETO = 256;
+
+    /**
+     * Regra de filtro. Lista vazia (ou faixa aberta) = critério não usado.
+     * @param minimoCentavos Valor mínimo, inclusive ({@code Long.MIN_VALUE} = sem mínimo).
+     * @param maximoCentavos Valor máximo, inclusive ({@code Long.MAX_VALUE} = sem máximo).
+     */
+    record Regra(String nome, List<String> contas, List<String> termos, long minimoCentavos, long maximoCentavos) {
+
+        static Regra porTermos(String nome, List<String> termos) {
+            return new Regra(nome, List.of(), termos, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        static Regra porContas(String nome, List<String> contas) {
+            return new Regra(nome, contas, List.of(), Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        boolean temFaixa() {
+            return minimoCentavos != Long.MIN_VALUE || maximoCentavos != Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Linha aprovada por pelo menos uma regra, no formato do consolidado, com a máscara das saídas de destino.
+     */
+    record Linha(String[] campos, long saidas) {
+    }
+
+    private final long todas;
+    private final long comConta;
+    private final long comTermo;
+    private final long comFaixa;
+    private final long[] minimo;
+    private final long[] maximo;
+
+    // Trie dos prefixos: filhos[no][byte] e as regras cujo prefixo termina no nó
+    private final int[][] filhosTrie;
+    private final long[] terminaTrie;
+
+    // Aho-Corasick: transição completa (com as falhas já resolvidas) e regras com palavra terminando no estado
+    private final int[][] transicao;
+    private final long[] saidaAutomato;
+
+    private FiltroDespesas(List<Regra> regras) {
+        if (regras.isEmpty() || regras.size() > MAX_REGRAS) {
+            throw new IllegalArgumentException("Número de regras deve ser de 1 a " + MAX_REGRAS + ": " + regras.size());
+        }
+        long todas = 0, comConta = 0, comTermo = 0, comFaixa = 0;
+        minimo = new long[regras.size()];
+        maximo = new long[regras.size()];
+
+        List<int[]> filhos = new ArrayList<>();
+        List<Long> termina = new ArrayList<>();
+        filhos.add(novoNo());
+        termina.add(0L);
+        List<int[]> gotos = new ArrayList<>();
+        List<Long> saidas = new ArrayList<>();
+        gotos.add(novoNo());
+        saidas.add(0L);
+
+        for (int r = 0; r < regras.size(); r++) {
+            Regra regra = regras.get(r);
+            long bit = 1L << r;
+            todas |= bit;
+            minimo[r] = regra.minimoCentavos();
+            maximo[r] = regra.maximoCentavos();
+            if (regra.temFaixa()) comFaixa |= bit;
+            if (!regra.contas().isEmpty()) {
+                comConta |= bit;
+                for (String prefixo : regra.contas()) {
+                    int no = inserir(filhos, termina, prefixo.getBytes(StandardCharsets.ISO_8859_1));
+                    termina.set(no, termina.get(no) | bit);
+                }
+            }
+            if (!regra.termos().isEmpty()) {
+                comTermo |= bit;
+                for (String termo : regra.termos()) {
+                    byte[] normalizado = termo.getBytes(StandardCharsets.ISO_8859_1);
+                    for (int i = 0; i < normalizado.length; i++) normalizado[i] = (byte) maiuscula(normalizado[i]);
+                    int estado = inserir(gotos, saidas, normalizado);
+                    saidas.set(estado, saidas.get(estado) | bit);
+                }
+            }
+        }
+        this.todas = todas;
+        this.comConta = comConta;
+        this.comTermo = comTermo;
+        this.comFaixa = comFaixa;
+        this.filhosTrie = filhos.toArray(new int[0][]);
+        this.terminaTrie = termina.stream().mapToLong(Long::longValue).toArray();
+        this.transicao = gotos.toArray(new int[0][]);
+        this.saidaAutomato = saidas.stream().mapToLong(Long::longValue).toArray();
+        resolverFalhas();
+    }
+
+    /**
+     * Compila as regras (no máximo {@value #MAX_REGRAS}); a posição na lista é o bit da regra na máscara.
+     */
+    static FiltroDespesas compilar(List<Regra> regras) {
+        return new FiltroDespesas(regras);
+    }
+
+    /**
+     * Lê regras extras de um arquivo .properties (UTF-8). A chave {@code saidas} lista os nomes, na ordem;
+     * para cada nome: {@code <nome>.contas} (prefixos separados por vírgula), {@code <nome>.termos} (palavras
+     * na descrição), {@code <nome>.valorMinimo} e {@code <nome>.valorMaximo} (em reais, ex: 1000000,00).
+     */
+    static List<Regra> lerRegras(Path arquivo) throws IOException {
+        Properties propriedades = new Properties();
+        try (Reader reader = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            propriedades.load(reader);
+        }
+        List<Regra> regras = new ArrayList<>();
+        for (String nome : lista(propriedades.getProperty("saidas", ""))) {
+            Regra regra = new Regra(nome,
+                    lista(propriedades.getProperty(nome + ".contas", "")),
+                    lista(propriedades.getProperty(nome + ".termos", "")),
+                    valor(propriedades, nome, "valorMinimo", Long.MIN_VALUE),
+                    valor(propriedades, nome, "valorMaximo", Long.MAX_VALUE));
+            if (regra.contas().isEmpty() && regra.termos().isEmpty() && !regra.temFaixa()) {
+                throw new IOException("Regra sem critérios em " + arquivo + ": " + nome);
+            }
+            regras.add(regra);
+        }
+        return regras;
+    }
+
+    /**
+     * Valor em centavos de {@code <regra>.<campo>}, ou o padrão se a chave não existir.
+     */
+    private static long valor(Properties propriedades, String regra, String campo, long padrao) throws IOException {
+        String texto = propriedades.getProperty(regra + "." + campo);
+        if (texto == null) return padrao;
+        try {
+            return Centavos.parse(texto);
+        } catch (NumberFormatException e) {
+            throw new IOException("Valor inválido na regra " + regra + " (" + campo + "): " + texto, e);
+        }
+    }
+
+    /**
+     * Regras que ainda podem aprovar a linha pela conta e pela descrição (campos em [inicio, fim) do buffer;
+     * fim negativo = coluna ausente, que não casa com nenhum prefixo ou palavra).
+     */
+    long avaliar(ByteBuffer buf, int inicioConta, int fimConta, int inicioDescricao, int fimDescricao) {
+        long candidatas = todas;
+        if (comConta != 0) {
+            long casou = 0;
+            if (fimConta >= 0) {
+                int no = 0;
+                for (int i = inicioConta; i < fimConta && no >= 0; i++) {
+                    no = filhosTrie[no][buf.get(i) & 0xFF];
+                    if (no >= 0) casou |= terminaTrie[no];
+                }
+            }
+            candidatas &= ~comConta | casou;
+        }
+        if ((candidatas & comTermo) != 0) {
+            long casou = 0;
+            if (fimDescricao >= 0) {
+                int estado = 0;
+                for (int i = inicioDescricao; i < fimDescricao; i++) {
+                    estado = transicao[estado][maiuscula(buf.get(i))];
+                    casou |= saidaAutomato[estado];
+                }
+            }
+            candidatas &= ~comTermo | casou;
+        }
+        return candidatas;
+    }
+
+    /**
+     * Mesmo que {@link #avaliar(ByteBuffer, int, int, int, int)} para campos já decodificados (texto ISO-8859-1).
+     */
+    long avaliar(String conta, String descricao) {
+        long candidatas = todas;
+        if (comConta != 0) {
+            long casou = 0;
+            int no = 0;
+            for (int i = 0; i < conta.length() && no >= 0; i++) {
+                char c = conta.charAt(i);
+                no = c < ALFABETO ? filhosTrie[no][c] : -1;
+                if (no >= 0) casou |= terminaTrie[no];
+            }
+            candidatas &= ~comConta | casou;
+        }
+        if ((candidatas & comTermo) != 0) {
+            long casou = 0;
+            int estado = 0;
+            for (int i = 0; i < descricao.length(); i++) {
+                char c = descricao.charAt(i);
+                // Caractere fora do ISO-8859-1 não faz parte de nenhuma palavra: volta à raiz
+                estado = c < ALFABETO ? transicao[estado][maiuscula((byte) c)] : 0;
+                casou |= saidaAutomato[estado];
+            }
+            candidatas &= ~comTermo | casou;
+        }
+        return candidatas;
+    }
+
+    /**
+     * Se alguma das candidatas depende do valor (só então vale a pena convertê-lo).
+     */
+    boolean precisaValor(long candidatas) {
+        return (candidatas & comFaixa) != 0;
+    }
+
+    /**
+     * Aplica as faixas de valor às candidatas. Valor inválido reprova todas as regras com faixa.
+     */
+    long aplicarFaixas(long candidatas, long centavos, boolean valorValido) {
+        long comFaixaCandidatas = candidatas & comFaixa;
+        if (!valorValido) return candidatas & ~comFaixa;
+        for (long resto = comFaixaCandidatas; resto != 0; resto &= resto - 1) {
+            int r = Long.numberOfTrailingZeros(resto);
+            if (centavos < minimo[r] || centavos > maximo[r]) candidatas &= ~(1L << r);
+        }
+        return candidatas;
+    }
+
+    /**
+     * Maiúscula de um byte ISO-8859-1 (a-z e as minúsculas acentuadas, como o {@code toUpperCase}).
+     */
+    private static int maiuscula(byte b) {
+        int c = b & 0xFF;
+        if ((c >= 'a' && c <= 'z') || (c >= 0xE0 && c <= 0xFE && c != 0xF7)) return c - 32;
+        return c;
+    }
+
+    private static int[] novoNo() {
+        int[] no = new int[ALFABETO];
+        Arrays.fill(no, -1);
+        return no;
+    }
+
+    private static int inserir(List<int[]> nos, List<Long> marcas, byte[] chave) {
+        int no = 0;
+        for (byte b : chave) {
+            int c = b & 0xFF;
+            if (nos.get(no)[c] < 0) {
+                nos.get(no)[c] = nos.size();
+                nos.add(novoNo());
+                marcas.add(0L);
+            }
+            no = nos.get(no)[c];
+        }
+        return no;
+    }
+
+    /**
+     * Completa o autômato (busca em largura): cada transição ausente segue a falha, e cada estado herda
+     * as saídas do seu estado de falha (palavras que terminam como sufixo de outras).
+     */
+    private void resolverFalhas() {
+        int[] falha = new int[transicao.length];
+        ArrayDeque<Integer> fila = new ArrayDeque<>();
+        for (int c = 0; c < ALFABETO; c++) {
+            int filho = transicao[0][c];
+            if (filho < 0) {
+                transicao[0][c] = 0;
+            } else {
+                falha[filho] = 0;
+                fila.add(filho);
+            }
+        }
+        while (!fila.isEmpty()) {
+            int estado = fila.poll();
+            saidaAutomato[estado] |= saidaAutomato[falha[estado]];
+            for (int c = 0; c < ALFABETO; c++) {
+                int filho = transicao[estado][c];
+                if (filho < 0) {
+                    transicao[estado][c] = transicao[falha[estado]][c];
+                } else {
+                    falha[filho] = transicao[falha[estado]][c];
+                    fila.add(filho);
+                }
+            }
+        }
+    }
+
+    private static List<String> lista(String valor) {
+        return Arrays.stream(valor.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
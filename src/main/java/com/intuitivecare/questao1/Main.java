@@ -4,11 +4,11 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Ponto de entrada da aplicação (Questão 1).
@@ -16,6 +16,13 @@ import java.util.zip.ZipOutputStream;
  */
 public class Main {
 
+    // ZIP final para entrega (gerado junto com o consolidado.csv)
+    private static final String ARQUIVO_ZIP = "consolidado_despesas.zip";
+
+    // Subpastas de downloads/ com arquivos gerados aqui (parciais do modo incremental, cache do scraping)
+    private static final String PASTA_PARCIAIS = "parciais";
+    private static final String PASTA_CACHE = "cache";
+
     /**
      * Método principal que executa o pipeline de dados sequencialmente.
      * @param args Argumentos de linha de comando (não utilizados).
@@ -23,81 +30,168 @@ public class Main {
     public static void main(String[] args) {
         try {
             // 1. Busca Links (Scraping)
-            // Identifica as URLs dos arquivos da ANS para os últimos 3 trimestres
+            // Identifica as URLs dos arquivos da ANS para os últimos 3 trimestres (ou -Dans.trimestres=N)
+            // As listagens ficam em cache em downloads/cache e são revalidadas com ETag/Last-Modified
             AnsScraper scraper = new AnsScraper();
-            List<String> links = scraper.getLinksUltimos3Trimestres();
+            List<String> links;
+            try (Metricas.Cronometro c = Metricas.etapa("scraping").iniciar()) {
+                links = scraper.getLinksUltimosTrimestres(Integer.getInteger("ans.trimestres", 3));
+                c.itens(links.size());
+            }
+
+            // Por padrão os CSVs são lidos direto de dentro dos ZIPs (sem extração para o disco).
+            // Use -Dans.extrair=true para extrair os arquivos em downloads/<trimestre>/ como antes.
+            boolean extrairParaDisco = Boolean.getBoolean("ans.extrair");
 
-            // 2. Baixa e Extrai (Download)
-            // Só inicia o download se encontrou links válidos
+            // Modo incremental (-Dans.incremental=true): só baixa e reprocessa trimestres novos ou alterados
+            if (Boolean.getBoolean("ans.incremental")) {
+                executarIncremental(links);
+                return;
+            }
+
+            // 2. Baixa (e opcionalmente extrai) os arquivos (Download)
+            // Só inicia o download se encontrou links válidos.
+            // Os trimestres são baixados em paralelo; o número de conexões pode ser
+            // ajustado com -Dans.conexoes=N
             if (!links.isEmpty()) {
                 FileDownloader downloader = new FileDownloader();
-                downloader.baixarEExtrair(links);
+                int conexoes = Integer.getInteger("ans.conexoes", FileDownloader.CONEXOES_PADRAO);
+                // Cada arquivo é cronometrado pelo FileDownloader: "download" para a transferência e,
+                // com -Dans.extrair=true, "extracao" para a extração (que se sobrepõe aos próximos downloads)
+                List<String> falhas = downloader.baixarConcorrente(links, conexoes, extrairParaDisco);
+                if (!falhas.isEmpty()) {
+                    System.err.println("  Arquivos com falha: " + falhas);
+                }
             }
 
-            // 3. Identifica os arquivos CSV baixados (Busca Recursiva)
-            System.out.println("\n--- Buscando arquivos CSV extraídos ---");
-            List<String> csvFiles = listarArquivosCsv("downloads");
+            // 3. Identifica os arquivos baixados (Busca Recursiva)
+            String extensao = extrairParaDisco ? ".csv" : ".zip";
+            System.out.println("\n--- Buscando arquivos " + extensao + " em downloads ---");
+            List<String> arquivos = listarArquivos("downloads", extensao);
 
-            if (csvFiles.isEmpty()) {
-                System.out.println("  Nenhum arquivo CSV encontrado.");
+            if (arquivos.isEmpty()) {
+                System.out.println("  Nenhum arquivo " + extensao + " encontrado.");
                 return;
             }
 
             // 4. Processa e Consolida (Transformação)
             // Lê os arquivos brutos e gera o 'consolidado.csv'
-            CsvProcessor processor = new CsvProcessor();
-            processor.processarArquivos(csvFiles);
-            
+            // (e também o 'consolidado.col', formato colunar binário, com -Dans.colunar=true)
+            // Com os CSVs em disco, arquivos grandes são divididos em trechos e processados em
+            // paralelo; o número de threads pode ser ajustado com -Dans.threads=N
             // 5. Compactar o arquivo final (Requisito do desafio)
-            // Gera o ZIP final para entrega
-            compactarResultado();
+            // O ZIP de entrega é gerado na mesma passada: o consolidado é compactado em paralelo
+            // enquanto é gravado (nível com -Dans.zip.nivel, 0 = sem compressão)
+            try (ParallelZipWriter zip = ParallelZipWriter.abrir(Paths.get(ARQUIVO_ZIP));
+                 Metricas.Cronometro c = Metricas.etapa("parse").iniciar()) {
+                CsvProcessor processor = new CsvProcessor(Boolean.getBoolean("ans.colunar"), zip);
+                if (extrairParaDisco) {
+                    int threads = Integer.getInteger("ans.threads", Runtime.getRuntime().availableProcessors());
+                    processor.processarArquivos(arquivos, threads);
+                } else {
+                    processor.processarZips(arquivos);
+                }
+                c.itens(processor.getLinhasLidas()).bytes(processor.getBytesLidos());
+            }
+            CsvProcessor.registrarIndicadores();
+            System.out.println("  Sucesso! Arquivo gerado: " + ARQUIVO_ZIP);
 
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            // Resumo da execução (tempo por etapa, contadores) em metricas_questao1.json
+            Metricas.gravarResumo("questao1");
         }
     }
 
     /**
-     * Busca recursivamente por arquivos .csv dentro do diretório de downloads.
-     * Utiliza Stream API para varrer subpastas, garantindo que acharemos o arquivo
-     * independente da estrutura interna do ZIP da ANS.
+     * Execução incremental: usa o manifesto em downloads/ para fazer downloads condicionais,
+     * regerar só os consolidados parciais dos trimestres que mudaram e, no fim, emendar
+     * os parciais (na ordem dos links) no consolidado.csv.
      */
-    private static List<String> listarArquivosCsv(String diretorioRaiz) throws IOException {
-        try (Stream<Path> walk = Files.walk(Paths.get(diretorioRaiz))) {
-            return walk.map(Path::toString)
-                    .filter(f -> f.endsWith(".csv"))
-                    .collect(Collectors.toList());
+    private static void executarIncremental(List<String> links) throws IOException {
+        ManifestoIncremental manifesto = ManifestoIncremental.carregar(Paths.get("downloads", "manifesto.properties"));
+
+        FileDownloader downloader = new FileDownloader();
+        int conexoes = Integer.getInteger("ans.conexoes", FileDownloader.CONEXOES_PADRAO);
+        List<String> falhas = downloader.baixarConcorrente(links, conexoes, false, manifesto);
+        if (!falhas.isEmpty()) {
+            System.err.println("  Arquivos com falha: " + falhas);
         }
+
+        System.out.println("\n--- Consolidação incremental ---");
+        try (ParallelZipWriter zip = ParallelZipWriter.abrir(Paths.get(ARQUIVO_ZIP));
+             Metricas.Cronometro c = Metricas.etapa("parse").iniciar()) {
+            CsvProcessor processor = new CsvProcessor(Boolean.getBoolean("ans.colunar"), zip);
+            consolidarParciais(links, manifesto, processor);
+            // Só os trimestres refeitos contam linhas e bytes; os parciais reaproveitados apenas são emendados
+            c.itens(processor.getLinhasLidas()).bytes(processor.getBytesLidos());
+        }
+        CsvProcessor.registrarIndicadores();
+        System.out.println("  Sucesso! Arquivo gerado: " + ARQUIVO_ZIP);
     }
 
     /**
-     * Compacta o arquivo CSV consolidado em um arquivo ZIP final.
-     * Método auxiliar para atender ao formato de entrega solicitado.
+     * Regera os parciais dos trimestres alterados e emenda todos no consolidado.csv (que também vai para o ZIP).
      */
-    private static void compactarResultado() {
-        String arquivoOrigem = "consolidado.csv";
-        String arquivoDestino = "consolidado_despesas.zip";
-
-        System.out.println("\n  Compactando arquivo final...");
-        
-        try (FileOutputStream fos = new FileOutputStream(arquivoDestino);
-             ZipOutputStream zipOut = new ZipOutputStream(fos);
-             FileInputStream fis = new FileInputStream(arquivoOrigem)) {
-
-                // Cria a entrada dentro do ZIP
-            ZipEntry zipEntry = new ZipEntry(new File(arquivoOrigem).getName());
-            zipOut.putNextEntry(zipEntry);
-
-            // Copia os bytes do arquivo para dentro do ZIP
-            byte[] bytes = new byte[1024];
-            int length;
-            while ((length = fis.read(bytes)) >= 0) {
-                zipOut.write(bytes, 0, length);
+    private static void consolidarParciais(List<String> links, ManifestoIncremental manifesto,
+                                           CsvProcessor processor) throws IOException {
+        List<Path> parciais = new ArrayList<>();
+        // Parcial gerado com outro filtro (-Dans.filtro.contas/-Dans.filtro.regras) é refeito
+        String filtro = CsvProcessor.assinaturaFiltro();
+
+        // Mesma ordem do modo completo (caminhos ordenados), para o resultado ser idêntico
+        List<String> linksOrdenados = new ArrayList<>(links);
+        linksOrdenados.sort(Comparator.comparing(link -> link.substring(link.lastIndexOf("/") + 1)));
+
+        for (String link : linksOrdenados) {
+            String nomeZip = link.substring(link.lastIndexOf("/") + 1);
+            String trimestre = nomeZip.replace(".zip", "");
+            Path zip = Paths.get("downloads", nomeZip);
+            Path parcial = Paths.get("downloads", PASTA_PARCIAIS, trimestre + ".csv");
+
+            if (!Files.exists(zip) || manifesto.getSha256(trimestre) == null) {
+                System.err.println("  Trimestre sem ZIP válido, ignorado: " + trimestre);
+                continue;
             }
-            System.out.println("  Sucesso! Arquivo gerado: " + arquivoDestino);
-            
-        } catch (IOException e) {
-            System.err.println("Erro ao compactar: " + e.getMessage());
+
+            if (manifesto.parcialAtualizado(trimestre, parcial, filtro)) {
+                System.out.println("  Reaproveitando parcial: " + parcial);
+                Metricas.contar("parse.parciaisReaproveitados", 1);
+            } else {
+                try {
+                    processor.gerarParcial(zip.toString(), parcial);
+                } catch (IOException e) {
+                    // O parcial não é registrado; os downloads já feitos ficam no manifesto para a próxima execução
+                    manifesto.salvar();
+                    throw new IOException("Falha ao gerar o parcial de " + trimestre + ": " + e.getMessage(), e);
+                }
+                manifesto.registrarParcial(trimestre, parcial, filtro);
+            }
+            parciais.add(parcial);
+        }
+
+        manifesto.salvar();
+        processor.juntarParciais(parciais);
+    }
+
+    /**
+     * Busca recursivamente por arquivos com a extensão informada (.csv ou .zip) dentro do diretório de downloads.
+     * Utiliza Stream API para varrer subpastas, garantindo que acharemos o arquivo
+     * independente da estrutura interna do ZIP da ANS.
+     * As pastas geradas pelo próprio programa ({@value #PASTA_PARCIAIS} e {@value #PASTA_CACHE}) ficam de fora:
+     * os parciais do modo incremental não têm cabeçalho e não são arquivos brutos da ANS.
+     */
+    private static List<String> listarArquivos(String diretorioRaiz, String extensao) throws IOException {
+        Path raiz = Paths.get(diretorioRaiz);
+        Path parciais = raiz.resolve(PASTA_PARCIAIS);
+        Path cache = raiz.resolve(PASTA_CACHE);
+        try (Stream<Path> walk = Files.walk(raiz)) {
+            return walk.filter(p -> !p.startsWith(parciais) && !p.startsWith(cache))
+                    .map(Path::toString)
+                    .filter(f -> f.endsWith(extensao))
+                    .sorted()
+                    .collect(Collectors.toList());
         }
     }
-}
\ No newline at end of file
+}
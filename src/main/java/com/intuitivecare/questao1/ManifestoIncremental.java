@@ -0,0 +1,119 @@
+package com.intuitivecare.questao1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Manifesto local das execuções incrementais (arquivo .properties em downloads/).
+ * Para cada trimestre (ex: "3T2025") guarda os validadores HTTP do ZIP de origem (ETag, Last-Modified),
+ * seu tamanho e SHA-256, e de qual versão do ZIP e com qual filtro foi gerado o consolidado parcial daquele trimestre.
+ * Com isso uma nova execução só baixa/reprocessa os trimestres novos ou alterados.
+ *
+ * Os métodos são sincronizados porque os downloads concorrentes atualizam o manifesto em paralelo.
+ */
+public class ManifestoIncremental {
+
+    private final Path arquivo;
+    private final Properties propriedades = new Properties();
+
+    private ManifestoIncremental(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    /**
+     * Lê o manifesto do disco (ou começa um vazio se o arquivo ainda não existe).
+     */
+    public static ManifestoIncremental carregar(Path arquivo) throws IOException {
+        ManifestoIncremental manifesto = new ManifestoIncremental(arquivo);
+        if (Files.exists(arquivo)) {
+            try (Reader reader = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+                manifesto.propriedades.load(reader);
+            }
+        }
+        return manifesto;
+    }
+
+    public synchronized void salvar() throws IOException {
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            propriedades.store(writer, "Manifesto das execucoes incrementais (nao editar)");
+        }
+    }
+
+    public synchronized String getEtag(String trimestre) {
+        return propriedades.getProperty(trimestre + ".etag");
+    }
+
+    public synchronized String getLastModified(String trimestre) {
+        return propriedades.getProperty(trimestre + ".lastModified");
+    }
+
+    public synchronized String getSha256(String trimestre) {
+        return propriedades.getProperty(trimestre + ".sha256");
+    }
+
+    /**
+     * Registra a versão do ZIP de origem que está em disco.
+     * Validadores ausentes na resposta do servidor são removidos do manifesto.
+     */
+    public synchronized void registrarOrigem(String trimestre, String etag, String lastModified, long tamanho, String sha256) {
+        definir(trimestre + ".etag", etag);
+        definir(trimestre + ".lastModified", lastModified);
+        propriedades.setProperty(trimestre + ".tamanho", Long.toString(tamanho));
+        propriedades.setProperty(trimestre + ".sha256", sha256);
+    }
+
+    /**
+     * Indica se o consolidado parcial do trimestre foi gerado a partir do ZIP atual, com o mesmo filtro
+     * desta execução, e não foi alterado/corrompido desde então.
+     * @param filtro Identificação da configuração do filtro atual (ver {@link CsvProcessor#assinaturaFiltro()}).
+     */
+    public synchronized boolean parcialAtualizado(String trimestre, Path parcial, String filtro) throws IOException {
+        String origem = propriedades.getProperty(trimestre + ".parcial.origem");
+        if (origem == null || !origem.equals(getSha256(trimestre)) || !Files.exists(parcial)
+                || !filtro.equals(propriedades.getProperty(trimestre + ".parcial.filtro"))) {
+            return false;
+        }
+        return sha256(parcial).equals(propriedades.getProperty(trimestre + ".parcial.sha256"));
+    }
+
+    public synchronized void registrarParcial(String trimestre, Path parcial, String filtro) throws IOException {
+        propriedades.setProperty(trimestre + ".parcial.origem", getSha256(trimestre));
+        propriedades.setProperty(trimestre + ".parcial.filtro", filtro);
+        propriedades.setProperty(trimestre + ".parcial.sha256", sha256(parcial));
+    }
+
+    private void definir(String chave, String valor) {
+        if (valor == null) {
+            propriedades.remove(chave);
+        } else {
+            propriedades.setProperty(chave, valor);
+        }
+    }
+
+    /**
+     * Calcula o SHA-256 (hex) de um arquivo lendo em blocos.
+     */
+    public static String sha256(Path arquivo) throws IOException {
+        try (InputStream is = Files.newInputStream(arquivo)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int lidos;
+            while ((lidos = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, lidos);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.intuitivecare.questao1;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de execução do ETL (Questões 1 e 2): tempo, itens e bytes por etapa, contadores e indicadores.
+ *
+ * - Cada etapa ("download", "parse", "agregacao"...) soma o tempo de todas as suas execuções; se uma etapa
+ *   roda em várias threads ao mesmo tempo (ex: extração de cada ZIP), o tempo é a soma, não o de relógio;
+ * - Contadores usam {@link LongAdder}: podem ser incrementados de qualquer thread sem disputa, mas o código
+ *   quente deve somar localmente e publicar uma vez por tarefa, não por linha;
+ * - Cada execução de etapa também vira um evento JFR ({@code com.intuitivecare.Etapa}), que só custa algo
+ *   quando há uma gravação ativa (ex: {@code -XX:StartFlightRecording}).
+ *
+ * No fim do programa, {@link #gravarResumo(String)} grava o resumo em JSON e acrescenta uma linha no
+ * histórico, para acompanhar o desempenho entre execuções.
+ */
+public final class Metricas {
+
+    // Resumo da última execução: metricas_<programa>.json; histórico (uma linha JSON por execução)
+    private static final String ARQUIVO_HISTORICO = "metricas_historico.jsonl";
+
+    private static final Instant INICIO = Instant.now();
+    private static final long INICIO_NANOS = System.nanoTime();
+
+    // Ordem de criação = ordem do relatório (as etapas aparecem na ordem em que rodaram)
+    private static final Map<String, Etapa> ETAPAS = new LinkedHashMap<>();
+    private static final Map<String, LongAdder> CONTADORES = new LinkedHashMap<>();
+    private static final Map<String, Double> INDICADORES = new LinkedHashMap<>();
+
+    private Metricas() {
+    }
+
+    /**
+     * Etapa com o nome informado (criada no primeiro uso).
+     */
+    public static Etapa etapa(String nome) {
+        synchronized (ETAPAS) {
+            return ETAPAS.computeIfAbsent(nome, Etapa::new);
+        }
+    }
+
+    /**
+     * Soma {@code quantidade} ao contador (criado no primeiro uso).
+     */
+    public static void contar(String nome, long quantidade) {
+        LongAdder contador;
+        synchronized (CONTADORES) {
+            contador = CONTADORES.computeIfAbsent(nome, n -> new LongAdder());
+        }
+        contador.add(quantidade);
+    }
+
+    /**
+     * Valor atual do contador (0 se nunca foi usado).
+     */
+    public static long valor(String nome) {
+        synchronized (CONTADORES) {
+            LongAdder contador = CONTADORES.get(nome);
+            return contador == null ? 0 : contador.sum();
+        }
+    }
+
+    /**
+     * Registra um indicador calculado (ex: taxa de acerto do filtro). Substitui o valor anterior.
+     */
+    public static void definir(String nome, double valor) {
+        synchronized (INDICADORES) {
+            INDICADORES.put(nome, valor);
+        }
+    }
+
+    /**
+     * Razão {@code parte / total} (0 se o total for 0), para montar indicadores a partir de contadores.
+     */
+    public static double razao(long parte, long total) {
+        return total == 0 ? 0 : (double) parte / total;
+    }
+
+    /**
+     * Resumo da execução em JSON (uma linha).
+     */
+    public static String json(String programa) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"programa\":").append(texto(programa))
+                .append(",\"inicio\":").append(texto(INICIO.toString()))
+                .append(",\"duracaoMs\":").append(numero((System.nanoTime() - INICIO_NANOS) / 1e6))
+                .append(",\"processadores\":").append(Runtime.getRuntime().availableProcessors())
+                .append(",\"etapas\":{");
+
+        List<Etapa> etapas;
+        synchronized (ETAPAS) {
+            etapas = new ArrayList<>(ETAPAS.values());
+        }
+        for (int i = 0; i < etapas.size(); i++) {
+            if (i > 0) sb.append(',');
+            etapas.get(i).json(sb);
+        }
+
+        sb.append("},\"contadores\":{");
+        synchronized (CONTADORES) {
+            int i = 0;
+            for (Map.Entry<String, LongAdder> contador : CONTADORES.entrySet()) {
+                if (i++ > 0) sb.append(',');
+                sb.append(texto(contador.getKey())).append(':').append(contador.getValue().sum());
+            }
+        }
+
+        sb.append("},\"indicadores\":{");
+        synchronized (INDICADORES) {
+            int i = 0;
+            for (Map.Entry<String, Double> indicador : INDICADORES.entrySet()) {
+                if (i++ > 0) sb.append(',');
+                sb.append(texto(indicador.getKey())).append(':').append(numero(indicador.getValue()));
+            }
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * Imprime um resumo legível no console e grava o JSON em {@code metricas_<programa>.json},
+     * acrescentando a mesma linha em {@value #ARQUIVO_HISTORICO}.
+     * Falhas ao gravar só são avisadas: métricas nunca derrubam a execução.
+     */
+    public static void gravarResumo(String programa) {
+        imprimir();
+
+        String json = json(programa);
+        Path resumo = Path.of("metricas_" + programa + ".json");
+        try {
+            Files.writeString(resumo, json + System.lineSeparator(), StandardCharsets.UTF_8);
+            try (BufferedWriter historico = Files.newBufferedWriter(Path.of(ARQUIVO_HISTORICO), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                historico.write(json);
+                historico.newLine();
+            }
+            System.out.println("  Métricas gravadas em: " + resumo);
+        } catch (IOException e) {
+            System.err.println("  Erro ao gravar métricas: " + e.getMessage());
+        }
+    }
+
+    private static void imprimir() {
+        System.out.println("\n--- Métricas ---");
+        synchronized (ETAPAS) {
+            for (Etapa etapa : ETAPAS.values()) {
+                System.out.println("  " + etapa);
+            }
+        }
+        synchronized (CONTADORES) {
+            CONTADORES.forEach((nome, valor) -> System.out.println("  " + nome + ": " + valor.sum()));
+        }
+        synchronized (INDICADORES) {
+            INDICADORES.forEach((nome, valor) -> System.out.println("  " + nome + ": " + numero(valor)));
+        }
+    }
+
+    private static String texto(String valor) {
+        StringBuilder sb = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < ' ') sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String numero(double valor) {
+        return Double.isFinite(valor) ? String.format(Locale.US, "%.3f", valor) : "0";
+    }
+
+    /**
+     * Acumulado de uma etapa: execuções, tempo somado, itens (ex: linhas) e bytes processados.
+     */
+    public static final class Etapa {
+        private final String nome;
+        private final LongAdder execucoes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder itens = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Etapa(String nome) {
+            this.nome = nome;
+        }
+
+        /**
+         * Começa a cronometrar uma execução da etapa; use em try-with-resources.
+         */
+        public Cronometro iniciar() {
+            return new Cronometro(this);
+        }
+
+        public void adicionarItens(long quantidade) {
+            itens.add(quantidade);
+        }
+
+        public void adicionarBytes(long quantidade) {
+            bytes.add(quantidade);
+        }
+
+        public long getItens() {
+            return itens.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        private void json(StringBuilder sb) {
+            double segundos = nanos.sum() / 1e9;
+            sb.append(texto(nome)).append(":{\"execucoes\":").append(execucoes.sum())
+                    .append(",\"ms\":").append(numero(nanos.sum() / 1e6))
+                    .append(",\"itens\":").append(itens.sum())
+                    .append(",\"bytes\":").append(bytes.sum())
+                    .append(",\"itensPorSegundo\":").append(numero(segundos > 0 ? itens.sum() / segundos : 0))
+                    .append(",\"bytesPorSegundo\":").append(numero(segundos > 0 ? bytes.sum() / segundos : 0))
+                    .append('}');
+        }
+
+        @Override
+        public String toString() {
+            double segundos = nanos.sum() / 1e9;
+            StringBuilder sb = new StringBuilder(nome).append(": ")
+                    .append(String.format(Locale.US, "%.1f ms", nanos.sum() / 1e6));
+            if (execucoes.sum() > 1) sb.append(" (").append(execucoes.sum()).append(" execuções)");
+            if (itens.sum() > 0) {
+                sb.append(" | ").append(itens.sum()).append(" itens");
+                if (segundos > 0) sb.append(String.format(Locale.US, " (%.0f/s)", itens.sum() / segundos));
+            }
+            if (bytes.sum() > 0) {
+                sb.append(" | ").append(String.format(Locale.US, "%.1f MB", bytes.sum() / 1048576.0));
+                if (segundos > 0) sb.append(String.format(Locale.US, " (%.1f MB/s)", bytes.sum() / 1048576.0 / segundos));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Uma execução de etapa em andamento. O tempo é somado na etapa (e o evento JFR é emitido) no {@link #close()}.
+     * Itens e bytes informados aqui vão para a etapa e para o evento.
+     */
+    public static final class Cronometro implements AutoCloseable {
+        private final Etapa etapa;
+        private final EventoEtapa evento = new EventoEtapa();
+        private final long inicio = System.nanoTime();
+
+        private Cronometro(Etapa etapa) {
+            this.etapa = etapa;
+            evento.begin();
+        }
+
+        public Cronometro itens(long quantidade) {
+            etapa.adicionarItens(quantidade);
+            evento.itens += quantidade;
+            return this;
+        }
+
+        public Cronometro bytes(long quantidade) {
+            etapa.adicionarBytes(quantidade);
+            evento.bytes += quantidade;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            etapa.execucoes.increment();
+            etapa.nanos.add(System.nanoTime() - inicio);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.etapa = etapa.nome;
+                evento.commit();
+            }
+        }
+    }
+
+    @Name("com.intuitivecare.Etapa")
+    @Label("Etapa do ETL")
+    @Description("Uma execução de etapa do ETL da ANS (download, parse, agregação...)")
+    @Category({"IntuitiveCare", "ETL"})
+    static final class EventoEtapa extends Event {
+        @Label("Etapa")
+        String etapa;
+
+        @Label("Itens")
+        long itens;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
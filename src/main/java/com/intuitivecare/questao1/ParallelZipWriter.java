@@ -0,0 +1,396 @@
+package com.intuitivecare.questao1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gravador de ZIP com compressão paralela (mesma ideia do pigz), gerando um ZIP padrão que o
+ * {@code unzip} e o {@link java.util.zip.ZipInputStream} leem normalmente.
+ *
+ * - Os bytes de cada entrada são cortados em blocos de {@value #TAMANHO_BLOCO} bytes, comprimidos em paralelo
+ *   por Deflaters independentes; cada bloco usa os últimos 32KB do anterior como dicionário e termina com
+ *   SYNC_FLUSH, então a concatenação dos blocos é um único stream deflate válido (o último usa FINISH);
+ * - O CRC-32 é calculado na thread que escreve, na ordem dos bytes, e os blocos são gravados na ordem;
+ * - A entrada é alimentada por um {@link OutputStream} ({@link #novaEntrada(String)}): quem produz os dados
+ *   escreve direto no ZIP, sem precisar gravar o arquivo antes;
+ * - Como o destino é um arquivo, o cabeçalho local é corrigido (CRC e tamanhos) quando a entrada fecha,
+ *   sem data descriptor;
+ * - Nível 0 grava sem compressão (método STORED).
+ *
+ * Entradas são gravadas uma de cada vez. No máximo 2 blocos por thread ficam em memória.
+ * Sem suporte a ZIP64: cada entrada e o arquivo todo devem ter menos de 4GB.
+ */
+public class ParallelZipWriter implements Closeable {
+
+    // Tamanho de cada bloco comprimido por uma tarefa
+    private static final int TAMANHO_BLOCO = 1024 * 1024;
+    // Janela do deflate: o dicionário de cada bloco são os últimos 32KB do anterior
+    private static final int TAMANHO_DICIONARIO = 32 * 1024;
+
+    private static final int ASSINATURA_LOCAL = 0x04034b50;
+    private static final int ASSINATURA_CENTRAL = 0x02014b50;
+    private static final int ASSINATURA_FIM = 0x06054b50;
+    private static final int VERSAO = 20;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int METODO_STORED = 0;
+    private static final int METODO_DEFLATED = 8;
+    private static final long LIMITE_ZIP32 = 0xFFFFFFFFL;
+
+    /**
+     * Dados de uma entrada já gravada, para o diretório central.
+     */
+    private record Entrada(byte[] nome, int metodo, int horaDos, int dataDos, long crc,
+                           long tamanhoComprimido, long tamanhoOriginal, long posicaoCabecalho) {
+    }
+
+    private final Path destino;
+    private final FileChannel canal;
+    private final int nivel;
+    private final int threads;
+    private final ForkJoinPool pool;
+    private final List<Entrada> entradas = new ArrayList<>();
+    private EntradaStream entradaAberta;
+    private boolean fechado;
+
+    private long totalOriginal;
+    private long totalComprimido;
+
+    /**
+     * Abre o ZIP com a configuração do sistema: nível {@code -Dans.zip.nivel} (0 = sem compressão,
+     * 1-9, padrão -1 = nível padrão do Deflater) e {@code -Dans.zip.threads} threads (padrão: todos os núcleos).
+     */
+    public static ParallelZipWriter abrir(Path destino) throws IOException {
+        return new ParallelZipWriter(destino,
+                Integer.getInteger("ans.zip.nivel", Deflater.DEFAULT_COMPRESSION),
+                Integer.getInteger("ans.zip.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param nivel Nível do Deflater (1-9 ou -1 para o padrão); 0 grava sem compressão.
+     * @param threads Threads de compressão (1 = sem paralelismo).
+     */
+    public ParallelZipWriter(Path destino, int nivel, int threads) throws IOException {
+        if (nivel < -1 || nivel > 9) throw new IllegalArgumentException("Nível de compressão inválido: " + nivel);
+        this.destino = destino;
+        this.nivel = nivel;
+        this.threads = Math.max(1, threads);
+        this.pool = nivel == 0 ? null : new ForkJoinPool(this.threads);
+        this.canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Começa uma nova entrada. Os bytes escritos no stream devolvido vão para o ZIP; a entrada termina
+     * quando o stream é fechado. Só uma entrada pode estar aberta por vez.
+     */
+    public OutputStream novaEntrada(String nome) throws IOException {
+        if (entradaAberta != null) throw new IllegalStateException("Entrada anterior ainda aberta: " + entradaAberta.nome);
+        entradaAberta = new EntradaStream(nome);
+        return entradaAberta;
+    }
+
+    /**
+     * Adiciona um arquivo do disco como entrada (com o nome do arquivo, sem pastas).
+     */
+    public void adicionarArquivo(Path arquivo) throws IOException {
+        try (InputStream in = Files.newInputStream(arquivo);
+             OutputStream out = novaEntrada(arquivo.getFileName().toString())) {
+            in.transferTo(out);
+        }
+    }
+
+    public long getTotalOriginal() {
+        return totalOriginal;
+    }
+
+    public long getTotalComprimido() {
+        return totalComprimido;
+    }
+
+    /**
+     * Fecha a entrada aberta (se houver), grava o diretório central e fecha o arquivo.
+     * Chamadas seguintes não fazem nada.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechado) return;
+        fechado = true;
+        try {
+            if (entradaAberta != null) entradaAberta.close();
+            gravarDiretorioCentral();
+        } finally {
+            if (pool != null) pool.shutdown();
+            canal.close();
+        }
+    }
+
+    private void gravarDiretorioCentral() throws IOException {
+        if (entradas.size() > 0xFFFF) throw new IOException("Entradas demais para um ZIP sem ZIP64: " + entradas.size());
+        long inicio = canal.position();
+        for (Entrada e : entradas) {
+            ByteBuffer b = buffer(46 + e.nome().length);
+            b.putInt(ASSINATURA_CENTRAL)
+                    .putShort((short) VERSAO)          // feito por
+                    .putShort((short) VERSAO)          // versão necessária
+                    .putShort((short) FLAG_UTF8)
+                    .putShort((short) e.metodo())
+                    .putShort((short) e.horaDos())
+                    .putShort((short) e.dataDos())
+                    .putInt((int) e.crc())
+                    .putInt((int) e.tamanhoComprimido())
+                    .putInt((int) e.tamanhoOriginal())
+                    .putShort((short) e.nome().length)
+                    .putShort((short) 0)               // extra
+                    .putShort((short) 0)               // comentário
+                    .putShort((short) 0)               // disco
+                    .putShort((short) 0)               // atributos internos
+                    .putInt(0)                         // atributos externos
+                    .putInt((int) e.posicaoCabecalho())
+                    .put(e.nome());
+            escrever(b);
+        }
+        long tamanho = canal.position() - inicio;
+        verificarLimite(canal.position(), destino.toString());
+
+        ByteBuffer fim = buffer(22);
+        fim.putInt(ASSINATURA_FIM)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) entradas.size())
+                .putShort((short) entradas.size())
+                .putInt((int) tamanho)
+                .putInt((int) inicio)
+                .putShort((short) 0);
+        escrever(fim);
+    }
+
+    private void escrever(ByteBuffer b) throws IOException {
+        b.flip();
+        while (b.hasRemaining()) canal.write(b);
+    }
+
+    private void escrever(byte[] dados, int tamanho) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(dados, 0, tamanho);
+        while (b.hasRemaining()) canal.write(b);
+    }
+
+    private static ByteBuffer buffer(int tamanho) {
+        return ByteBuffer.allocate(tamanho).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void verificarLimite(long valor, String nome) throws IOException {
+        if (valor > LIMITE_ZIP32) throw new IOException("ZIP64 não suportado (mais de 4GB): " + nome);
+    }
+
+    /**
+     * Comprime um bloco como um trecho do stream deflate (sem cabeçalho zlib).
+     * @param dicionario Bloco anterior (seus últimos 32KB viram o dicionário), ou null no primeiro bloco.
+     * @param ultimo Fecha o stream (FINISH) em vez de só alinhar em byte (SYNC_FLUSH).
+     */
+    private static byte[] comprimir(int nivel, byte[] dados, int tamanho, byte[] dicionario, boolean ultimo) {
+        Deflater deflater = new Deflater(nivel, true);
+        try {
+            if (dicionario != null) {
+                deflater.setDictionary(dicionario, dicionario.length - TAMANHO_DICIONARIO, TAMANHO_DICIONARIO);
+            }
+            deflater.setInput(dados, 0, tamanho);
+            if (ultimo) deflater.finish();
+
+            byte[] saida = new byte[tamanho + (tamanho >> 3) + 64];
+            int gravados = 0;
+            while (true) {
+                int espaco = saida.length - gravados;
+                gravados += deflater.deflate(saida, gravados, espaco, ultimo ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                // Saída cheia: pode haver mais a descarregar; senão o bloco terminou
+                if (gravados < saida.length && (!ultimo || deflater.finished())) break;
+                if (gravados == saida.length) saida = Arrays.copyOf(saida, saida.length * 2);
+            }
+            return Arrays.copyOf(saida, gravados);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Stream de uma entrada: junta os bytes em blocos, manda comprimir no pool e grava os resultados na ordem.
+     */
+    private final class EntradaStream extends OutputStream {
+        private final String nome;
+        private final byte[] nomeBytes;
+        private final long posicaoCabecalho;
+        private final int horaDos;
+        private final int dataDos;
+        private final CRC32 crc = new CRC32();
+        private final long inicioNanos = System.nanoTime();
+        private final Metricas.Cronometro cronometro = Metricas.etapa("compactacao").iniciar();
+
+        // Blocos enviados ao pool e ainda não gravados, na ordem
+        private final ArrayDeque<Future<byte[]>> pendentes = new ArrayDeque<>();
+        private byte[] bloco = new byte[TAMANHO_BLOCO];
+        private int usados;
+        private byte[] anterior;
+
+        private long tamanhoOriginal;
+        private long tamanhoComprimido;
+        private boolean fechada;
+
+        EntradaStream(String nome) throws IOException {
+            this.nome = nome;
+            this.nomeBytes = nome.getBytes(StandardCharsets.UTF_8);
+            this.posicaoCabecalho = canal.position();
+
+            LocalDateTime agora = LocalDateTime.now();
+            this.horaDos = (agora.getHour() << 11) | (agora.getMinute() << 5) | (agora.getSecond() / 2);
+            this.dataDos = ((agora.getYear() - 1980) << 9) | (agora.getMonthValue() << 5) | agora.getDayOfMonth();
+
+            // Cabeçalho local com CRC e tamanhos zerados; corrigidos no close()
+            ByteBuffer b = buffer(30 + nomeBytes.length);
+            b.putInt(ASSINATURA_LOCAL)
+                    .putShort((short) VERSAO)
+                    .putShort((short) FLAG_UTF8)
+                    .putShort((short) metodo())
+                    .putShort((short) horaDos)
+                    .putShort((short) dataDos)
+                    .putInt(0)
+                    .putInt(0)
+                    .putInt(0)
+                    .putShort((short) nomeBytes.length)
+                    .putShort((short) 0)
+                    .put(nomeBytes);
+            escrever(b);
+        }
+
+        private int metodo() {
+            return nivel == 0 ? METODO_STORED : METODO_DEFLATED;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (fechada) throw new IOException("Entrada já fechada: " + nome);
+            if (usados == bloco.length) despachar(false);
+            bloco[usados++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] dados, int inicio, int tamanho) throws IOException {
+            if (fechada) throw new IOException("Entrada já fechada: " + nome);
+            while (tamanho > 0) {
+                if (usados == bloco.length) despachar(false);
+                int n = Math.min(tamanho, bloco.length - usados);
+                System.arraycopy(dados, inicio, bloco, usados, n);
+                usados += n;
+                inicio += n;
+                tamanho -= n;
+            }
+        }
+
+        /**
+         * Fecha o bloco atual: atualiza o CRC e grava (sem compressão) ou manda para o pool.
+         */
+        private void despachar(boolean ultimo) throws IOException {
+            crc.update(bloco, 0, usados);
+            tamanhoOriginal += usados;
+
+            if (nivel == 0) {
+                escrever(bloco, usados);
+                tamanhoComprimido += usados;
+                usados = 0;
+                return;
+            }
+
+            byte[] dados = bloco;
+            int tamanho = usados;
+            byte[] dicionario = anterior;
+            pendentes.add(pool.submit(() -> comprimir(nivel, dados, tamanho, dicionario, ultimo)));
+
+            // O bloco enviado não é mais alterado: vira o dicionário do próximo
+            anterior = dados;
+            bloco = new byte[TAMANHO_BLOCO];
+            usados = 0;
+
+            // Limita a memória: no máximo 2 blocos por thread esperando para serem gravados
+            while (pendentes.size() > 2 * threads || (ultimo && !pendentes.isEmpty())) {
+                gravarProximo();
+            }
+        }
+
+        private void gravarProximo() throws IOException {
+            byte[] comprimido;
+            try {
+                comprimido = pendentes.poll().get();
+            } catch (ExecutionException e) {
+                throw new IOException("Erro ao comprimir " + nome, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Compressão interrompida: " + nome, e);
+            }
+            escrever(comprimido, comprimido.length);
+            tamanhoComprimido += comprimido.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechada) return;
+            fechada = true;
+            try {
+                // O último bloco (mesmo vazio) fecha o stream deflate
+                despachar(true);
+                verificarLimite(tamanhoOriginal, nome);
+                verificarLimite(canal.position(), destino.toString());
+
+                // Corrige CRC e tamanhos no cabeçalho local (posição 14) e volta para o fim
+                long fim = canal.position();
+                ByteBuffer b = buffer(12);
+                b.putInt((int) crc.getValue()).putInt((int) tamanhoComprimido).putInt((int) tamanhoOriginal);
+                b.flip();
+                while (b.hasRemaining()) canal.write(b, posicaoCabecalho + 14 + (12 - b.remaining()));
+                canal.position(fim);
+
+                entradas.add(new Entrada(nomeBytes, metodo(), horaDos, dataDos, crc.getValue(),
+                        tamanhoComprimido, tamanhoOriginal, posicaoCabecalho));
+                informar();
+            } finally {
+                // Em caso de erro, descarta o que ainda estiver no pool
+                for (Future<byte[]> pendente : pendentes) pendente.cancel(true);
+                pendentes.clear();
+                entradaAberta = null;
+                cronometro.close();
+            }
+        }
+
+        private void informar() {
+            totalOriginal += tamanhoOriginal;
+            totalComprimido += tamanhoComprimido;
+            cronometro.itens(1).bytes(tamanhoOriginal);
+            Metricas.contar("compactacao.bytesComprimidos", tamanhoComprimido);
+            Metricas.definir("compactacao.razao", Metricas.razao(totalComprimido, totalOriginal));
+
+            double segundos = (System.nanoTime() - inicioNanos) / 1e9;
+            System.out.printf(Locale.US, "  %s: %.1f MB -> %.1f MB (%.1f%%) em %.2fs (%.1f MB/s, %s)%n", nome,
+                    tamanhoOriginal / 1_048_576.0, tamanhoComprimido / 1_048_576.0,
+                    tamanhoOriginal == 0 ? 100.0 : 100.0 * tamanhoComprimido / tamanhoOriginal, segundos,
+                    segundos > 0 ? tamanhoOriginal / 1_048_576.0 / segundos : 0,
+                    nivel == 0 ? "sem compressão" : threads + " threads");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.questao1.Metricas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agrupamento paralelo das despesas por (Razão Social, Modalidade, UF).
+ *
+ * Na construção, cada operadora do cadastro recebe o número do seu grupo: a chave composta
+ * (código da razão social, da modalidade e da UF) é empacotada num {@code long} e resolvida uma única vez
+ * por operadora, então nenhuma linha monta chave String nem consulta HashMap.
+ * Cada thread acumula numa {@link Parcial} própria (um {@link EstatisticasGrupo} por grupo, sem
+ * sincronização) e, no fim, as parciais são somadas. Como as somas são inteiras e exatas, o resultado
+ * não depende do número de threads.
+ *
+ * Além dos grupos do relatório, cada parcial soma as despesas por (operadora, período), usadas no
+ * {@link DespesasStore} e na {@link AnaliseTrimestral}; o período é {@code ano * 10 + trimestre} (0 quando a linha não informa).
+ *
+ * O cadastro é só lido, e pode ser compartilhado por todas as threads.
+ */
+final class AgrupamentoDespesas {
+
+    private final RegistroOperadoras cadastro;
+    private final int[] grupoPorOperadora;
+    private final String[] chavePorGrupo;
+
+    private final List<Parcial> parciais = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Parcial> parcialDaThread = ThreadLocal.withInitial(() -> {
+        Parcial parcial = new Parcial();
+        parciais.add(parcial);
+        return parcial;
+    });
+
+    AgrupamentoDespesas(RegistroOperadoras cadastro) {
+        this.cadastro = cadastro;
+        this.grupoPorOperadora = new int[cadastro.tamanho()];
+
+        Map<Long, Integer> grupoPorChave = new HashMap<>();
+        List<String> chaves = new ArrayList<>();
+        for (int i = 0; i < cadastro.tamanho(); i++) {
+            long chave = ((long) cadastro.codigoRazaoSocial(i) << 32)
+                    | ((long) cadastro.codigoModalidade(i) << 16)
+                    | cadastro.codigoUf(i);
+            Integer grupo = grupoPorChave.get(chave);
+            if (grupo == null) {
+                grupo = chaves.size();
+                grupoPorChave.put(chave, grupo);
+                // Chave do relatório: "RazaoSocial;Modalidade;UF"
+                chaves.add(cadastro.razaoSocial(i) + ";" + cadastro.modalidade(i) + ";" + cadastro.uf(i));
+            }
+            grupoPorOperadora[i] = grupo;
+        }
+        this.chavePorGrupo = chaves.toArray(new String[0]);
+    }
+
+    /**
+     * Recebe os totais de uma operadora em um período (ver {@link #percorrerPorPeriodo}).
+     */
+    @FunctionalInterface
+    interface ConsumidorPeriodo {
+        void aceitar(int indiceOperadora, int periodo, long centavos, long linhas);
+    }
+
+    /**
+     * Totais por (período, operadora) de todas as threads: {@code centavos[p][i]} e {@code linhas[p][i]} são os da
+     * operadora de índice {@code i} no cadastro no período {@code periodos[p]} (em ordem crescente).
+     */
+    record Serie(int[] periodos, long[][] centavos, long[][] linhas) {
+    }
+
+    /**
+     * Parcial da thread atual. Pegue uma vez por tarefa e use só nesta thread.
+     */
+    Parcial parcial() {
+        return parcialDaThread.get();
+    }
+
+    /**
+     * Chave do relatório ("RazaoSocial;Modalidade;UF") de um número de grupo.
+     */
+    String chave(int grupo) {
+        return chavePorGrupo[grupo];
+    }
+
+    /**
+     * Soma as parciais de todas as threads. Chame depois que todas as tarefas terminaram.
+     * Os contadores de linhas também são publicados nas {@link Metricas} ("agregacao.*").
+     * @return Estatísticas indexadas pelo número do grupo (null para grupos sem linhas).
+     */
+    EstatisticasGrupo[] resultado() {
+        EstatisticasGrupo[] total = new EstatisticasGrupo[chavePorGrupo.length];
+        long linhas = 0, validas = 0, cnpjInvalido = 0, descartadas = 0, naoPositivas = 0, foraDoCadastro = 0;
+        synchronized (parciais) {
+            for (Parcial parcial : parciais) {
+                linhas += parcial.linhas;
+                validas += parcial.validas;
+                cnpjInvalido += parcial.cnpjInvalido;
+                descartadas += parcial.descartadas;
+                naoPositivas += parcial.naoPositivas;
+                foraDoCadastro += parcial.foraDoCadastro;
+                for (int g = 0; g < total.length; g++) {
+                    EstatisticasGrupo grupo = parcial.grupos[g];
+                    if (grupo == null) continue;
+                    if (total[g] == null) total[g] = new EstatisticasGrupo();
+                    total[g].juntar(grupo);
+                }
+            }
+        }
+        System.out.println("  Linhas lidas: " + linhas + " | válidas: " + validas
+                + " | descartadas por CNPJ inválido: " + cnpjInvalido);
+
+        Metricas.contar("agregacao.linhas", linhas);
+        Metricas.contar("agregacao.validas", validas);
+        Metricas.contar("agregacao.descartadas", descartadas);
+        Metricas.contar("agregacao.naoPositivas", naoPositivas);
+        Metricas.contar("agregacao.foraDoCadastro", foraDoCadastro);
+        Metricas.contar("agregacao.cnpjInvalido", cnpjInvalido);
+        // Falhas do enriquecimento: linhas com valor válido cujo registro não está no cadastro ativo
+        Metricas.definir("enriquecimento.taxaFalha", Metricas.razao(foraDoCadastro, linhas - descartadas - naoPositivas));
+        return total;
+    }
+
+    /**
+     * Soma os totais por (operadora, período) de todas as threads e os entrega ordenados por operadora
+     * (índice no cadastro) e período. Só aparecem pares com linhas válidas. Chame depois que todas as tarefas terminaram.
+     */
+    void percorrerPorPeriodo(ConsumidorPeriodo consumidor) {
+        Serie serie = seriePorPeriodo();
+        int[] periodos = serie.periodos();
+        for (int i = 0; i < cadastro.tamanho(); i++) {
+            for (int p = 0; p < periodos.length; p++) {
+                if (serie.linhas()[p][i] > 0) consumidor.aceitar(i, periodos[p], serie.centavos()[p][i], serie.linhas()[p][i]);
+            }
+        }
+    }
+
+    /**
+     * Soma os totais por (operadora, período) de todas as threads numa {@link Serie}, um array por período.
+     * Chame depois que todas as tarefas terminaram.
+     */
+    Serie seriePorPeriodo() {
+        int operadoras = cadastro.tamanho();
+        TreeMap<Integer, long[][]> porPeriodo = new TreeMap<>();
+        synchronized (parciais) {
+            for (Parcial parcial : parciais) {
+                for (int p = 0; p < parcial.quantidadePeriodos; p++) {
+                    long[][] total = porPeriodo.computeIfAbsent(parcial.periodos[p], k -> new long[2][operadoras]);
+                    for (int i = 0; i < operadoras; i++) {
+                        total[0][i] += parcial.centavosPorPeriodo[p][i];
+                        total[1][i] += parcial.linhasPorPeriodo[p][i];
+                    }
+                }
+            }
+        }
+
+        int[] periodos = porPeriodo.keySet().stream().mapToInt(Integer::intValue).toArray();
+        long[][] centavos = new long[periodos.length][];
+        long[][] linhas = new long[periodos.length][];
+        int p = 0;
+        for (long[][] total : porPeriodo.values()) {
+            centavos[p] = total[0];
+            linhas[p++] = total[1];
+        }
+        return new Serie(periodos, centavos, linhas);
+    }
+
+    /**
+     * Acumulador de uma thread: estatísticas por número de grupo e contadores de linhas.
+     */
+    final class Parcial {
+        private final EstatisticasGrupo[] grupos = new EstatisticasGrupo[chavePorGrupo.length];
+        private long linhas;
+        private long validas;
+        private long cnpjInvalido;
+        private long descartadas;
+        private long naoPositivas;
+        private long foraDoCadastro;
+
+        // Totais por (período, operadora): uma linha de arrays por período visto nesta thread.
+        // As linhas do consolidado vêm agrupadas por período, então o último período usado quase sempre acerta.
+        private int[] periodos = new int[4];
+        private long[][] centavosPorPeriodo = new long[4][];
+        private long[][] linhasPorPeriodo = new long[4][];
+        private int quantidadePeriodos;
+        private int ultimoPeriodo = -1;
+
+        /**
+         * Valida, enriquece (join com o cadastro) e acumula uma linha de despesa.
+         * @param periodo {@code ano * 10 + trimestre}, ou 0 se desconhecido (a linha só entra no relatório).
+         */
+        void adicionar(int registroAns, int periodo, long centavos) {
+            linhas++;
+            if (centavos <= 0) { // Descarta valores negativos ou zero
+                naoPositivas++;
+                return;
+            }
+
+            int indiceOperadora = cadastro.indiceDe(registroAns);
+            // Fora do cadastro ativo: sem UF e Modalidade oficiais, a linha é ignorada
+            if (indiceOperadora < 0) {
+                foraDoCadastro++;
+                return;
+            }
+
+            // CNPJ validado uma vez por operadora na carga do cadastro
+            if (!cadastro.cnpjValido(indiceOperadora)) {
+                cnpjInvalido++;
+                return;
+            }
+
+            validas++;
+            int g = grupoPorOperadora[indiceOperadora];
+            EstatisticasGrupo grupo = grupos[g];
+            if (grupo == null) {
+                grupo = new EstatisticasGrupo();
+                grupos[g] = grupo;
+            }
+            grupo.adicionar(centavos);
+
+            if (periodo > 0) {
+                int p = posicaoPeriodo(periodo);
+                centavosPorPeriodo[p][indiceOperadora] += centavos;
+                linhasPorPeriodo[p][indiceOperadora]++;
+            }
+        }
+
+        private int posicaoPeriodo(int periodo) {
+            if (ultimoPeriodo >= 0 && periodos[ultimoPeriodo] == periodo) return ultimoPeriodo;
+            for (int p = 0; p < quantidadePeriodos; p++) {
+                if (periodos[p] == periodo) return ultimoPeriodo = p;
+            }
+            if (quantidadePeriodos == periodos.length) {
+                periodos = Arrays.copyOf(periodos, quantidadePeriodos * 2);
+                centavosPorPeriodo = Arrays.copyOf(centavosPorPeriodo, quantidadePeriodos * 2);
+                linhasPorPeriodo = Arrays.copyOf(linhasPorPeriodo, quantidadePeriodos * 2);
+            }
+            int p = quantidadePeriodos++;
+            periodos[p] = periodo;
+            centavosPorPeriodo[p] = new long[cadastro.tamanho()];
+            linhasPorPeriodo[p] = new long[cadastro.tamanho()];
+            return ultimoPeriodo = p;
+        }
+
+        /**
+         * Conta uma linha descartada antes do join (estrutura inválida ou valor não numérico).
+         */
+        void descartar() {
+            linhas++;
+            descartadas++;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.questao1.Centavos;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Análises por operadora e trimestre feitas em memória, sobre os totais que a agregação já soma
+ * ({@link AgrupamentoDespesas.Serie}): as mesmas perguntas do sql/03_consultas_analiticas.sql, sem carregar
+ * nada no banco.
+ * - Crescimento: despesa da operadora no primeiro e no último trimestre (só quem tem despesa nos dois);
+ * - Distribuição por UF e por modalidade: operadoras com despesa, lançamentos, total e médias;
+ * - Acima da média: em cada trimestre, as operadoras cujo total passa da média das operadoras com despesa
+ *   naquele trimestre, e em quantos trimestres isso aconteceu para cada uma.
+ *
+ * Tudo é calculado com os centavos exatos ({@code long}); as comparações de razões (crescimento e média)
+ * são feitas por multiplicação cruzada em 128 bits, então a ordem não depende de arredondamento.
+ * Só o percentual gravado usa ponto flutuante.
+ */
+final class AnaliseTrimestral {
+
+    static final String ARQUIVO_CRESCIMENTO = "analise_crescimento.csv";
+    static final String ARQUIVO_UF = "analise_uf.csv";
+    static final String ARQUIVO_MODALIDADE = "analise_modalidade.csv";
+    static final String ARQUIVO_ACIMA_MEDIA = "analise_acima_media.csv";
+
+    /**
+     * Despesa de uma operadora no primeiro e no último trimestre.
+     */
+    record Crescimento(int indiceOperadora, long inicialCentavos, long finalCentavos) {
+
+        double percentual() {
+            return (finalCentavos - inicialCentavos) * 100.0 / inicialCentavos;
+        }
+    }
+
+    /**
+     * Operadoras com despesa, lançamentos e total de um valor de UF ou modalidade.
+     */
+    record Distribuicao(String chave, int operadoras, long lancamentos, long totalCentavos) {
+
+        long mediaPorOperadoraCentavos() {
+            return media(totalCentavos, operadoras);
+        }
+
+        long mediaPorLancamentoCentavos() {
+            return media(totalCentavos, lancamentos);
+        }
+    }
+
+    private final RegistroOperadoras cadastro;
+    private final int[] periodos;
+    private final long[][] centavos;
+    private final long[][] linhas;
+
+    AnaliseTrimestral(RegistroOperadoras cadastro, AgrupamentoDespesas.Serie serie) {
+        this.cadastro = cadastro;
+        this.periodos = serie.periodos();
+        this.centavos = serie.centavos();
+        this.linhas = serie.linhas();
+    }
+
+    int quantidadePeriodos() {
+        return periodos.length;
+    }
+
+    /**
+     * Crescimento entre o primeiro e o último trimestre, do maior para o menor (empates pelo Registro ANS).
+     * Vazio com menos de dois trimestres.
+     */
+    List<Crescimento> crescimento() {
+        List<Crescimento> resultado = new ArrayList<>();
+        if (periodos.length < 2) return resultado;
+        int primeiro = 0;
+        int ultimo = periodos.length - 1;
+        for (int i = 0; i < cadastro.tamanho(); i++) {
+            if (linhas[primeiro][i] > 0 && linhas[ultimo][i] > 0 && centavos[primeiro][i] > 0) {
+                resultado.add(new Crescimento(i, centavos[primeiro][i], centavos[ultimo][i]));
+            }
+        }
+        // final/inicial maior = crescimento maior: compara f1 * i2 com f2 * i1
+        resultado.sort((a, b) -> {
+            int c = comparar(b.finalCentavos(), a.inicialCentavos(), a.finalCentavos(), b.inicialCentavos());
+            return c != 0 ? c : Integer.compare(cadastro.registroAns(a.indiceOperadora()), cadastro.registroAns(b.indiceOperadora()));
+        });
+        return resultado;
+    }
+
+    /**
+     * Distribuição por UF, do maior total para o menor.
+     */
+    List<Distribuicao> porUf() {
+        return distribuir(cadastro.quantidadeUfs(), true);
+    }
+
+    /**
+     * Distribuição por modalidade, do maior total para o menor.
+     */
+    List<Distribuicao> porModalidade() {
+        return distribuir(cadastro.quantidadeModalidades(), false);
+    }
+
+    /**
+     * Em quantos trimestres cada operadora (índice no cadastro) ficou acima da média do trimestre.
+     */
+    int[] trimestresAcimaDaMedia() {
+        int[] acima = new int[cadastro.tamanho()];
+        for (int p = 0; p < periodos.length; p++) {
+            long total = 0;
+            long operadoras = 0;
+            for (int i = 0; i < acima.length; i++) {
+                if (linhas[p][i] > 0) {
+                    total += centavos[p][i];
+                    operadoras++;
+                }
+            }
+            // centavos > total / operadoras, sem divisão
+            for (int i = 0; i < acima.length; i++) {
+                if (linhas[p][i] > 0 && comparar(centavos[p][i], operadoras, total, 1) > 0) acima[i]++;
+            }
+        }
+        return acima;
+    }
+
+    /**
+     * Trimestres com despesa de cada operadora (índice no cadastro).
+     */
+    int[] trimestresComDespesa() {
+        int[] trimestres = new int[cadastro.tamanho()];
+        for (int p = 0; p < periodos.length; p++) {
+            for (int i = 0; i < trimestres.length; i++) {
+                if (linhas[p][i] > 0) trimestres[i]++;
+            }
+        }
+        return trimestres;
+    }
+
+    /**
+     * Grava os quatro arquivos de análise na pasta.
+     * @param minimoTrimestres Operadoras no arquivo de acima da média: as que ficaram acima em pelo menos
+     *                         esse número de trimestres.
+     * @return Quantas operadoras ficaram acima da média em pelo menos {@code minimoTrimestres} trimestres.
+     */
+    int gravar(Path pasta, int minimoTrimestres) throws IOException {
+        try (PrintWriter pw = abrir(pasta.resolve(ARQUIVO_CRESCIMENTO))) {
+            pw.println("RegistroANS;Razao_Social;Modalidade;UF;Trimestre_Inicial;Despesa_Inicial;Trimestre_Final;Despesa_Final;Crescimento_Percentual");
+            String inicial = periodos.length < 2 ? "" : rotulo(periodos[0]);
+            String fim = periodos.length < 2 ? "" : rotulo(periodos[periodos.length - 1]);
+            for (Crescimento c : crescimento()) {
+                int i = c.indiceOperadora();
+                pw.println(operadora(i) + ";" + inicial + ";" + Centavos.formatar(c.inicialCentavos()) + ";"
+                        + fim + ";" + Centavos.formatar(c.finalCentavos()) + ";"
+                        + String.format(Locale.US, "%.2f", c.percentual()));
+            }
+            verificar(pw, ARQUIVO_CRESCIMENTO);
+        }
+        gravarDistribuicao(pasta.resolve(ARQUIVO_UF), "UF", porUf());
+        gravarDistribuicao(pasta.resolve(ARQUIVO_MODALIDADE), "Modalidade", porModalidade());
+
+        int[] acima = trimestresAcimaDaMedia();
+        int[] comDespesa = trimestresComDespesa();
+        List<Integer> selecionadas = new ArrayList<>();
+        for (int i = 0; i < acima.length; i++) {
+            if (acima[i] > 0 && acima[i] >= minimoTrimestres) selecionadas.add(i);
+        }
+        selecionadas.sort(Comparator.<Integer>comparingInt(i -> -acima[i]).thenComparingInt(cadastro::registroAns));
+        try (PrintWriter pw = abrir(pasta.resolve(ARQUIVO_ACIMA_MEDIA))) {
+            pw.println("RegistroANS;Razao_Social;Modalidade;UF;Trimestres_Com_Despesa;Trimestres_Acima_Da_Media");
+            for (int i : selecionadas) {
+                pw.println(operadora(i) + ";" + comDespesa[i] + ";" + acima[i]);
+            }
+            verificar(pw, ARQUIVO_ACIMA_MEDIA);
+        }
+        return selecionadas.size();
+    }
+
+    private void gravarDistribuicao(Path arquivo, String coluna, List<Distribuicao> distribuicao) throws IOException {
+        try (PrintWriter pw = abrir(arquivo)) {
+            pw.println(coluna + ";Operadoras;Lancamentos;Total_Despesas;Media_Por_Operadora;Media_Por_Lancamento");
+            for (Distribuicao d : distribuicao) {
+                pw.println(d.chave() + ";" + d.operadoras() + ";" + d.lancamentos() + ";" + Centavos.formatar(d.totalCentavos()) + ";"
+                        + Centavos.formatar(d.mediaPorOperadoraCentavos()) + ";" + Centavos.formatar(d.mediaPorLancamentoCentavos()));
+            }
+            verificar(pw, arquivo.getFileName().toString());
+        }
+    }
+
+    private List<Distribuicao> distribuir(int quantidadeCodigos, boolean porUf) {
+        int[] operadoras = new int[quantidadeCodigos];
+        long[] lancamentos = new long[quantidadeCodigos];
+        long[] totais = new long[quantidadeCodigos];
+        for (int i = 0; i < cadastro.tamanho(); i++) {
+            long linhasOperadora = 0;
+            long totalOperadora = 0;
+            for (int p = 0; p < periodos.length; p++) {
+                linhasOperadora += linhas[p][i];
+                totalOperadora += centavos[p][i];
+            }
+            if (linhasOperadora == 0) continue;
+            int c = porUf ? cadastro.codigoUf(i) : cadastro.codigoModalidade(i);
+            operadoras[c]++;
+            lancamentos[c] += linhasOperadora;
+            totais[c] += totalOperadora;
+        }
+
+        List<Distribuicao> distribuicao = new ArrayList<>();
+        for (int c = 0; c < quantidadeCodigos; c++) {
+            if (operadoras[c] == 0) continue;
+            distribuicao.add(new Distribuicao(porUf ? cadastro.ufPorCodigo(c) : cadastro.modalidadePorCodigo(c),
+                    operadoras[c], lancamentos[c], totais[c]));
+        }
+        distribuicao.sort(Comparator.comparingLong(Distribuicao::totalCentavos).reversed()
+                .thenComparing(Distribuicao::chave));
+        return distribuicao;
+    }
+
+    /**
+     * "RegistroANS;Razao_Social;Modalidade;UF" da operadora.
+     */
+    private String operadora(int i) {
+        return cadastro.registroAns(i) + ";" + cadastro.razaoSocial(i) + ";" + cadastro.modalidade(i) + ";" + cadastro.uf(i);
+    }
+
+    /**
+     * Rótulo do período {@code ano * 10 + trimestre} (ex: 20253 -> "3T2025").
+     */
+    static String rotulo(int periodo) {
+        return (periodo % 10) + "T" + (periodo / 10);
+    }
+
+    /**
+     * Sinal de {@code a * b - c * d} para quaisquer valores com sinal (centavos podem ser negativos:
+     * estornos e trimestres com total negativo), sem estouro. Cada produto é tratado como um inteiro de
+     * 128 bits em complemento de dois: a metade alta ({@link Math#multiplyHigh}) decide com sinal e, se for
+     * igual, a metade baixa decide sem sinal. Não vale trocar por um atalho que suponha valores não negativos.
+     */
+    private static int comparar(long a, long b, long c, long d) {
+        long alto1 = Math.multiplyHigh(a, b);
+        long alto2 = Math.multiplyHigh(c, d);
+        if (alto1 != alto2) return Long.compare(alto1, alto2);
+        return Long.compareUnsigned(a * b, c * d);
+    }
+
+    /**
+     * Média arredondada (meio para cima), como {@link EstatisticasGrupo#getMediaCentavos()}.
+     */
+    private static long media(long total, long quantidade) {
+        return quantidade == 0 ? 0 : Math.floorDiv(2 * total + quantidade, 2 * quantidade);
+    }
+
+    private static PrintWriter abrir(Path arquivo) throws IOException {
+        return new PrintWriter(Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * O PrintWriter não lança exceções: confere se algo falhou antes de fechar.
+     */
+    private static void verificar(PrintWriter pw, String arquivo) throws IOException {
+        pw.flush();
+        if (pw.checkError()) throw new IOException("Erro ao gravar " + arquivo);
+    }
+}
@@ -2,28 +2,63 @@ package com.intuitivecare.questao2;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Classe responsavel por carregar os Dados Cadastrais das Operadoras (Relatorio_Cadop.csv).
  * Serve como tabela de dominio para o enriquecimento de dados.
+ *
+ * A primeira carga de um CSV grava um snapshot binário do cadastro ao lado dele ({@code <csv>.snapshot},
+ * ou -Dans.cadastro.snapshot=<arquivo>; vazio desliga). As cargas seguintes só mapeiam esse arquivo em
+ * memória ({@link RegistroOperadoras#abrir}), sem ler o CSV. O snapshot guarda o tamanho e a data de
+ * modificação do CSV de origem: se o CSV mudar, ele é descartado e refeito na próxima carga.
  */
 public class AnsCadastro {
     
-    // Mapa estatico: Chave = RegistroANS (String), Valor = Array de Strings (Linha completa do CSV)
-    private static Map<String, String[]> mapaOperadoras = new HashMap<>();
+    // Cadastro atual: imutável, indexado pelo RegistroANS (int). Trocado por inteiro a cada carga,
+    // então leitores em outras threads sempre enxergam uma versão completa.
+    private static volatile RegistroOperadoras registro = RegistroOperadoras.VAZIO;
 
     public static void carregarCadastro(String nomeArquivo) {
+        String snapshot = System.getProperty("ans.cadastro.snapshot", nomeArquivo + ".snapshot");
+        carregarCadastro(nomeArquivo, snapshot.isEmpty() ? null : Paths.get(snapshot));
+    }
+
+    /**
+     * Carrega o cadastro usando (e, se preciso, refazendo) o snapshot informado.
+     * @param snapshot Arquivo do snapshot, ou null para sempre ler o CSV.
+     */
+    public static void carregarCadastro(String nomeArquivo, Path snapshot) {
+        Path csv = Paths.get(nomeArquivo);
+        long tamanhoFonte = -1;
+        long modificacaoFonte = -1;
+        if (snapshot != null && Files.isRegularFile(csv)) {
+            try {
+                // Origem lida antes do CSV: se ele mudar durante a leitura, o snapshot já nasce desatualizado
+                tamanhoFonte = Files.size(csv);
+                modificacaoFonte = Files.getLastModifiedTime(csv).toMillis();
+                RegistroOperadoras mapeado = RegistroOperadoras.abrir(snapshot, tamanhoFonte, modificacaoFonte);
+                if (mapeado != null) {
+                    registro = mapeado;
+                    System.out.println("  Cadastro aberto do snapshot '" + snapshot + "'. Total de Operadoras: " + mapeado.tamanho());
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("  Snapshot do cadastro ignorado (" + snapshot + "): " + e.getMessage());
+            }
+        }
+
         System.out.println("  Lendo arquivo de cadastro: '" + nomeArquivo + "'...");
         
-        try {
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(nomeArquivo), StandardCharsets.ISO_8859_1)
-            );
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(nomeArquivo), StandardCharsets.ISO_8859_1))) {
 
+            RegistroOperadoras.Construtor construtor = new RegistroOperadoras.Construtor();
             String linha;
             int cont = 0;
 
@@ -37,15 +72,32 @@ public class AnsCadastro {
 
                 if (colunas.length > 0) {
                     // Coluna 0 geralmente é o RegistroANS
-                    String regAns = colunas[0].replace("\"", "").trim();
+                    String regAns = limpar(colunas, 0, "");
                     
                     if (!regAns.isEmpty()) {
-                        mapaOperadoras.put(regAns, colunas);
+                        // Os campos são limpos uma única vez aqui, e não a cada busca
+                        // (Indices baseados no layout padrão CSV da ANS)
+                        construtor.adicionar(
+                                paraInteiro(regAns),
+                                limpar(colunas, 1, ""),
+                                limpar(colunas, 2, ""),
+                                limpar(colunas, 4, "Desconhecida"),
+                                limpar(colunas, 10, "ND"));
                     }
                 }
             }
-            reader.close();
-            System.out.println("   Sucesso! Cadastro carregado na memória RAM. Total de Operadoras: " + mapaOperadoras.size());
+
+            registro = construtor.construir();
+            System.out.println("   Sucesso! Cadastro carregado na memória RAM. Total de Operadoras: " + registro.tamanho());
+
+            if (snapshot != null && tamanhoFonte >= 0) {
+                try {
+                    registro.gravar(snapshot, tamanhoFonte, modificacaoFonte);
+                } catch (IOException e) {
+                    // Sem snapshot a próxima carga só volta a ler o CSV
+                    System.err.println("  Não foi possível gravar o snapshot do cadastro: " + e.getMessage());
+                }
+            }
 
         } catch (Exception e) {
             System.err.println("  Erro ao ler cadastro: " + e.getMessage());
@@ -53,11 +105,29 @@ public class AnsCadastro {
     }
 
     /**
-     * Busca os dados de uma operadora pelo Registro ANS.
-     * @param registroAns O código de registro.
-     * @return Array de Strings com os dados ou null se não encontrar.
+     * Devolve o cadastro carregado (vazio se {@link #carregarCadastro(String)} ainda não rodou).
+     * O objeto é imutável e pode ser usado por várias threads ao mesmo tempo.
+     */
+    public static RegistroOperadoras getRegistro() {
+        return registro;
+    }
+
+    /**
+     * Remove aspas e espaços de uma coluna; se a linha não tiver a coluna, devolve o valor padrão.
      */
-    public static String[] buscarOperadora(String registroAns) {
-        return mapaOperadoras.get(registroAns);
+    private static String limpar(String[] colunas, int indice, String padrao) {
+        if (colunas.length <= indice) return padrao;
+        return colunas[indice].replace("\"", "").trim();
+    }
+
+    /**
+     * Converte o RegistroANS para int; registros não numéricos viram 0 e são ignorados pelo cadastro.
+     */
+    private static int paraInteiro(String regAns) {
+        try {
+            return Integer.parseInt(regAns);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
-}
\ No newline at end of file
+}
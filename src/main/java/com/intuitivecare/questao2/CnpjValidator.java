@@ -3,62 +3,92 @@ package com.intuitivecare.questao2;
 /**
  * Utilitario para validacao de CNPJ.
  * Realiza a validacao matematica dos digitos verificadores (Módulo 11).
+ *
+ * A validação é feita numa única passada sobre os caracteres (ou bytes), pulando a formatação
+ * (". / - \"" e espaços) sem criar Strings intermediárias.
  */
 public class CnpjValidator {
 
-    public static boolean isCNPJ(String CNPJ) {
+    // Pesos do 1o. e do 2o. dígito verificador para as posições 0..11 e 0..12
+    private static final int[] PESOS_DV1 = {5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
+    private static final int[] PESOS_DV2 = {6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
+
+    public static boolean isCNPJ(CharSequence CNPJ) {
         if (CNPJ == null) return false;
-        
-        // Limpa formatação para deixar apenas números
-        CNPJ = CNPJ.replace(".", "").replace("/", "").replace("-", "").replace("\"", "").trim();
 
-        // Verifica tamanho e sequências repetidas inválidas
-        if (CNPJ.length() != 14 ||
-            CNPJ.equals("00000000000000") || CNPJ.equals("11111111111111") ||
-            CNPJ.equals("22222222222222") || CNPJ.equals("33333333333333") ||
-            CNPJ.equals("44444444444444") || CNPJ.equals("55555555555555") ||
-            CNPJ.equals("66666666666666") || CNPJ.equals("77777777777777") ||
-            CNPJ.equals("88888888888888") || CNPJ.equals("99999999999999")) {
-            return false;
+        Acumulador acc = new Acumulador();
+        for (int i = 0; i < CNPJ.length(); i++) {
+            if (!acc.adicionar(CNPJ.charAt(i))) return false;
         }
+        return acc.valido();
+    }
 
-        char dig13, dig14;
-        int sm, i, r, num, peso;
+    /**
+     * Valida um CNPJ guardado em bytes (ASCII/ISO-8859-1), no intervalo [inicio, fim).
+     */
+    public static boolean isCNPJ(byte[] dados, int inicio, int fim) {
+        Acumulador acc = new Acumulador();
+        for (int i = inicio; i < fim; i++) {
+            if (!acc.adicionar((char) (dados[i] & 0xFF))) return false;
+        }
+        return acc.valido();
+    }
 
-        try {
-            // Calculo do 1o. Digito Verificador
-            sm = 0;
-            peso = 2;
-            for (i = 11; i >= 0; i--) {
-                num = (int) (CNPJ.charAt(i) - 48);
-                sm = sm + (num * peso);
-                peso = peso + 1;
-                if (peso == 10) peso = 2;
-            }
+    /**
+     * Valida uma coluna inteira de CNPJs de uma vez.
+     * @return Array com o resultado de cada posição (null conta como inválido).
+     */
+    public static boolean[] validarLote(CharSequence[] cnpjs) {
+        boolean[] resultado = new boolean[cnpjs.length];
+        for (int i = 0; i < cnpjs.length; i++) {
+            resultado[i] = isCNPJ(cnpjs[i]);
+        }
+        return resultado;
+    }
 
-            r = sm % 11;
-            if ((r == 0) || (r == 1)) dig13 = '0';
-            else dig13 = (char) ((11 - r) + 48);
+    /**
+     * Estado da passada única: somas ponderadas dos dois DVs, os dígitos informados nas posições
+     * 12 e 13 e se todos os dígitos são iguais. Vive só na pilha (o JIT elimina a alocação).
+     */
+    private static final class Acumulador {
+        private int digitos;
+        private int soma1;
+        private int soma2;
+        private int primeiro = -1;
+        private boolean todosIguais = true;
+        private int dv1Informado;
+        private int dv2Informado;
 
-            // Calculo do 2o. Digito Verificador
-            sm = 0;
-            peso = 2;
-            for (i = 12; i >= 0; i--) {
-                num = (int) (CNPJ.charAt(i) - 48);
-                sm = sm + (num * peso);
-                peso = peso + 1;
-                if (peso == 10) peso = 2;
-            }
+        /**
+         * @return false se o caractere não é dígito nem formatação, ou se passou de 14 dígitos.
+         */
+        boolean adicionar(char c) {
+            if (c == '.' || c == '/' || c == '-' || c == '"' || c <= ' ') return true;
+            if (c < '0' || c > '9' || digitos == 14) return false;
 
-            r = sm % 11;
-            if ((r == 0) || (r == 1)) dig14 = '0';
-            else dig14 = (char) ((11 - r) + 48);
+            int d = c - '0';
+            if (primeiro < 0) primeiro = d;
+            else if (d != primeiro) todosIguais = false;
 
-            // Verifica se os calculados coincidem com os informados
-            return (dig13 == CNPJ.charAt(12)) && (dig14 == CNPJ.charAt(13));
+            if (digitos < 12) soma1 += d * PESOS_DV1[digitos];
+            if (digitos < 13) soma2 += d * PESOS_DV2[digitos];
+            if (digitos == 12) dv1Informado = d;
+            if (digitos == 13) dv2Informado = d;
+            digitos++;
+            return true;
+        }
+
+        boolean valido() {
+            // Verifica tamanho e sequências repetidas inválidas (00000000000000, 11111111111111, ...)
+            if (digitos != 14 || todosIguais) return false;
 
-        } catch (Exception erro) {
-            return false;
+            int r = soma1 % 11;
+            int dv1 = r < 2 ? 0 : 11 - r;
+            r = soma2 % 11;
+            int dv2 = r < 2 ? 0 : 11 - r;
+
+            // Verifica se os calculados coincidem com os informados
+            return dv1 == dv1Informado && dv2 == dv2Informado;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,368 @@
+package com.intuitivecare.questao2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base persistente de operadoras e despesas, gravada no fim da Questão 2 e consultada pela API.
+ * Substitui a releitura do Relatorio_Cadop.csv e do consolidado.csv a cada requisição.
+ *
+ * - Operadoras: na ordem do cadastro (listagem paginada por posição), com índice pelo Registro ANS
+ *   (busca binária num array ordenado) e pelo CNPJ (só dígitos, HashMap);
+ * - Despesas: totais por (operadora, trimestre), contíguos por operadora e em ordem de período
+ *   (arrays no formato CSR: {@code inicioDespesas[i] .. inicioDespesas[i + 1]});
+ * - Estatísticas por UF e por modalidade são calculadas uma vez, na abertura.
+ *
+ * O arquivo é binário ({@link DataOutputStream}), gravado num temporário e trocado de uma vez, então quem
+ * abre nunca vê uma versão pela metade. Depois de aberta, a base é imutável e pode ser compartilhada entre threads.
+ */
+public final class DespesasStore {
+
+    // Assinatura "ANSSTO1\0": identifica o arquivo e a versão do formato
+    private static final long ASSINATURA = 0x414E5353544F3100L;
+
+    /**
+     * Operadora do cadastro com o total das suas despesas em todos os trimestres.
+     */
+    public record Operadora(int registroAns, String cnpj, String razaoSocial, String modalidade, String uf,
+                            boolean cnpjValido, long totalCentavos, long quantidadeDespesas) {
+    }
+
+    /**
+     * Total de despesas de uma operadora em um trimestre.
+     */
+    public record DespesaTrimestre(int ano, int trimestre, long totalCentavos, long quantidade) {
+    }
+
+    /**
+     * Uma página de resultados: {@code total} é o número de itens de todas as páginas.
+     */
+    public record Pagina<T>(List<T> dados, int total, int pagina, int limite) {
+    }
+
+    /**
+     * Operadoras e despesas agrupadas por um valor (uma UF ou uma modalidade).
+     */
+    public record Distribuicao(String chave, int operadoras, long totalCentavos, long quantidadeDespesas) {
+    }
+
+    private final int[] registros;
+    private final String[] cnpjs;
+    private final String[] razoesSociais;
+    private final short[] codigosModalidade;
+    private final short[] codigosUf;
+    private final boolean[] cnpjsValidos;
+    private final String[] dicionarioModalidades;
+    private final String[] dicionarioUfs;
+
+    // Despesas (CSR): as da operadora i ficam nas posições inicioDespesas[i] até inicioDespesas[i + 1] - 1
+    private final int[] inicioDespesas;
+    private final int[] periodos;
+    private final long[] centavos;
+    private final long[] linhas;
+
+    // Índices montados na abertura
+    private final int[] registrosOrdenados;
+    private final int[] posicaoPorRegistro;
+    private final Map<String, Integer> posicaoPorCnpj;
+    private final List<Distribuicao> porUf;
+    private final List<Distribuicao> porModalidade;
+
+    private DespesasStore(DataInputStream in) throws IOException {
+        if (in.readLong() != ASSINATURA) {
+            throw new IOException("Arquivo não é uma base de despesas (assinatura inválida)");
+        }
+        dicionarioModalidades = lerTextos(in);
+        dicionarioUfs = lerTextos(in);
+
+        int n = in.readInt();
+        registros = new int[n];
+        cnpjs = new String[n];
+        razoesSociais = new String[n];
+        codigosModalidade = new short[n];
+        codigosUf = new short[n];
+        cnpjsValidos = new boolean[n];
+        inicioDespesas = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            registros[i] = in.readInt();
+            cnpjs[i] = in.readUTF();
+            razoesSociais[i] = in.readUTF();
+            codigosModalidade[i] = in.readShort();
+            codigosUf[i] = in.readShort();
+            cnpjsValidos[i] = in.readBoolean();
+            inicioDespesas[i + 1] = inicioDespesas[i] + in.readInt();
+        }
+
+        int d = inicioDespesas[n];
+        periodos = new int[d];
+        centavos = new long[d];
+        linhas = new long[d];
+        for (int j = 0; j < d; j++) {
+            periodos[j] = in.readInt();
+            centavos[j] = in.readLong();
+            linhas[j] = in.readLong();
+        }
+
+        // Registro ANS -> posição: pares ordenados pelo registro para busca binária
+        long[] pares = new long[n];
+        for (int i = 0; i < n; i++) pares[i] = ((long) registros[i] << 32) | i;
+        Arrays.sort(pares);
+        registrosOrdenados = new int[n];
+        posicaoPorRegistro = new int[n];
+        for (int i = 0; i < n; i++) {
+            registrosOrdenados[i] = (int) (pares[i] >>> 32);
+            posicaoPorRegistro[i] = (int) pares[i];
+        }
+
+        posicaoPorCnpj = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            String digitos = somenteDigitos(cnpjs[i]);
+            if (!digitos.isEmpty()) posicaoPorCnpj.putIfAbsent(digitos, i);
+        }
+
+        porUf = distribuir(codigosUf, dicionarioUfs);
+        porModalidade = distribuir(codigosModalidade, dicionarioModalidades);
+    }
+
+    /**
+     * Abre uma base gravada por {@link Construtor#gravar(Path)}, carregando tudo em memória.
+     */
+    public static DespesasStore abrir(Path arquivo) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo), 64 * 1024))) {
+            return new DespesasStore(in);
+        }
+    }
+
+    public int totalOperadoras() {
+        return registros.length;
+    }
+
+    /**
+     * Operadoras na ordem do cadastro, {@code limite} por página (páginas a partir de 1).
+     */
+    public Pagina<Operadora> listarOperadoras(int pagina, int limite) {
+        int inicio = (int) Math.min(registros.length, (long) Math.max(0, pagina - 1) * Math.max(0, limite));
+        int fim = (int) Math.min(registros.length, (long) inicio + Math.max(0, limite));
+        List<Operadora> dados = new ArrayList<>(fim - inicio);
+        for (int i = inicio; i < fim; i++) dados.add(operadora(i));
+        return new Pagina<>(dados, registros.length, pagina, limite);
+    }
+
+    /**
+     * @return A operadora, ou null se o registro não estiver na base.
+     */
+    public Operadora buscarPorRegistro(int registroAns) {
+        int i = posicaoDoRegistro(registroAns);
+        return i < 0 ? null : operadora(i);
+    }
+
+    /**
+     * Busca pelo CNPJ completo, com ou sem pontuação ("12.345.678/0001-90" ou "12345678000190").
+     * @return A operadora, ou null se nenhuma tiver esse CNPJ.
+     */
+    public Operadora buscarPorCnpj(String cnpj) {
+        Integer i = posicaoPorCnpj.get(somenteDigitos(cnpj));
+        return i == null ? null : operadora(i);
+    }
+
+    /**
+     * Despesas da operadora por trimestre, do mais antigo para o mais recente (vazio se o CNPJ não existir).
+     */
+    public List<DespesaTrimestre> historicoPorCnpj(String cnpj) {
+        Integer i = posicaoPorCnpj.get(somenteDigitos(cnpj));
+        return i == null ? List.of() : historico(i);
+    }
+
+    /**
+     * Igual a {@link #historicoPorCnpj(String)}, pelo Registro ANS.
+     */
+    public List<DespesaTrimestre> historicoPorRegistro(int registroAns) {
+        int i = posicaoDoRegistro(registroAns);
+        return i < 0 ? List.of() : historico(i);
+    }
+
+    /**
+     * Operadoras e despesas por UF, da UF com mais operadoras para a com menos.
+     */
+    public List<Distribuicao> estatisticasPorUf() {
+        return porUf;
+    }
+
+    /**
+     * Operadoras e despesas por modalidade, da modalidade com mais operadoras para a com menos.
+     */
+    public List<Distribuicao> estatisticasPorModalidade() {
+        return porModalidade;
+    }
+
+    private int posicaoDoRegistro(int registroAns) {
+        int k = Arrays.binarySearch(registrosOrdenados, registroAns);
+        return k < 0 ? -1 : posicaoPorRegistro[k];
+    }
+
+    private Operadora operadora(int i) {
+        long total = 0;
+        long quantidade = 0;
+        for (int j = inicioDespesas[i]; j < inicioDespesas[i + 1]; j++) {
+            total += centavos[j];
+            quantidade += linhas[j];
+        }
+        return new Operadora(registros[i], cnpjs[i], razoesSociais[i], dicionarioModalidades[codigosModalidade[i]],
+                dicionarioUfs[codigosUf[i]], cnpjsValidos[i], total, quantidade);
+    }
+
+    private List<DespesaTrimestre> historico(int i) {
+        List<DespesaTrimestre> historico = new ArrayList<>(inicioDespesas[i + 1] - inicioDespesas[i]);
+        for (int j = inicioDespesas[i]; j < inicioDespesas[i + 1]; j++) {
+            historico.add(new DespesaTrimestre(periodos[j] / 10, periodos[j] % 10, centavos[j], linhas[j]));
+        }
+        return historico;
+    }
+
+    private List<Distribuicao> distribuir(short[] codigos, String[] dicionario) {
+        int[] operadoras = new int[dicionario.length];
+        long[] totais = new long[dicionario.length];
+        long[] quantidades = new long[dicionario.length];
+        for (int i = 0; i < codigos.length; i++) {
+            int c = codigos[i];
+            operadoras[c]++;
+            for (int j = inicioDespesas[i]; j < inicioDespesas[i + 1]; j++) {
+                totais[c] += centavos[j];
+                quantidades[c] += linhas[j];
+            }
+        }
+
+        List<Distribuicao> distribuicao = new ArrayList<>(dicionario.length);
+        for (int c = 0; c < dicionario.length; c++) {
+            distribuicao.add(new Distribuicao(dicionario[c], operadoras[c], totais[c], quantidades[c]));
+        }
+        distribuicao.sort(Comparator.comparingInt(Distribuicao::operadoras).reversed()
+                .thenComparing(Distribuicao::chave));
+        return Collections.unmodifiableList(distribuicao);
+    }
+
+    private static String[] lerTextos(DataInputStream in) throws IOException {
+        String[] textos = new String[in.readInt()];
+        for (int i = 0; i < textos.length; i++) textos[i] = in.readUTF();
+        return textos;
+    }
+
+    private static String somenteDigitos(String texto) {
+        if (texto == null) return "";
+        StringBuilder sb = new StringBuilder(14);
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Monta e grava a base a partir do cadastro e dos totais por (operadora, trimestre). Não é thread-safe.
+     */
+    public static final class Construtor {
+
+        private final RegistroOperadoras cadastro;
+        private int[] operadoras = new int[1024];
+        private int[] periodos = new int[1024];
+        private long[] centavos = new long[1024];
+        private long[] linhas = new long[1024];
+        private int tamanho;
+
+        public Construtor(RegistroOperadoras cadastro) {
+            this.cadastro = cadastro;
+        }
+
+        /**
+         * @param indiceOperadora Índice da operadora no cadastro ({@link RegistroOperadoras#indiceDe(int)})
+         * @param periodo {@code ano * 10 + trimestre}
+         * @param totalCentavos Soma das despesas da operadora no trimestre
+         * @param quantidade Número de lançamentos somados
+         */
+        public Construtor adicionarDespesa(int indiceOperadora, int periodo, long totalCentavos, long quantidade) {
+            if (tamanho == operadoras.length) {
+                int novo = tamanho * 2;
+                operadoras = Arrays.copyOf(operadoras, novo);
+                periodos = Arrays.copyOf(periodos, novo);
+                centavos = Arrays.copyOf(centavos, novo);
+                linhas = Arrays.copyOf(linhas, novo);
+            }
+            operadoras[tamanho] = indiceOperadora;
+            periodos[tamanho] = periodo;
+            centavos[tamanho] = totalCentavos;
+            linhas[tamanho] = quantidade;
+            tamanho++;
+            return this;
+        }
+
+        /**
+         * Grava a base em {@code arquivo} (via arquivo temporário na mesma pasta, trocado no fim).
+         */
+        public void gravar(Path arquivo) throws IOException {
+            int n = cadastro.tamanho();
+
+            // Despesas agrupadas por operadora (counting sort pelo índice) e, dentro dela, por período
+            int[] inicio = new int[n + 1];
+            for (int j = 0; j < tamanho; j++) inicio[operadoras[j] + 1]++;
+            for (int i = 0; i < n; i++) inicio[i + 1] += inicio[i];
+            int[] ordem = new int[tamanho];
+            int[] proxima = Arrays.copyOf(inicio, n);
+            for (int j = 0; j < tamanho; j++) ordem[proxima[operadoras[j]]++] = j;
+            for (int i = 0; i < n; i++) {
+                for (int a = inicio[i] + 1; a < inicio[i + 1]; a++) {
+                    int j = ordem[a];
+                    int b = a - 1;
+                    while (b >= inicio[i] && periodos[ordem[b]] > periodos[j]) {
+                        ordem[b + 1] = ordem[b];
+                        b--;
+                    }
+                    ordem[b + 1] = j;
+                }
+            }
+
+            Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporario), 64 * 1024))) {
+                    out.writeLong(ASSINATURA);
+                    out.writeInt(cadastro.quantidadeModalidades());
+                    for (int c = 0; c < cadastro.quantidadeModalidades(); c++) out.writeUTF(cadastro.modalidadePorCodigo(c));
+                    out.writeInt(cadastro.quantidadeUfs());
+                    for (int c = 0; c < cadastro.quantidadeUfs(); c++) out.writeUTF(cadastro.ufPorCodigo(c));
+
+                    out.writeInt(n);
+                    for (int i = 0; i < n; i++) {
+                        out.writeInt(cadastro.registroAns(i));
+                        out.writeUTF(cadastro.cnpj(i));
+                        out.writeUTF(cadastro.razaoSocial(i));
+                        out.writeShort(cadastro.codigoModalidade(i));
+                        out.writeShort(cadastro.codigoUf(i));
+                        out.writeBoolean(cadastro.cnpjValido(i));
+                        out.writeInt(inicio[i + 1] - inicio[i]);
+                    }
+                    for (int j : ordem) {
+                        out.writeInt(periodos[j]);
+                        out.writeLong(centavos[j]);
+                        out.writeLong(linhas[j]);
+                    }
+                }
+                Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.intuitivecare.questao2;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Acumulador de estatísticas de um grupo em passagem única.
+ * Guarda só somas inteiras exatas: quantidade, soma dos centavos ({@code long}, como um DECIMAL(15,2)
+ * do banco) e soma dos quadrados (128 bits, em duas metades de {@code long}). Com isso:
+ * - a memória não cresce com o número de linhas;
+ * - dois acumuladores podem ser juntados ({@link #juntar}) sem perda, em qualquer ordem, então o resultado
+ *   do agrupamento paralelo não depende do número de threads nem de como o arquivo foi dividido;
+ * - só o passo final da variância usa ponto flutuante (BigDecimal de alta precisão), sem {@code Math.pow}.
+ */
+class EstatisticasGrupo {
+
+    private static final MathContext PRECISAO = MathContext.DECIMAL128;
+    private static final BigDecimal CEM = BigDecimal.valueOf(100);
+
+    private long quantidade;
+    private long somaCentavos;
+    // Soma dos quadrados dos centavos, 128 bits sem sinal (alta:baixa)
+    private long somaQuadradosAlta;
+    private long somaQuadradosBaixa;
+
+    void adicionar(long centavos) {
+        quantidade++;
+        somaCentavos += centavos;
+        somarQuadrado(Math.multiplyHigh(centavos, centavos), centavos * centavos);
+    }
+
+    /**
+     * Soma as linhas de outro acumulador neste (usado ao juntar as parciais de cada thread).
+     */
+    void juntar(EstatisticasGrupo outro) {
+        quantidade += outro.quantidade;
+        somaCentavos += outro.somaCentavos;
+        somarQuadrado(outro.somaQuadradosAlta, outro.somaQuadradosBaixa);
+    }
+
+    long getQuantidade() {
+        return quantidade;
+    }
+
+    long getSomaCentavos() {
+        return somaCentavos;
+    }
+
+    /**
+     * Média (soma / quantidade) em centavos, arredondada para o centavo mais próximo (meio para cima).
+     */
+    long getMediaCentavos() {
+        return Math.floorDiv(2 * somaCentavos + quantidade, 2 * quantidade);
+    }
+
+    /**
+     * Desvio padrão populacional (divide por N, como no cálculo original), em reais.
+     * Variância = (N * soma dos quadrados - soma^2) / N^2, com o numerador calculado em inteiros exatos.
+     */
+    double getDesvioPadrao() {
+        BigInteger n = BigInteger.valueOf(quantidade);
+        BigInteger somaQuadrados = BigInteger.valueOf(somaQuadradosAlta).shiftLeft(64)
+                .add(new BigInteger(Long.toUnsignedString(somaQuadradosBaixa)));
+        BigInteger soma = BigInteger.valueOf(somaCentavos);
+        BigInteger numerador = n.multiply(somaQuadrados).subtract(soma.multiply(soma));
+
+        BigDecimal variancia = new BigDecimal(numerador).divide(new BigDecimal(n.multiply(n)), PRECISAO);
+        return variancia.sqrt(PRECISAO).divide(CEM, PRECISAO).doubleValue();
+    }
+
+    private void somarQuadrado(long alta, long baixa) {
+        long novaBaixa = somaQuadradosBaixa + baixa;
+        // "Vai um" da metade baixa (comparação sem sinal)
+        long vaiUm = Long.compareUnsigned(novaBaixa, somaQuadradosBaixa) < 0 ? 1 : 0;
+        somaQuadradosBaixa = novaBaixa;
+        somaQuadradosAlta += alta + vaiUm;
+    }
+}
@@ -0,0 +1,173 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.questao1.Centavos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lê o consolidado.csv linha a linha direto dos bytes, sem criar uma String por linha.
+ * Cada chamada de {@link #proximaLinha()} só marca onde começa e termina cada campo (separados por ';',
+ * como no {@code split(";")} original); os campos de interesse são convertidos sob demanda.
+ * Pode ler só um trecho [inicio, fim) do arquivo, para o processamento em paralelo
+ * (o trecho deve começar e terminar em fim de linha).
+ *
+ * Não é thread-safe; use uma instância por thread.
+ */
+class LeitorConsolidado implements Closeable {
+
+    private static final int TAMANHO_BUFFER = 1024 * 1024;
+    private static final int MAX_CAMPOS = 16;
+
+    private final FileChannel canal;
+    private long posicao;
+    private final long limite;
+    private byte[] dados = new byte[TAMANHO_BUFFER];
+    private int inicioDados;
+    private int fimDados;
+    private boolean fimArquivo;
+
+    private final int[] inicioCampo = new int[MAX_CAMPOS];
+    private final int[] fimCampo = new int[MAX_CAMPOS];
+    private int campos;
+
+    LeitorConsolidado(Path arquivo) throws IOException {
+        this(arquivo, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param inicio Byte inicial do trecho (início de uma linha)
+     * @param fim Byte final do trecho, exclusivo (logo após um '\n' ou o fim do arquivo)
+     */
+    LeitorConsolidado(Path arquivo, long inicio, long fim) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        this.posicao = inicio;
+        this.limite = fim;
+    }
+
+    /**
+     * Avança para a próxima linha.
+     * @return false no fim do arquivo.
+     */
+    boolean proximaLinha() throws IOException {
+        int fimLinha = acharFimDeLinha();
+        while (fimLinha < 0) {
+            if (fimArquivo) {
+                if (inicioDados == fimDados) return false;
+                fimLinha = fimDados; // Última linha sem '\n'
+                break;
+            }
+            carregar();
+            fimLinha = acharFimDeLinha();
+        }
+
+        int fimConteudo = fimLinha;
+        if (fimConteudo > inicioDados && dados[fimConteudo - 1] == '\r') fimConteudo--;
+
+        campos = 0;
+        int inicio = inicioDados;
+        for (int i = inicioDados; i <= fimConteudo && campos < MAX_CAMPOS; i++) {
+            if (i == fimConteudo || dados[i] == ';') {
+                inicioCampo[campos] = inicio;
+                fimCampo[campos] = i;
+                campos++;
+                inicio = i + 1;
+            }
+        }
+        // Como no split(";"), campos vazios no fim da linha não contam
+        while (campos > 0 && inicioCampo[campos - 1] == fimCampo[campos - 1]) campos--;
+
+        inicioDados = Math.min(fimLinha + 1, fimDados);
+        return true;
+    }
+
+    int quantidadeCampos() {
+        return campos;
+    }
+
+    /**
+     * Valor do campo em centavos (formato brasileiro, aspas/espaços ignorados).
+     * @throws NumberFormatException se o campo não for numérico.
+     */
+    long centavos(int campo) {
+        return Centavos.parse(dados, inicioCampo[campo], fimCampo[campo]);
+    }
+
+    /**
+     * Campo como inteiro positivo (ex: Registro ANS), ignorando aspas e espaços nas pontas.
+     * @return O número, ou -1 se o campo não for um inteiro de até 9 dígitos.
+     */
+    int inteiro(int campo) {
+        int inicio = inicioCampo[campo];
+        int fim = fimCampo[campo];
+        while (inicio < fim && ehIgnoravel(dados[inicio])) inicio++;
+        while (fim > inicio && ehIgnoravel(dados[fim - 1])) fim--;
+        if (inicio == fim || fim - inicio > 9) return -1;
+
+        int valor = 0;
+        for (int i = inicio; i < fim; i++) {
+            int d = dados[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    /**
+     * Campo de trimestre no formato do consolidado ("3T"), ignorando aspas e espaços.
+     * @return O número do trimestre (1 a 4), ou -1 se o campo não começar por um dígito válido.
+     */
+    int trimestre(int campo) {
+        int inicio = inicioCampo[campo];
+        int fim = fimCampo[campo];
+        while (inicio < fim && ehIgnoravel(dados[inicio])) inicio++;
+        if (inicio == fim) return -1;
+        int t = dados[inicio] - '0';
+        return t >= 1 && t <= 4 ? t : -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private int acharFimDeLinha() {
+        for (int i = inicioDados; i < fimDados; i++) {
+            if (dados[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Move a linha incompleta para o começo do buffer (crescendo se ela não couber) e lê mais bytes.
+     */
+    private void carregar() throws IOException {
+        int pendente = fimDados - inicioDados;
+        if (pendente == dados.length) {
+            byte[] maior = new byte[dados.length * 2];
+            System.arraycopy(dados, inicioDados, maior, 0, pendente);
+            dados = maior;
+        } else {
+            System.arraycopy(dados, inicioDados, dados, 0, pendente);
+        }
+        inicioDados = 0;
+        fimDados = pendente;
+
+        int espaco = (int) Math.min(dados.length - fimDados, limite - posicao);
+        int lidos = espaco > 0 ? canal.read(ByteBuffer.wrap(dados, fimDados, espaco), posicao) : -1;
+        if (lidos < 0) {
+            fimArquivo = true;
+        } else {
+            fimDados += lidos;
+            posicao += lidos;
+        }
+    }
+
+    private static boolean ehIgnoravel(byte b) {
+        return b == '"' || (b >= 0 && b <= ' ');
+    }
+}
@@ -1,17 +1,28 @@
 package com.intuitivecare.questao2;
 
-import java.io.FileOutputStream;
-import java.io.FileWriter;
+import com.intuitivecare.questao1.Centavos;
+import com.intuitivecare.questao1.ColumnarReader;
+import com.intuitivecare.questao1.Metricas;
+import com.intuitivecare.questao1.ParallelZipWriter;
+import org.apache.commons.io.output.TeeOutputStream;
+
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
-import java.io.FileInputStream;
-import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * CLASSE PRINCIPAL - QUESTÃO 2
@@ -23,155 +34,339 @@ import java.io.File;
  */
 public class Main {
 
+    // Posição das colunas no consolidado.csv (RazaoSocial;CNPJ;Trimestre;Ano;ValorDespesas)
+    private static final int COLUNA_REGISTRO = 1;
+    private static final int COLUNA_TRIMESTRE = 2;
+    private static final int COLUNA_ANO = 3;
+    private static final int COLUNA_VALOR = 4;
+
+    // Tamanho alvo de cada trecho do consolidado no processamento paralelo (o corte é ajustado para o fim da linha)
+    private static final long TAMANHO_TRECHO = 16L * 1024 * 1024;
+
+    // Ranking: quantos grupos gravar (-Dans.topK, 0 = todos) e quantos pares (total, grupo) ordenar
+    // em memória antes de usar o disco (-Dans.ranking.memoria)
+    private static final int TOP_K = Integer.getInteger("ans.topK", 0);
+    private static final int LIMITE_RANKING_MEMORIA = Integer.getInteger("ans.ranking.memoria", 1 << 20);
+
+    // Base de operadoras/despesas lida pela API (-Dans.store)
+    private static final String ARQUIVO_STORE = System.getProperty("ans.store", "despesas.store");
+
+    // Análises por trimestre: "acima da média em pelo menos N trimestres" (-Dans.analise.trimestres)
+    private static final int MINIMO_TRIMESTRES_ACIMA = Integer.getInteger("ans.analise.trimestres", 2);
+
     public static void main(String[] args) {
         System.out.println("=== Iniciando Questao 2: Versao Final 100% ===");
 
         // 1. Carrega Tabela de Dominio (Cadastro ANS) para memoria
         // Isso atende o requisito de "Join" (Enriquecimento)
-        AnsCadastro.carregarCadastro("Relatorio_Cadop.csv");
+        try (Metricas.Cronometro c = Metricas.etapa("cadastro").iniciar()) {
+            AnsCadastro.carregarCadastro("Relatorio_Cadop.csv");
+            c.itens(AnsCadastro.getRegistro().tamanho());
+        }
 
         String arquivoEntrada = "consolidado.csv";
+        String arquivoColunar = "consolidado.col";
         String arquivoSaidaCSV = "despesas_agregadas.csv";
         String arquivoSaidaZIP = "Teste_Gustavo_Caldeira.zip";
+        Path arquivoStore = Paths.get(ARQUIVO_STORE);
 
-        // Map para agrupar: Chave = "RazaoSocial;Modalidade;UF", Valor = Lista de despesas
-        Map<String, List<Double>> agrupamento = new HashMap<>();
-
-        int totalLinhas = 0;
-        int registrosValidos = 0;
-        int descartadosCnpjInvalido = 0;
-
+        // --- REQUISITO FINAL: Compactar em ZIP ---
+        // O relatório vai para o ZIP enquanto é gravado (compressão paralela, nível com -Dans.zip.nivel)
         try {
-            System.out.println("Processando linhas do CSV consolidado...");
-            
-            // Lê todas as linhas do CSV gerado na Questão 1
-            List<String> linhas = Files.readAllLines(Paths.get(arquivoEntrada), StandardCharsets.ISO_8859_1);
-
-            for (String linha : linhas) {
-                totalLinhas++;
-                String[] colunas = linha.split(";");
-                
-                // Validação básica de estrutura
-                if (colunas.length < 3) continue;
-
-                // Coluna 1 do consolidado é o RegistroANS (chave de busca)
-                String regAns = colunas[1].replace("\"", "").trim();
-                
-                // --- REQUISITO 2.1: Validação de Numéricos Positivos ---
-                String valorStr = "";
-                if (colunas.length > 3) {
-                     valorStr = colunas[3].replace("\"", "").replace(",", ".").trim();
+            try (ParallelZipWriter zip = ParallelZipWriter.abrir(Paths.get(arquivoSaidaZIP))) {
+                // Com -Dans.colunar=true e o consolidado.col disponível, lê o formato colunar da Questão 1
+                if (Boolean.getBoolean("ans.colunar") && Files.exists(Paths.get(arquivoColunar))) {
+                    gerarRelatorioColunar(arquivoColunar, arquivoSaidaCSV, zip, arquivoStore);
                 } else {
+                    gerarRelatorio(arquivoEntrada, arquivoSaidaCSV, Runtime.getRuntime().availableProcessors(), zip, arquivoStore);
+                }
+            }
+            // Só depois de fechado (diretório central gravado) o ZIP está pronto
+            System.out.println("  ZIP FINAL PRONTO: " + arquivoSaidaZIP);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            // Resumo da execução (tempo por etapa, contadores) em metricas_questao2.json
+            Metricas.gravarResumo("questao2");
+        }
+    }
+
+    /**
+     * Lê o consolidado, faz validação + enriquecimento + agregação e grava o CSV de saída,
+     * usando todos os núcleos disponíveis.
+     * Separado do main para poder ser chamado isoladamente (ex: benchmarks).
+     */
+    static void gerarRelatorio(String arquivoEntrada, String arquivoSaidaCSV) throws IOException {
+        gerarRelatorio(arquivoEntrada, arquivoSaidaCSV, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Igual a {@link #gerarRelatorio(String, String)} com número de threads explícito.
+     * O consolidado é dividido em trechos alinhados em quebra de linha; cada trecho vira uma tarefa do pool
+     * que acumula na parcial da sua thread (ver {@link AgrupamentoDespesas}). O resultado é o mesmo para
+     * qualquer número de threads.
+     * @param paralelismo Número de threads do pool (1 = processamento sequencial).
+     */
+    static void gerarRelatorio(String arquivoEntrada, String arquivoSaidaCSV, int paralelismo) throws IOException {
+        gerarRelatorio(arquivoEntrada, arquivoSaidaCSV, paralelismo, null, null);
+    }
+
+    /**
+     * Igual a {@link #gerarRelatorio(String, String, int)}, gravando o CSV também como entrada do ZIP informado
+     * (na mesma passada, sem reler o arquivo) e, com {@code arquivoStore}, a base consultada pela API ({@link DespesasStore}).
+     * @param zip ZIP de saída, ou null para gravar só o CSV.
+     * @param arquivoStore Arquivo da base de operadoras/despesas, ou null para não gravar (nem as análises
+     *                     por trimestre, ver {@link #gravarAnalises}).
+     */
+    static void gerarRelatorio(String arquivoEntrada, String arquivoSaidaCSV, int paralelismo,
+                               ParallelZipWriter zip, Path arquivoStore) throws IOException {
+        // Grupos = "RazaoSocial;Modalidade;UF" (memória proporcional ao número de grupos, não de linhas)
+        AgrupamentoDespesas agrupamento = new AgrupamentoDespesas(AnsCadastro.getRegistro());
+        Path entrada = Paths.get(arquivoEntrada);
+
+        System.out.println("Processando linhas do CSV consolidado (" + paralelismo + " threads)...");
+
+        try (Metricas.Cronometro c = Metricas.etapa("agregacao").iniciar()) {
+            List<Callable<Void>> tarefas = new ArrayList<>();
+            for (long[] trecho : dividirEmTrechos(entrada)) {
+                tarefas.add(() -> {
+                    agregarTrecho(entrada, trecho[0], trecho[1], agrupamento.parcial());
+                    return null;
+                });
+            }
+            executar(tarefas, paralelismo);
+            c.bytes(Files.size(entrada));
+        }
+
+        gravarRelatorio(agrupamento, arquivoSaidaCSV, zip);
+        if (arquivoStore != null) {
+            gravarStore(agrupamento, arquivoStore);
+            gravarAnalises(agrupamento);
+        }
+    }
+
+    /**
+     * Lê um trecho do consolidado direto dos bytes e acumula cada linha na parcial da thread.
+     */
+    private static void agregarTrecho(Path entrada, long inicio, long fim, AgrupamentoDespesas.Parcial parcial) throws IOException {
+        // Lê o CSV gerado na Questão 1 linha a linha (streaming), sem carregar o arquivo inteiro
+        // nem criar Strings por linha: os campos são lidos direto dos bytes
+        long linhas = 0;
+        try (LeitorConsolidado leitor = new LeitorConsolidado(entrada, inicio, fim)) {
+            while (leitor.proximaLinha()) {
+                linhas++;
+                // Validação básica de estrutura (RazaoSocial;CNPJ;Trimestre;Ano;ValorDespesas)
+                if (leitor.quantidadeCampos() <= COLUNA_VALOR) {
+                    parcial.descartar();
                     continue;
                 }
 
-                double valor = 0.0;
+                // --- REQUISITO 2.1: Validação de Numéricos Positivos ---
+                // Valor em centavos (long), como o DECIMAL(15,2) do banco: soma exata, sem double
+                long centavos;
                 try {
-                    valor = Double.parseDouble(valorStr);
-                    if (valor <= 0) continue; // Descarta valores negativos ou zero
+                    centavos = leitor.centavos(COLUNA_VALOR);
                 } catch (NumberFormatException e) {
-                    continue; // Descarta se não for número
+                    parcial.descartar(); // Descarta se não for número (inclui a linha de cabeçalho)
+                    continue;
                 }
 
-                // --- REQUISITO 2.2: Enriquecimento (Join) ---
-                // Busca os dados completos no cadastro da ANS usando o RegistroANS
-                String[] dadosDaOperadora = AnsCadastro.buscarOperadora(regAns);
+                // --- REQUISITO 2.2 + 2.3: Enriquecimento (Join pelo RegistroANS) e Agrupamento ---
+                parcial.adicionar(leitor.inteiro(COLUNA_REGISTRO), periodo(leitor), centavos);
+            }
+        }
+        Metricas.etapa("agregacao").adicionarItens(linhas);
+    }
 
-                if (dadosDaOperadora == null) {
-                    // Decisão de Projeto (Trade-off): Se não está no cadastro ativo, ignoramos
-                    // pois precisamos da UF e Modalidade oficiais.
-                    continue; 
-                }
+    /**
+     * Período da linha ({@code ano * 10 + trimestre}, como no formato colunar), ou 0 se Trimestre/Ano forem inválidos.
+     */
+    private static int periodo(LeitorConsolidado leitor) {
+        int trimestre = leitor.trimestre(COLUNA_TRIMESTRE);
+        int ano = leitor.inteiro(COLUNA_ANO);
+        return trimestre > 0 && ano > 0 ? ano * 10 + trimestre : 0;
+    }
 
-                // Extraindo dados do Cadastro (Indices baseados no layout padrão CSV da ANS)
-                String cnpj = dadosDaOperadora[1].replace("\"", "").trim();
-                String razaoSocial = dadosDaOperadora[2].replace("\"", "").trim();
-                String modalidade = "Desconhecida";
-                if (dadosDaOperadora.length > 4) modalidade = dadosDaOperadora[4].replace("\"", "").trim();
-                
-                String uf = "ND"; 
-                if (dadosDaOperadora.length > 10) uf = dadosDaOperadora[10].replace("\"", "").trim();
-
-                // --- REQUISITO 2.1: Validação de CNPJ (Matemática) ---
-                if (!CnpjValidator.isCNPJ(cnpj)) {
-                    descartadosCnpjInvalido++;
-                    continue; // Descarta operador se o CNPJ for matematicamente inválido
-                }
+    /**
+     * Mesmo relatório de {@link #gerarRelatorio(String, String)}, lendo o consolidado.col (formato colunar).
+     * Percorre só as colunas de Registro ANS e valor de cada bloco mapeado em memória: nada de split,
+     * replace ou parse de texto por linha. Cada bloco é uma tarefa do pool.
+     */
+    static void gerarRelatorioColunar(String arquivoColunar, String arquivoSaidaCSV) throws IOException {
+        gerarRelatorioColunar(arquivoColunar, arquivoSaidaCSV, null, null);
+    }
 
-                registrosValidos++;
+    /**
+     * Igual a {@link #gerarRelatorioColunar(String, String)}, gravando o CSV também no ZIP (null = só o CSV)
+     * e a base da API e as análises por trimestre em {@code arquivoStore} (null = não grava).
+     */
+    static void gerarRelatorioColunar(String arquivoColunar, String arquivoSaidaCSV, ParallelZipWriter zip,
+                                      Path arquivoStore) throws IOException {
+        AgrupamentoDespesas agrupamento = new AgrupamentoDespesas(AnsCadastro.getRegistro());
 
-                // Chave composta para Agrupamento (Requisito 2.3 + 2.2)
-                String chave = razaoSocial + ";" + modalidade + ";" + uf;
+        System.out.println("Processando blocos do consolidado colunar...");
 
-                agrupamento.putIfAbsent(chave, new ArrayList<>());
-                agrupamento.get(chave).add(valor);
+        try (Metricas.Cronometro c = Metricas.etapa("agregacao").iniciar();
+             ColumnarReader leitor = ColumnarReader.abrir(Path.of(arquivoColunar))) {
+            List<Callable<Void>> tarefas = new ArrayList<>();
+            for (int b = 0; b < leitor.quantidadeBlocos(); b++) {
+                int numeroBloco = b;
+                tarefas.add(() -> {
+                    ColumnarReader.Bloco bloco = leitor.bloco(numeroBloco);
+                    AgrupamentoDespesas.Parcial parcial = agrupamento.parcial();
+                    for (int i = 0; i < bloco.linhas(); i++) {
+                        parcial.adicionar(bloco.registros().get(i), bloco.periodos().get(i), bloco.valores().get(i));
+                    }
+                    return null;
+                });
             }
+            executar(tarefas, Runtime.getRuntime().availableProcessors());
+            c.itens(leitor.getTotalLinhas()).bytes(Files.size(Path.of(arquivoColunar)));
+        }
 
-            // --- CÁLCULOS ESTATÍSTICOS (Soma, Média, Desvio Padrão) ---
-            System.out.println("Calculando estatisticas para " + agrupamento.size() + " operadoras...");
-            
-            List<String> linhasParaSalvar = new ArrayList<>();
-            Map<String, Double> mapOrdenacao = new HashMap<>(); // Auxiliar para ordenar
-
-            for (Map.Entry<String, List<Double>> entry : agrupamento.entrySet()) {
-                String chaveCompleta = entry.getKey(); 
-                List<Double> valores = entry.getValue();
+        gravarRelatorio(agrupamento, arquivoSaidaCSV, zip);
+        if (arquivoStore != null) {
+            gravarStore(agrupamento, arquivoStore);
+            gravarAnalises(agrupamento);
+        }
+    }
 
-                double soma = 0;
-                for (double v : valores) soma += v;
-                
-                double media = soma / valores.size();
+    /**
+     * Executa as tarefas num ForkJoinPool próprio e espera todas terminarem.
+     * A primeira falha de I/O é repassada para quem chamou.
+     */
+    private static void executar(List<Callable<Void>> tarefas, int paralelismo) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, paralelismo));
+        try {
+            for (Future<Void> tarefa : pool.invokeAll(tarefas)) {
+                tarefa.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Agregação interrompida", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-                // Cálculo do Desvio Padrão
-                double somaDiferencas = 0;
-                for (double v : valores) somaDiferencas += Math.pow(v - media, 2);
-                double desvioPadrao = Math.sqrt(somaDiferencas / valores.size());
+    /**
+     * Divide o arquivo em trechos de ~{@value #TAMANHO_TRECHO} bytes, cada um terminando logo após um '\n'.
+     * @return Pares {inicio, fim} (fim exclusivo).
+     */
+    private static List<long[]> dividirEmTrechos(Path arquivo) throws IOException {
+        List<long[]> trechos = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            long inicio = 0;
+            while (inicio < tamanho) {
+                long fim = inicio + TAMANHO_TRECHO >= tamanho ? tamanho : proximoFimDeLinha(canal, inicio + TAMANHO_TRECHO);
+                trechos.add(new long[]{inicio, fim});
+                inicio = fim;
+            }
+        }
+        return trechos;
+    }
 
-                // Formata linha final: Razao;Modalidade;UF;Total;Media;Desvio
-                String linhaFinal = String.format(Locale.US, "%s;%.2f;%.2f;%.2f", chaveCompleta, soma, media, desvioPadrao);
-                
-                linhasParaSalvar.add(linhaFinal);
-                mapOrdenacao.put(linhaFinal, soma);
+    /**
+     * Devolve a posição logo após o primeiro '\n' a partir de {@code posicao} (ou o fim do arquivo).
+     */
+    private static long proximoFimDeLinha(FileChannel canal, long posicao) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long atual = posicao;
+        while (canal.read(buffer, atual) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                atual++;
+                if (buffer.get() == '\n') {
+                    return atual;
+                }
             }
+            buffer.clear();
+        }
+        return canal.size();
+    }
 
-            // --- REQUISITO 2.3: Ordenação (Maior Despesa -> Menor) ---
-            linhasParaSalvar.sort((a, b) -> Double.compare(mapOrdenacao.get(b), mapOrdenacao.get(a)));
+    /**
+     * Ordena os grupos da maior para a menor despesa e grava o CSV, calculando as estatísticas finais
+     * e formatando cada linha só na hora de escrever.
+     * A ordenação usa pares primitivos (total, grupo) no {@link RankingGrupos}: com -Dans.topK=N só os N
+     * maiores são gravados, e com muitos grupos a ordenação passa para disco (-Dans.ranking.memoria).
+     * @param zip Se não for null, cada byte do CSV também é gravado numa entrada deste ZIP.
+     */
+    static void gravarRelatorio(AgrupamentoDespesas agrupamento, String arquivoSaidaCSV,
+                                        ParallelZipWriter zip) throws IOException {
+        EstatisticasGrupo[] grupos = agrupamento.resultado();
 
-            // --- GRAVAR CSV ---
-            FileWriter fw = new FileWriter(arquivoSaidaCSV);
-            PrintWriter pw = new PrintWriter(fw);
-            pw.println("Razao_Social;Modalidade;UF;Total_Despesas;Media_Despesas;Desvio_Padrao");
-            
-            for (String l : linhasParaSalvar) {
-                pw.println(l);
+        // --- REQUISITO 2.3: Ordenação (Maior Despesa -> Menor) ---
+        try (Metricas.Cronometro c = Metricas.etapa("relatorio").iniciar();
+             RankingGrupos ranking = new RankingGrupos(LIMITE_RANKING_MEMORIA, TOP_K);
+             PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(abrirSaida(arquivoSaidaCSV, zip),
+                     StandardCharsets.UTF_8)))) {
+            int quantidade = 0;
+            for (int g = 0; g < grupos.length; g++) {
+                if (grupos[g] != null) {
+                    ranking.adicionar(grupos[g].getSomaCentavos(), g);
+                    quantidade++;
+                }
             }
-            pw.close();
-            System.out.println("  Arquivo CSV gerado: " + arquivoSaidaCSV);
 
-            // --- REQUISITO FINAL: Compactar em ZIP ---
-            compactarParaZip(arquivoSaidaCSV, arquivoSaidaZIP);
+            // --- CÁLCULOS ESTATÍSTICOS (Soma, Média, Desvio Padrão) + GRAVAR CSV ---
+            System.out.println("Calculando estatisticas para " + quantidade + " operadoras...");
+            c.itens(quantidade);
+            pw.println("Razao_Social;Modalidade;UF;Total_Despesas;Media_Despesas;Desvio_Padrao");
+            ranking.percorrer((g, total) -> {
+                EstatisticasGrupo estatisticas = grupos[g];
+                // Soma e média exatas em centavos; só o desvio padrão é calculado em ponto flutuante
+                // Formata linha final: Razao;Modalidade;UF;Total;Media;Desvio
+                pw.println(agrupamento.chave(g) + ";" + Centavos.formatar(total) + ";"
+                        + Centavos.formatar(estatisticas.getMediaCentavos()) + ";"
+                        + String.format(Locale.US, "%.2f", estatisticas.getDesvioPadrao()));
+            });
+            // O PrintWriter não lança exceções: descarrega tudo no arquivo e na entrada do ZIP e confere se algo falhou
+            pw.flush();
+            if (pw.checkError()) throw new IOException("Erro ao gravar " + arquivoSaidaCSV);
+        }
+        System.out.println("  Arquivo CSV gerado: " + arquivoSaidaCSV);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Grava a base de operadoras e despesas por trimestre ({@link DespesasStore}) com os totais já
+     * acumulados na agregação: nenhuma releitura do consolidado.
+     */
+    static void gravarStore(AgrupamentoDespesas agrupamento, Path arquivoStore) throws IOException {
+        try (Metricas.Cronometro c = Metricas.etapa("store").iniciar()) {
+            DespesasStore.Construtor construtor = new DespesasStore.Construtor(AnsCadastro.getRegistro());
+            agrupamento.percorrerPorPeriodo(construtor::adicionarDespesa);
+            construtor.gravar(arquivoStore);
+            c.itens(AnsCadastro.getRegistro().tamanho()).bytes(Files.size(arquivoStore));
         }
+        System.out.println("  Base da API gerada: " + arquivoStore);
     }
 
-    // Método auxiliar para criar o ZIP
-    private static void compactarParaZip(String sourceFile, String zipFile) throws IOException {
-        FileOutputStream fos = new FileOutputStream(zipFile);
-        ZipOutputStream zipOut = new ZipOutputStream(fos);
-        File fileToZip = new File(sourceFile);
-        FileInputStream fis = new FileInputStream(fileToZip);
-        ZipEntry zipEntry = new ZipEntry(fileToZip.getName());
-        zipOut.putNextEntry(zipEntry);
-        byte[] bytes = new byte[1024];
-        int length;
-        while ((length = fis.read(bytes)) >= 0) {
-            zipOut.write(bytes, 0, length);
+    /**
+     * Grava as análises por operadora e trimestre ({@link AnaliseTrimestral}: crescimento, distribuição por
+     * UF e modalidade, acima da média) a partir dos totais já acumulados na agregação, na pasta atual.
+     */
+    static void gravarAnalises(AgrupamentoDespesas agrupamento) throws IOException {
+        try (Metricas.Cronometro c = Metricas.etapa("analise").iniciar()) {
+            AnaliseTrimestral analise = new AnaliseTrimestral(AnsCadastro.getRegistro(), agrupamento.seriePorPeriodo());
+            int acima = analise.gravar(Paths.get(""), MINIMO_TRIMESTRES_ACIMA);
+            c.itens(AnsCadastro.getRegistro().tamanho());
+            Metricas.contar("analise.acimaDaMedia", acima);
+            System.out.println("  Análises por trimestre geradas (" + analise.quantidadePeriodos() + " trimestres): "
+                    + acima + " operadoras acima da média em pelo menos " + MINIMO_TRIMESTRES_ACIMA + " trimestres");
         }
-        zipOut.close();
-        fis.close();
-        fos.close();
-        System.out.println("  ZIP FINAL PRONTO: " + zipFile);
     }
-}
\ No newline at end of file
+
+    /**
+     * Abre o CSV de saída; com ZIP, os bytes vão ao mesmo tempo para o arquivo e para uma entrada de mesmo nome.
+     */
+    private static OutputStream abrirSaida(String arquivoSaidaCSV, ParallelZipWriter zip) throws IOException {
+        Path saida = Paths.get(arquivoSaidaCSV);
+        OutputStream arquivo = Files.newOutputStream(saida);
+        return zip == null ? arquivo : new TeeOutputStream(arquivo, zip.novaEntrada(saida.getFileName().toString()));
+    }
+}
@@ -0,0 +1,277 @@
+package com.intuitivecare.questao2;
+
+import com.intuitivecare.questao1.AnsScraper;
+import com.intuitivecare.questao1.Centavos;
+import com.intuitivecare.questao1.CsvProcessor;
+import com.intuitivecare.questao1.FileDownloader;
+import com.intuitivecare.questao1.Metricas;
+import com.intuitivecare.questao1.ParallelZipWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Questões 1 e 2 numa única passada (modo fundido).
+ *
+ * No fluxo normal a Questão 1 grava o consolidado.csv e a Questão 2 relê o mesmo arquivo do disco.
+ * Aqui as linhas de despesa filtradas pelo {@link CsvProcessor} vão, em lotes, para uma fila em memória de
+ * tamanho fixo, e agregadores (um {@link AgrupamentoDespesas.Parcial} por thread) fazem o enriquecimento
+ * e a agregação enquanto os ZIPs ainda estão sendo lidos: a agregação começa no primeiro lote do primeiro
+ * trimestre. Se os agregadores ficarem para trás, a fila enche e a leitura espera (backpressure), então a
+ * memória usada não depende do tamanho dos arquivos.
+ *
+ * O relatório, o ZIP e o {@code despesas.store} são os mesmos da Questão 2. O consolidado.csv (e o
+ * consolidado_despesas.zip) só é gravado com -Dans.fundido.auditoria=true, igual ao da Questão 1.
+ *
+ * Configuração: -Dans.trimestres e -Dans.conexoes (como na Questão 1), -Dans.fundido.fila (lotes na fila,
+ * padrão {@value #CAPACIDADE_FILA_PADRAO}), -Dans.fundido.agregadores (padrão: número de núcleos), -Dans.store.
+ */
+public class PipelineFundido {
+
+    private static final String ARQUIVO_ZIP_CONSOLIDADO = "consolidado_despesas.zip";
+    private static final String ARQUIVO_SAIDA_CSV = "despesas_agregadas.csv";
+    private static final String ARQUIVO_SAIDA_ZIP = "Teste_Gustavo_Caldeira.zip";
+    private static final int CAPACIDADE_FILA_PADRAO = 16;
+
+    // Sinal de fim para os agregadores (comparado por referência)
+    private static final List<String[]> FIM = new ArrayList<>();
+
+    // Posição das colunas nas linhas do CsvProcessor (RazaoSocial;CNPJ;Trimestre;Ano;ValorDespesas)
+    private static final int COLUNA_REGISTRO = 1;
+    private static final int COLUNA_TRIMESTRE = 2;
+    private static final int COLUNA_ANO = 3;
+    private static final int COLUNA_VALOR = 4;
+
+    public static void main(String[] args) {
+        System.out.println("=== Iniciando Questoes 1 e 2: Pipeline Fundido ===");
+        boolean auditoria = Boolean.getBoolean("ans.fundido.auditoria");
+        try {
+            // O cadastro precisa estar pronto antes do primeiro lote
+            try (Metricas.Cronometro c = Metricas.etapa("cadastro").iniciar()) {
+                AnsCadastro.carregarCadastro("Relatorio_Cadop.csv");
+                c.itens(AnsCadastro.getRegistro().tamanho());
+            }
+
+            List<String> links;
+            try (Metricas.Cronometro c = Metricas.etapa("scraping").iniciar()) {
+                links = new AnsScraper().getLinksUltimosTrimestres(Integer.getInteger("ans.trimestres", 3));
+                c.itens(links.size());
+            }
+            // Cada arquivo é cronometrado na etapa "download" pelo próprio FileDownloader
+            List<String> falhas = new FileDownloader().baixarConcorrente(links,
+                    Integer.getInteger("ans.conexoes", FileDownloader.CONEXOES_PADRAO), false);
+            if (!falhas.isEmpty()) {
+                System.err.println("  Arquivos com falha: " + falhas);
+            }
+
+            // Mesma ordem da Questão 1 (caminhos ordenados), para o consolidado de auditoria ser idêntico
+            List<String> zips = new ArrayList<>();
+            for (String link : links) {
+                Path zip = Paths.get("downloads", link.substring(link.lastIndexOf("/") + 1));
+                if (Files.exists(zip)) zips.add(zip.toString());
+            }
+            zips.sort(null);
+            if (zips.isEmpty()) {
+                System.out.println("  Nenhum arquivo .zip encontrado.");
+                return;
+            }
+
+            try (ParallelZipWriter zipConsolidado = auditoria ? ParallelZipWriter.abrir(Paths.get(ARQUIVO_ZIP_CONSOLIDADO)) : null;
+                 ParallelZipWriter zipRelatorio = ParallelZipWriter.abrir(Paths.get(ARQUIVO_SAIDA_ZIP))) {
+                CsvProcessor processor = new CsvProcessor(Boolean.getBoolean("ans.colunar"), zipConsolidado);
+                executar(processor, zips, auditoria, ARQUIVO_SAIDA_CSV, zipRelatorio,
+                        Paths.get(System.getProperty("ans.store", "despesas.store")),
+                        Integer.getInteger("ans.fundido.agregadores", Runtime.getRuntime().availableProcessors()),
+                        Integer.getInteger("ans.fundido.fila", CAPACIDADE_FILA_PADRAO));
+            }
+            System.out.println("  ZIP FINAL PRONTO: " + ARQUIVO_SAIDA_ZIP);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            Metricas.gravarResumo("fundido");
+        }
+    }
+
+    /**
+     * Lê os ZIPs e agrega as despesas na mesma passada, gravando o relatório e a base da API.
+     * O cadastro ({@link AnsCadastro}) já deve estar carregado.
+     * @param gravarConsolidado Grava também o consolidado.csv (auditoria).
+     * @param zip ZIP do relatório, ou null para gravar só o CSV.
+     * @param arquivoStore Arquivo da base de operadoras/despesas, ou null para não gravar (nem as análises por trimestre).
+     * @param agregadores Número de threads de agregação.
+     * @param capacidadeFila Lotes que podem esperar na fila antes de a leitura parar.
+     */
+    static void executar(CsvProcessor processor, List<String> zips, boolean gravarConsolidado, String arquivoSaidaCSV,
+                         ParallelZipWriter zip, Path arquivoStore, int agregadores, int capacidadeFila) throws IOException {
+        AgrupamentoDespesas agrupamento = new AgrupamentoDespesas(AnsCadastro.getRegistro());
+        BlockingQueue<List<String[]>> fila = new ArrayBlockingQueue<>(Math.max(1, capacidadeFila));
+        // Primeira falha de qualquer agregador; a leitura confere antes de cada lote e para cedo
+        AtomicReference<RuntimeException> falha = new AtomicReference<>();
+
+        Agregador[] agregador = new Agregador[Math.max(1, agregadores)];
+        Thread[] threads = new Thread[agregador.length];
+        for (int a = 0; a < agregador.length; a++) {
+            agregador[a] = new Agregador(fila, agrupamento, falha);
+            threads[a] = Thread.ofPlatform().name("fundido-agregador-" + a).start(agregador[a]);
+        }
+
+        try (Metricas.Cronometro c = Metricas.etapa("fundido").iniciar()) {
+            try {
+                processor.transmitirZips(zips, gravarConsolidado, lote -> enviar(fila, lote, falha));
+            } finally {
+                encerrar(fila, threads);
+            }
+            if (falha.get() != null) throw new IOException("Falha na agregação", falha.get());
+            long linhas = 0;
+            for (Agregador a : agregador) {
+                linhas += a.linhas;
+            }
+            c.itens(linhas);
+        }
+        CsvProcessor.registrarIndicadores();
+
+        Main.gravarRelatorio(agrupamento, arquivoSaidaCSV, zip);
+        if (arquivoStore != null) {
+            Main.gravarStore(agrupamento, arquivoStore);
+            Main.gravarAnalises(agrupamento);
+        }
+    }
+
+    /**
+     * Põe um lote na fila (esperando se ela estiver cheia). Se algum agregador já falhou, lança a exceção
+     * em vez de enviar: o resultado não vai ser usado, então a leitura dos ZIPs para no próximo lote.
+     */
+    private static void enviar(BlockingQueue<List<String[]>> fila, List<String[]> lote,
+                               AtomicReference<RuntimeException> falha) throws IOException {
+        RuntimeException erro = falha.get();
+        if (erro != null) throw new IOException("Leitura abortada: falha na agregação", erro);
+        try {
+            fila.put(lote);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Leitura interrompida", e);
+        }
+    }
+
+    /**
+     * Manda um sinal de fim por agregador e espera todos terminarem. Se a thread atual for (ou já estiver)
+     * interrompida durante a entrega, os agregadores são interrompidos em vez de esperar por um FIM que
+     * não vai chegar: são threads de plataforma não daemon e, vivas, impediriam a JVM de terminar.
+     * A interrupção da thread atual é preservada.
+     */
+    private static void encerrar(BlockingQueue<List<String[]>> fila, Thread[] threads) {
+        boolean interrompido = false;
+        try {
+            for (int a = 0; a < threads.length; a++) fila.put(FIM);
+        } catch (InterruptedException e) {
+            interrompido = true;
+            for (Thread t : threads) t.interrupt();
+        }
+        for (Thread t : threads) {
+            while (true) {
+                try {
+                    t.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrompido = true;
+                    t.interrupt();
+                }
+            }
+        }
+        if (interrompido) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Consome lotes da fila e acumula cada linha na parcial da sua thread, com as mesmas regras da
+     * leitura do consolidado na Questão 2. Se falhar, registra o erro em {@code falha} (compartilhada) e
+     * continua esvaziando a fila (sem agregar) até o sinal de fim, para a leitura não travar no put.
+     * Se for interrompido, registra a interrupção como falha e sai na hora.
+     */
+    private static final class Agregador implements Runnable {
+        private final BlockingQueue<List<String[]>> fila;
+        private final AgrupamentoDespesas agrupamento;
+        private final AtomicReference<RuntimeException> falha;
+        private long linhas;
+
+        Agregador(BlockingQueue<List<String[]>> fila, AgrupamentoDespesas agrupamento,
+                  AtomicReference<RuntimeException> falha) {
+            this.fila = fila;
+            this.agrupamento = agrupamento;
+            this.falha = falha;
+        }
+
+        @Override
+        public void run() {
+            AgrupamentoDespesas.Parcial parcial = agrupamento.parcial();
+            while (true) {
+                List<String[]> lote;
+                try {
+                    lote = fila.take();
+                } catch (InterruptedException e) {
+                    falha.compareAndSet(null, new IllegalStateException("Agregação interrompida", e));
+                    break;
+                }
+                if (lote == FIM) break;
+                if (falha.get() != null) continue;
+                try {
+                    for (String[] linha : lote) {
+                        agregar(linha, parcial);
+                    }
+                    linhas += lote.size();
+                } catch (RuntimeException e) {
+                    falha.compareAndSet(null, e);
+                }
+            }
+            Metricas.etapa("agregacao").adicionarItens(linhas);
+        }
+
+        private static void agregar(String[] linha, AgrupamentoDespesas.Parcial parcial) {
+            if (linha.length <= COLUNA_VALOR) {
+                parcial.descartar();
+                return;
+            }
+            long centavos;
+            try {
+                centavos = Centavos.parse(linha[COLUNA_VALOR]);
+            } catch (NumberFormatException e) {
+                parcial.descartar();
+                return;
+            }
+            int trimestre = trimestre(linha[COLUNA_TRIMESTRE]);
+            int ano = inteiro(linha[COLUNA_ANO]);
+            parcial.adicionar(inteiro(linha[COLUNA_REGISTRO]), trimestre > 0 && ano > 0 ? ano * 10 + trimestre : 0, centavos);
+        }
+    }
+
+    /**
+     * Inteiro positivo de até 9 dígitos (espaços nas pontas ignorados), ou -1, como {@link LeitorConsolidado#inteiro}.
+     */
+    private static int inteiro(String texto) {
+        String limpo = texto == null ? "" : texto.strip();
+        if (limpo.isEmpty() || limpo.length() > 9) return -1;
+        int valor = 0;
+        for (int i = 0; i < limpo.length(); i++) {
+            char c = limpo.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * Número do trimestre de "3T" (1 a 4), ou -1, como {@link LeitorConsolidado#trimestre}.
+     */
+    private static int trimestre(String texto) {
+        String limpo = texto == null ? "" : texto.strip();
+        int t = limpo.isEmpty() ? -1 : limpo.charAt(0) - '0';
+        return t >= 1 && t <= 4 ? t : -1;
+    }
+}
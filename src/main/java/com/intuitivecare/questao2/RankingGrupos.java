@@ -0,0 +1,281 @@
+package com.intuitivecare.questao2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Ordena os grupos do relatório pelo total de despesas (maior primeiro) usando só pares primitivos
+ * (total em centavos, número do grupo). As linhas de texto só são montadas na hora de gravar.
+ *
+ * - Com {@code topK > 0} guarda apenas os K maiores num heap de tamanho K (memória fixa);
+ * - Sem top-K, os pares ficam em arrays de até {@code limiteMemoria} posições; quando enchem, o lote é
+ *   ordenado e despejado num arquivo temporário, e no fim os lotes são intercalados (merge sort externo).
+ *
+ * Empates no total saem pelo menor número de grupo, então a ordem é sempre a mesma.
+ * Não é thread-safe.
+ */
+final class RankingGrupos implements Closeable {
+
+    /**
+     * Recebe os grupos já na ordem do ranking.
+     */
+    @FunctionalInterface
+    interface Consumidor {
+        void aceitar(int grupo, long totalCentavos) throws IOException;
+    }
+
+    // Máximo de lotes abertos ao mesmo tempo na intercalação (com mais, intercala em várias passadas)
+    private static final int MAX_LOTES_ABERTOS = 64;
+
+    private final int limiteMemoria;
+    private final int topK;
+
+    // Lote atual (ou heap do top-K): pares em arrays paralelos
+    private long[] totais;
+    private int[] grupos;
+    private int tamanho;
+
+    private Path pastaTemporaria;
+    private final List<Path> lotes = new ArrayList<>();
+    private int numeroLote;
+
+    /**
+     * @param limiteMemoria Número máximo de pares em memória antes de despejar em disco
+     * @param topK Quantidade de grupos a emitir (0 ou negativo = todos)
+     */
+    RankingGrupos(int limiteMemoria, int topK) {
+        this.limiteMemoria = Math.max(2, limiteMemoria);
+        this.topK = Math.max(0, topK);
+        // O lote cresce sob demanda até o limite; o heap do top-K já nasce com K posições
+        int capacidade = this.topK > 0 ? this.topK : Math.min(this.limiteMemoria, 1024);
+        this.totais = new long[capacidade];
+        this.grupos = new int[capacidade];
+    }
+
+    void adicionar(long totalCentavos, int grupo) throws IOException {
+        if (topK > 0) {
+            adicionarNoHeap(totalCentavos, grupo);
+            return;
+        }
+        if (tamanho == limiteMemoria) {
+            despejarLote();
+        }
+        garantirCapacidade();
+        totais[tamanho] = totalCentavos;
+        grupos[tamanho] = grupo;
+        tamanho++;
+    }
+
+    /**
+     * Emite os grupos do maior para o menor total (só os K primeiros se houver top-K).
+     */
+    void percorrer(Consumidor consumidor) throws IOException {
+        if (lotes.isEmpty()) {
+            ordenar(totais, grupos, 0, tamanho - 1);
+            for (int i = 0; i < tamanho; i++) {
+                consumidor.aceitar(grupos[i], totais[i]);
+            }
+            return;
+        }
+
+        if (tamanho > 0) despejarLote();
+        // Reduz a quantidade de lotes juntando os primeiros em um só, até caberem numa intercalação
+        while (lotes.size() > MAX_LOTES_ABERTOS) {
+            List<Path> primeiros = new ArrayList<>(lotes.subList(0, MAX_LOTES_ABERTOS));
+            lotes.subList(0, MAX_LOTES_ABERTOS).clear();
+            Path juntado = pastaTemporaria.resolve("lote-" + (numeroLote++) + ".bin");
+            try (DataOutputStream out = abrirLote(juntado)) {
+                intercalar(primeiros, (grupo, total) -> {
+                    out.writeLong(total);
+                    out.writeInt(grupo);
+                });
+            }
+            for (Path lote : primeiros) Files.delete(lote);
+            lotes.add(juntado);
+        }
+        intercalar(lotes, consumidor);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pastaTemporaria == null) return;
+        try (Stream<Path> arquivos = Files.list(pastaTemporaria)) {
+            for (Path arquivo : arquivos.toList()) {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+        Files.deleteIfExists(pastaTemporaria);
+    }
+
+    /**
+     * Heap mínimo pela ordem do ranking: a raiz é o pior dos K guardados.
+     */
+    private void adicionarNoHeap(long total, int grupo) {
+        if (tamanho < topK) {
+            int i = tamanho++;
+            totais[i] = total;
+            grupos[i] = grupo;
+            while (i > 0) {
+                int pai = (i - 1) >>> 1;
+                if (!vemAntes(totais[pai], grupos[pai], totais[i], grupos[i])) break;
+                trocar(totais, grupos, pai, i);
+                i = pai;
+            }
+        } else if (vemAntes(total, grupo, totais[0], grupos[0])) {
+            totais[0] = total;
+            grupos[0] = grupo;
+            int i = 0;
+            while (true) {
+                int pior = i;
+                int esq = 2 * i + 1;
+                int dir = esq + 1;
+                if (esq < tamanho && vemAntes(totais[pior], grupos[pior], totais[esq], grupos[esq])) pior = esq;
+                if (dir < tamanho && vemAntes(totais[pior], grupos[pior], totais[dir], grupos[dir])) pior = dir;
+                if (pior == i) break;
+                trocar(totais, grupos, pior, i);
+                i = pior;
+            }
+        }
+    }
+
+    private void despejarLote() throws IOException {
+        if (pastaTemporaria == null) {
+            pastaTemporaria = Files.createTempDirectory("ranking-despesas");
+        }
+        ordenar(totais, grupos, 0, tamanho - 1);
+
+        Path lote = pastaTemporaria.resolve("lote-" + (numeroLote++) + ".bin");
+        try (DataOutputStream out = abrirLote(lote)) {
+            for (int i = 0; i < tamanho; i++) {
+                out.writeLong(totais[i]);
+                out.writeInt(grupos[i]);
+            }
+        }
+        lotes.add(lote);
+        tamanho = 0;
+    }
+
+    /**
+     * Intercala os lotes ordenados (k-way merge), lendo um par de cada vez de cada arquivo.
+     */
+    private static void intercalar(List<Path> origem, Consumidor consumidor) throws IOException {
+        PriorityQueue<Lote> fila = new PriorityQueue<>((a, b) ->
+                vemAntes(a.total, a.grupo, b.total, b.grupo) ? -1 : vemAntes(b.total, b.grupo, a.total, a.grupo) ? 1 : 0);
+        List<Lote> abertos = new ArrayList<>();
+        try {
+            for (Path arquivo : origem) {
+                Lote lote = new Lote(arquivo);
+                abertos.add(lote);
+                if (lote.avancar()) fila.add(lote);
+            }
+            while (!fila.isEmpty()) {
+                Lote lote = fila.poll();
+                consumidor.aceitar(lote.grupo, lote.total);
+                if (lote.avancar()) fila.add(lote);
+            }
+        } finally {
+            for (Lote lote : abertos) lote.entrada.close();
+        }
+    }
+
+    private static DataOutputStream abrirLote(Path arquivo) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo), 64 * 1024));
+    }
+
+    private static final class Lote {
+        private final DataInputStream entrada;
+        private long total;
+        private int grupo;
+
+        Lote(Path arquivo) throws IOException {
+            this.entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo), 64 * 1024));
+        }
+
+        boolean avancar() throws IOException {
+            try {
+                total = entrada.readLong();
+                grupo = entrada.readInt();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+    }
+
+    private void garantirCapacidade() {
+        if (tamanho < totais.length) return;
+        int nova = (int) Math.min(limiteMemoria, (long) totais.length * 2);
+        totais = Arrays.copyOf(totais, nova);
+        grupos = Arrays.copyOf(grupos, nova);
+    }
+
+    /**
+     * Ordem do ranking: maior total primeiro; no empate, menor número de grupo.
+     */
+    private static boolean vemAntes(long totalA, int grupoA, long totalB, int grupoB) {
+        return totalA != totalB ? totalA > totalB : grupoA < grupoB;
+    }
+
+    /**
+     * Quicksort nos arrays paralelos (mediana de três, inserção para trechos pequenos).
+     */
+    private static void ordenar(long[] t, int[] g, int inicio, int fim) {
+        while (fim - inicio > 16) {
+            int meio = (inicio + fim) >>> 1;
+            if (vemAntes(t[meio], g[meio], t[inicio], g[inicio])) trocar(t, g, meio, inicio);
+            if (vemAntes(t[fim], g[fim], t[inicio], g[inicio])) trocar(t, g, fim, inicio);
+            if (vemAntes(t[fim], g[fim], t[meio], g[meio])) trocar(t, g, fim, meio);
+            long pivoTotal = t[meio];
+            int pivoGrupo = g[meio];
+
+            int i = inicio;
+            int j = fim;
+            while (i <= j) {
+                while (vemAntes(t[i], g[i], pivoTotal, pivoGrupo)) i++;
+                while (vemAntes(pivoTotal, pivoGrupo, t[j], g[j])) j--;
+                if (i <= j) trocar(t, g, i++, j--);
+            }
+            // Recursão no lado menor, laço no maior (pilha O(log n))
+            if (j - inicio < fim - i) {
+                ordenar(t, g, inicio, j);
+                inicio = i;
+            } else {
+                ordenar(t, g, i, fim);
+                fim = j;
+            }
+        }
+        for (int i = inicio + 1; i <= fim; i++) {
+            long total = t[i];
+            int grupo = g[i];
+            int j = i - 1;
+            while (j >= inicio && vemAntes(total, grupo, t[j], g[j])) {
+                t[j + 1] = t[j];
+                g[j + 1] = g[j];
+                j--;
+            }
+            t[j + 1] = total;
+            g[j + 1] = grupo;
+        }
+    }
+
+    private static void trocar(long[] t, int[] g, int a, int b) {
+        long total = t[a];
+        t[a] = t[b];
+        t[b] = total;
+        int grupo = g[a];
+        g[a] = g[b];
+        g[b] = grupo;
+    }
+}
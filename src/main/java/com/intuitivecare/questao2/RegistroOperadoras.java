@@ -0,0 +1,443 @@
+package com.intuitivecare.questao2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cadastro imutável e compacto das operadoras, indexado pelo Registro ANS como {@code int}.
+ *
+ * Todos os dados ficam num único {@link ByteBuffer}, no mesmo formato do snapshot em disco
+ * ({@link #gravar(Path, long, long)}): colunas de tamanho fixo (um índice por operadora), uma tabela
+ * de endereçamento aberto (sondagem linear) com pares (Registro ANS, índice), e os textos em UTF-8,
+ * localizados por uma tabela de deslocamentos. Montado a partir do CSV, o buffer fica no heap; aberto de
+ * um snapshot ({@link #abrir(Path, long, long)}), é o próprio arquivo mapeado em memória, então a carga
+ * não lê nem converte nada e não cria nenhum objeto por operadora.
+ *
+ * Os campos já vêm limpos (sem aspas/espaços) e as colunas de baixa cardinalidade
+ * (Modalidade e UF) são guardadas como códigos de um dicionário; a razão social também recebe um código
+ * (operadoras com a mesma razão social têm o mesmo código). O CNPJ de cada operadora
+ * é validado uma única vez, na construção. CNPJ e razão social são decodificados a cada chamada
+ * (a busca por registro e os códigos não alocam nada).
+ *
+ * Por ser imutável depois de construído (só leituras absolutas no buffer), pode ser compartilhado entre
+ * threads sem sincronização.
+ */
+public final class RegistroOperadoras {
+
+    /** Cadastro vazio, usado antes de qualquer carga. */
+    public static final RegistroOperadoras VAZIO = new Construtor().construir();
+
+    // Assinatura "ANSCAD1\0": identifica o arquivo e a versão do formato
+    private static final long ASSINATURA = 0x414E534341443100L;
+
+    // Cabeçalho: assinatura, origem (tamanho e data do CSV), n, capacidade da tabela, razões, modalidades, UFs
+    private static final int POS_TAMANHO_FONTE = 8;
+    private static final int POS_MODIFICACAO_FONTE = 16;
+    private static final int TAMANHO_CABECALHO = 48;
+
+    // Posição vazia na tabela (Registro ANS válido é sempre positivo)
+    private static final int LIVRE = 0;
+
+    private final ByteBuffer dados;
+    private final int tamanho;
+    private final int mascara;
+    private final int deslocamento;
+    private final int quantidadeRazoesSociais;
+
+    // Início de cada seção no buffer
+    private final int tabela;
+    private final int registros;
+    private final int codigosRazaoSocial;
+    private final int codigosModalidade;
+    private final int codigosUf;
+    private final int cnpjsValidos;
+    private final int deslocamentosTexto;
+    private final int textos;
+
+    // Dicionários (poucos valores): decodificados uma vez
+    private final String[] dicionarioModalidades;
+    private final String[] dicionarioUfs;
+
+    private RegistroOperadoras(ByteBuffer dados) throws IOException {
+        if (dados.limit() < TAMANHO_CABECALHO || dados.getLong(0) != ASSINATURA) {
+            throw new IOException("Arquivo não é um snapshot do cadastro (assinatura inválida)");
+        }
+        this.dados = dados;
+        this.tamanho = dados.getInt(24);
+        int capacidade = dados.getInt(28);
+        this.quantidadeRazoesSociais = dados.getInt(32);
+        int modalidades = dados.getInt(36);
+        int ufs = dados.getInt(40);
+        if (tamanho < 0 || Integer.bitCount(capacidade) != 1 || capacidade < 2 * tamanho
+                || modalidades < 0 || ufs < 0) {
+            throw new IOException("Snapshot do cadastro corrompido (cabeçalho)");
+        }
+        this.mascara = capacidade - 1;
+        this.deslocamento = 32 - Integer.numberOfTrailingZeros(capacidade);
+
+        long[] secoes = secoes(tamanho, capacidade, modalidades, ufs);
+        this.tabela = (int) secoes[0];
+        this.registros = (int) secoes[1];
+        this.codigosRazaoSocial = (int) secoes[2];
+        this.codigosModalidade = (int) secoes[3];
+        this.codigosUf = (int) secoes[4];
+        this.cnpjsValidos = (int) secoes[5];
+        this.deslocamentosTexto = (int) secoes[6];
+        this.textos = (int) secoes[7];
+        if (secoes[7] > dados.limit() || (long) textos + dados.getInt(deslocamentosTexto + 4 * (2 * tamanho + modalidades + ufs)) != dados.limit()) {
+            throw new IOException("Snapshot do cadastro corrompido (tamanho " + dados.limit() + ")");
+        }
+
+        this.dicionarioModalidades = new String[modalidades];
+        this.dicionarioUfs = new String[ufs];
+        for (int c = 0; c < modalidades; c++) dicionarioModalidades[c] = texto(2 * tamanho + c);
+        for (int c = 0; c < ufs; c++) dicionarioUfs[c] = texto(2 * tamanho + modalidades + c);
+    }
+
+    /**
+     * Início de cada seção (tabela, registros, códigos de razão social, modalidade e UF, CNPJs válidos,
+     * deslocamentos dos textos, textos), todas alinhadas em 4 bytes.
+     */
+    private static long[] secoes(int n, int capacidade, int modalidades, int ufs) {
+        long[] inicio = new long[8];
+        inicio[0] = TAMANHO_CABECALHO;
+        inicio[1] = inicio[0] + 8L * capacidade;
+        inicio[2] = inicio[1] + 4L * n;
+        inicio[3] = inicio[2] + 4L * n;
+        inicio[4] = inicio[3] + 2L * n;
+        inicio[5] = inicio[4] + 2L * n;
+        inicio[6] = (inicio[5] + n + 3) & ~3L;
+        inicio[7] = inicio[6] + 4L * (2L * n + modalidades + ufs + 1);
+        return inicio;
+    }
+
+    /**
+     * Abre um snapshot gravado por {@link #gravar(Path, long, long)}, mapeando o arquivo em memória.
+     * @param tamanhoFonte Tamanho atual do CSV de origem
+     * @param modificacaoFonte Data de modificação atual do CSV de origem (ms)
+     * @return O cadastro, ou null se o snapshot não existe ou foi gerado de outra versão do CSV.
+     */
+    public static RegistroOperadoras abrir(Path arquivo, long tamanhoFonte, long modificacaoFonte) throws IOException {
+        if (!Files.isRegularFile(arquivo)) return null;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (canal.size() < TAMANHO_CABECALHO || canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot do cadastro com tamanho inválido: " + canal.size());
+            }
+            // Confere a origem lendo só o começo do cabeçalho: um snapshot desatualizado não pode ficar
+            // mapeado, porque vai ser substituído em seguida por gravar (no Windows, trocar um arquivo
+            // mapeado falha)
+            ByteBuffer origem = ByteBuffer.allocate(POS_MODIFICACAO_FONTE + 8);
+            while (origem.hasRemaining()) {
+                if (canal.read(origem, origem.position()) < 0) {
+                    throw new IOException("Fim inesperado do snapshot do cadastro");
+                }
+            }
+            if (origem.getLong(0) != ASSINATURA) {
+                throw new IOException("Arquivo não é um snapshot do cadastro (assinatura inválida)");
+            }
+            if (origem.getLong(POS_TAMANHO_FONTE) != tamanhoFonte || origem.getLong(POS_MODIFICACAO_FONTE) != modificacaoFonte) {
+                return null;
+            }
+            // O mapeamento continua válido depois de fechar o canal
+            return new RegistroOperadoras(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    /**
+     * Grava o cadastro como snapshot em {@code arquivo} (via arquivo temporário na mesma pasta, trocado
+     * no fim), marcado com o tamanho e a data de modificação do CSV de origem.
+     */
+    public void gravar(Path arquivo, long tamanhoFonte, long modificacaoFonte) throws IOException {
+        ByteBuffer origem = ByteBuffer.allocate(16).putLong(tamanhoFonte).putLong(modificacaoFonte).flip();
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try {
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer conteudo = dados.duplicate().clear();
+                while (conteudo.hasRemaining()) canal.write(conteudo);
+                while (origem.hasRemaining()) canal.write(origem, POS_TAMANHO_FONTE + origem.position());
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    /**
+     * Busca o índice interno da operadora.
+     * @return Índice para usar nos getters, ou -1 se o registro não está no cadastro.
+     */
+    public int indiceDe(int registroAns) {
+        if (registroAns <= 0) return -1;
+        int pos = posicaoInicial(registroAns);
+        while (true) {
+            int chave = dados.getInt(tabela + 8 * pos);
+            if (chave == registroAns) return dados.getInt(tabela + 8 * pos + 4);
+            if (chave == LIVRE) return -1;
+            pos = (pos + 1) & mascara;
+        }
+    }
+
+    /**
+     * Mesmo que {@link #indiceDe(int)}, recebendo o registro como texto (ex: "123456" ou " \"123456\" ").
+     * Ignora aspas e espaços nas pontas; qualquer outro caractere não numérico resulta em -1.
+     */
+    public int indiceDe(CharSequence registroAns) {
+        int inicio = 0;
+        int fim = registroAns.length();
+        while (inicio < fim && ehIgnoravel(registroAns.charAt(inicio))) inicio++;
+        while (fim > inicio && ehIgnoravel(registroAns.charAt(fim - 1))) fim--;
+        if (inicio == fim || fim - inicio > 9) return -1;
+
+        int valor = 0;
+        for (int i = inicio; i < fim; i++) {
+            char c = registroAns.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return indiceDe(valor);
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public int registroAns(int indice) {
+        return dados.getInt(registros + 4 * verificar(indice));
+    }
+
+    public String cnpj(int indice) {
+        return texto(2 * verificar(indice));
+    }
+
+    /** Resultado de {@link CnpjValidator#isCNPJ(CharSequence)} calculado na construção do cadastro. */
+    public boolean cnpjValido(int indice) {
+        return dados.get(cnpjsValidos + verificar(indice)) != 0;
+    }
+
+    public String razaoSocial(int indice) {
+        return texto(2 * verificar(indice) + 1);
+    }
+
+    public String modalidade(int indice) {
+        return dicionarioModalidades[codigoModalidade(indice)];
+    }
+
+    public String uf(int indice) {
+        return dicionarioUfs[codigoUf(indice)];
+    }
+
+    /** Código da razão social (0 .. quantidadeRazoesSociais-1); iguais para razões sociais iguais. */
+    public int codigoRazaoSocial(int indice) {
+        return dados.getInt(codigosRazaoSocial + 4 * verificar(indice));
+    }
+
+    public int quantidadeRazoesSociais() {
+        return quantidadeRazoesSociais;
+    }
+
+    /** Código da modalidade no dicionário (0 .. quantidadeModalidades-1). */
+    public int codigoModalidade(int indice) {
+        return dados.getShort(codigosModalidade + 2 * verificar(indice));
+    }
+
+    /** Código da UF no dicionário (0 .. quantidadeUfs-1). */
+    public int codigoUf(int indice) {
+        return dados.getShort(codigosUf + 2 * verificar(indice));
+    }
+
+    public int quantidadeModalidades() {
+        return dicionarioModalidades.length;
+    }
+
+    public int quantidadeUfs() {
+        return dicionarioUfs.length;
+    }
+
+    public String modalidadePorCodigo(int codigo) {
+        return dicionarioModalidades[codigo];
+    }
+
+    public String ufPorCodigo(int codigo) {
+        return dicionarioUfs[codigo];
+    }
+
+    private int posicaoInicial(int chave) {
+        // Espalha os bits (hash de Fibonacci) para registros sequenciais não se agruparem
+        return (chave * 0x9E3779B9) >>> deslocamento;
+    }
+
+    /**
+     * As colunas são vizinhas no buffer: um índice fora da faixa leria a operadora errada em vez de falhar.
+     */
+    private int verificar(int indice) {
+        return Objects.checkIndex(indice, tamanho);
+    }
+
+    /**
+     * Texto {@code k} da tabela de deslocamentos (CNPJ, razão social, modalidades e UFs), decodificado do UTF-8.
+     */
+    private String texto(int k) {
+        int inicio = dados.getInt(deslocamentosTexto + 4 * k);
+        int fim = dados.getInt(deslocamentosTexto + 4 * k + 4);
+        byte[] bytes = new byte[fim - inicio];
+        dados.get(textos + inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean ehIgnoravel(char c) {
+        return c == '"' || c <= ' ';
+    }
+
+    /**
+     * Monta um {@link RegistroOperadoras}. Não é thread-safe; use uma vez e descarte.
+     * Se o mesmo Registro ANS aparecer de novo, a última ocorrência vence (como no HashMap antigo).
+     */
+    public static final class Construtor {
+
+        private int[] registros = new int[1024];
+        private String[] cnpjs = new String[1024];
+        private String[] razoesSociais = new String[1024];
+        private short[] codigosModalidade = new short[1024];
+        private short[] codigosUf = new short[1024];
+        private int tamanho;
+
+        private final Map<Integer, Integer> indicePorRegistro = new HashMap<>();
+        private final Map<String, Short> dicionarioModalidades = new HashMap<>();
+        private final Map<String, Short> dicionarioUfs = new HashMap<>();
+
+        /**
+         * @param registroAns Registro ANS (positivo; outros valores são ignorados)
+         * @param cnpj CNPJ já limpo
+         * @param razaoSocial Razão social já limpa
+         * @param modalidade Modalidade já limpa
+         * @param uf UF já limpa
+         */
+        public Construtor adicionar(int registroAns, String cnpj, String razaoSocial, String modalidade, String uf) {
+            if (registroAns <= 0) return this;
+
+            Integer existente = indicePorRegistro.get(registroAns);
+            int i;
+            if (existente != null) {
+                i = existente;
+            } else {
+                if (tamanho == registros.length) crescer();
+                i = tamanho++;
+                indicePorRegistro.put(registroAns, i);
+            }
+
+            registros[i] = registroAns;
+            cnpjs[i] = cnpj;
+            razoesSociais[i] = razaoSocial;
+            codigosModalidade[i] = codigo(dicionarioModalidades, modalidade);
+            codigosUf[i] = codigo(dicionarioUfs, uf);
+            return this;
+        }
+
+        /**
+         * Monta o buffer no formato do snapshot (no heap). A origem fica zerada até {@link #gravar(Path, long, long)}.
+         */
+        public RegistroOperadoras construir() {
+            int n = tamanho;
+            String[] modalidades = dicionario(dicionarioModalidades);
+            String[] ufs = dicionario(dicionarioUfs);
+
+            // Textos na ordem da tabela de deslocamentos: (CNPJ, razão social) por operadora, modalidades, UFs
+            byte[][] textos = new byte[2 * n + modalidades.length + ufs.length][];
+            for (int i = 0; i < n; i++) {
+                textos[2 * i] = cnpjs[i].getBytes(StandardCharsets.UTF_8);
+                textos[2 * i + 1] = razoesSociais[i].getBytes(StandardCharsets.UTF_8);
+            }
+            for (int c = 0; c < modalidades.length; c++) textos[2 * n + c] = modalidades[c].getBytes(StandardCharsets.UTF_8);
+            for (int c = 0; c < ufs.length; c++) textos[2 * n + modalidades.length + c] = ufs[c].getBytes(StandardCharsets.UTF_8);
+            long bytesTexto = 0;
+            for (byte[] t : textos) bytesTexto += t.length;
+
+            // Tabela com fator de carga <= 0,5 (capacidade potência de 2)
+            int capacidade = Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+            long[] secoes = secoes(n, capacidade, modalidades.length, ufs.length);
+            if (secoes[7] + bytesTexto > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Cadastro grande demais para um snapshot: " + n + " operadoras");
+            }
+            ByteBuffer dados = ByteBuffer.allocate((int) (secoes[7] + bytesTexto));
+
+            // CNPJ validado uma vez por operadora, e não a cada linha de despesa
+            boolean[] validos = CnpjValidator.validarLote(Arrays.copyOf(cnpjs, n));
+            Map<String, Integer> dicionarioRazoes = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                int codigo = dicionarioRazoes.computeIfAbsent(razoesSociais[i], k -> dicionarioRazoes.size());
+                dados.putInt((int) secoes[1] + 4 * i, registros[i]);
+                dados.putInt((int) secoes[2] + 4 * i, codigo);
+                dados.putShort((int) secoes[3] + 2 * i, codigosModalidade[i]);
+                dados.putShort((int) secoes[4] + 2 * i, codigosUf[i]);
+                dados.put((int) secoes[5] + i, (byte) (validos[i] ? 1 : 0));
+            }
+
+            int mascara = capacidade - 1;
+            int deslocamento = 32 - Integer.numberOfTrailingZeros(capacidade);
+            for (int i = 0; i < n; i++) {
+                int pos = (registros[i] * 0x9E3779B9) >>> deslocamento;
+                while (dados.getInt((int) secoes[0] + 8 * pos) != LIVRE) pos = (pos + 1) & mascara;
+                dados.putInt((int) secoes[0] + 8 * pos, registros[i]);
+                dados.putInt((int) secoes[0] + 8 * pos + 4, i);
+            }
+
+            int deslocamentoTexto = 0;
+            for (int k = 0; k < textos.length; k++) {
+                dados.putInt((int) secoes[6] + 4 * k, deslocamentoTexto);
+                dados.put((int) secoes[7] + deslocamentoTexto, textos[k]);
+                deslocamentoTexto += textos[k].length;
+            }
+            dados.putInt((int) secoes[6] + 4 * textos.length, deslocamentoTexto);
+
+            dados.putLong(0, ASSINATURA);
+            dados.putInt(24, n);
+            dados.putInt(28, capacidade);
+            dados.putInt(32, dicionarioRazoes.size());
+            dados.putInt(36, modalidades.length);
+            dados.putInt(40, ufs.length);
+            try {
+                return new RegistroOperadoras(dados);
+            } catch (IOException e) {
+                throw new IllegalStateException("Falha ao montar o cadastro", e);
+            }
+        }
+
+        private static String[] dicionario(Map<String, Short> codigos) {
+            String[] valores = new String[codigos.size()];
+            for (Map.Entry<String, Short> e : codigos.entrySet()) valores[e.getValue()] = e.getKey();
+            return valores;
+        }
+
+        private short codigo(Map<String, Short> dicionario, String valor) {
+            Short codigo = dicionario.get(valor);
+            if (codigo == null) {
+                if (dicionario.size() == Short.MAX_VALUE) {
+                    throw new IllegalStateException("Dicionário cheio: muitos valores distintos");
+                }
+                codigo = (short) dicionario.size();
+                dicionario.put(valor, codigo);
+            }
+            return codigo;
+        }
+
+        private void crescer() {
+            int novo = registros.length * 2;
+            registros = Arrays.copyOf(registros, novo);
+            cnpjs = Arrays.copyOf(cnpjs, novo);
+            razoesSociais = Arrays.copyOf(razoesSociais, novo);
+            codigosModalidade = Arrays.copyOf(codigosModalidade, novo);
+            codigosUf = Arrays.copyOf(codigosUf, novo);
+        }
+    }
+}
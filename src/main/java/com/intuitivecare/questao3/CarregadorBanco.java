@@ -0,0 +1,500 @@
+package com.intuitivecare.questao3;
+
+import com.intuitivecare.questao1.Centavos;
+import com.intuitivecare.questao1.Metricas;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Carga das tabelas da Questão 3 ({@code operadoras} e {@code demonstracoes_contabeis}) via JDBC,
+ * substituindo o {@code LOAD DATA LOCAL INFILE} com caminhos fixos do script 02.
+ *
+ * - Os arquivos são lidos em streaming e as conversões (CNPJ só com dígitos, data de registro,
+ *   trimestre -> último dia do trimestre, valor -> DECIMAL) são feitas aqui, e não no servidor;
+ * - Inserções em lotes de PreparedStatement (no MySQL com {@code rewriteBatchedStatements=true}, um lote vira
+ *   um único INSERT com várias linhas), com commit a cada N linhas;
+ * - As despesas são divididas por trimestre: cada trimestre vai sempre para o mesmo escritor, e cada escritor
+ *   tem sua própria conexão e thread;
+ * - Upsert ({@code INSERT ... ON DUPLICATE KEY UPDATE}): operadoras pela chave primária, despesas pela linha de
+ *   origem no consolidado. Rodar a carga de novo com o mesmo arquivo não duplica nada, e linhas que sumiram do
+ *   arquivo são apagadas no fim.
+ *
+ * Funciona com MySQL 8 e com H2 em modo MySQL (ex: {@code jdbc:h2:mem:ans;MODE=MySQL;DATABASE_TO_LOWER=TRUE}).
+ */
+public class CarregadorBanco {
+
+    // Identificação das despesas vindas do consolidado (mesmos valores fixos do script 02)
+    static final String CONTA_CONSOLIDADA = "EVENTOS_SINISTROS";
+    private static final String DESCRICAO_CONSOLIDADA = "Despesas Assistenciais Consolidadas";
+
+    private static final CSVFormat FORMATO = CSVFormat.DEFAULT.builder().setDelimiter(';').build();
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Colunas do Relatorio_Cadop.csv, na ordem do arquivo (e da tabela)
+    private static final String[] COLUNAS_OPERADORA = {
+            "registro_ans", "cnpj", "razao_social", "nome_fantasia", "modalidade", "logradouro", "numero",
+            "complemento", "bairro", "cidade", "uf", "cep", "ddd", "telefone", "fax", "endereco_eletronico",
+            "representante", "cargo_representante", "data_registro_ans"};
+
+    private static final String UPSERT_DESPESA = "INSERT INTO demonstracoes_contabeis "
+            + "(registro_ans, data_referencia, cd_conta_contabil, descricao, saldo_inicial, saldo_final, linha_origem) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "registro_ans = VALUES(registro_ans), data_referencia = VALUES(data_referencia), "
+            + "descricao = VALUES(descricao), saldo_inicial = VALUES(saldo_inicial), saldo_final = VALUES(saldo_final)";
+
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final int tamanhoLote;
+    private final int linhasPorCommit;
+    private final int escritores;
+
+    /**
+     * @param url URL JDBC; no MySQL, {@code rewriteBatchedStatements=true} é acrescentado se faltar
+     * @param tamanhoLote Linhas por executeBatch
+     * @param linhasPorCommit Linhas por transação (arredondado para lotes inteiros)
+     * @param escritores Conexões/threads gravando despesas em paralelo
+     */
+    public CarregadorBanco(String url, String usuario, String senha, int tamanhoLote, int linhasPorCommit, int escritores) {
+        this.url = url.startsWith("jdbc:mysql:") && !url.contains("rewriteBatchedStatements")
+                ? url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true"
+                : url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.linhasPorCommit = Math.max(this.tamanhoLote, linhasPorCommit);
+        this.escritores = Math.max(1, escritores);
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== Iniciando Questao 3: Carga no Banco ===");
+        CarregadorBanco carregador = new CarregadorBanco(
+                System.getProperty("ans.db.url", "jdbc:mysql://localhost:3306/teste_intuitive_care"),
+                System.getProperty("ans.db.usuario", "root"),
+                System.getProperty("ans.db.senha", System.getenv().getOrDefault("ANS_DB_SENHA", "")),
+                Integer.getInteger("ans.db.lote", 1000),
+                Integer.getInteger("ans.db.commit", 20_000),
+                Integer.getInteger("ans.db.threads", 4));
+        try {
+            if (Boolean.getBoolean("ans.db.criarTabelas")) {
+                carregador.criarTabelas(Paths.get("sql", "01_criacao_tabelas.sql"));
+            }
+            carregador.carregarOperadoras(Paths.get("Relatorio_Cadop.csv"));
+            carregador.carregarDespesas(Paths.get("consolidado.csv"));
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+        } finally {
+            Metricas.gravarResumo("questao3");
+        }
+    }
+
+    /**
+     * Executa os CREATE TABLE do script DDL (CREATE DATABASE e USE são ignorados: o banco vem da URL).
+     */
+    public void criarTabelas(Path scriptDdl) throws IOException, SQLException {
+        String script = Files.readString(scriptDdl, StandardCharsets.UTF_8)
+                .replaceAll("(?s)/\\*.*?\\*/", "")
+                .replaceAll("--[^\n]*", "");
+        try (Connection conexao = conectar(); Statement st = conexao.createStatement()) {
+            for (String comando : script.split(";")) {
+                String sql = comando.strip();
+                if (sql.regionMatches(true, 0, "CREATE TABLE", 0, 12)) {
+                    st.execute(sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * Carrega o Relatorio_Cadop.csv (ISO-8859-1) em {@code operadoras}, com upsert pelo Registro ANS.
+     * Linhas cujo primeiro campo não é um número (títulos, cabeçalho) são puladas.
+     * @return Operadoras gravadas
+     */
+    public int carregarOperadoras(Path cadop) throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO operadoras (").append(String.join(", ", COLUNAS_OPERADORA))
+                .append(") VALUES (").append("?, ".repeat(COLUNAS_OPERADORA.length - 1)).append("?) ON DUPLICATE KEY UPDATE ");
+        for (int c = 1; c < COLUNAS_OPERADORA.length; c++) {
+            if (c > 1) sql.append(", ");
+            sql.append(COLUNAS_OPERADORA[c]).append(" = VALUES(").append(COLUNAS_OPERADORA[c]).append(')');
+        }
+
+        int gravadas = 0;
+        try (Metricas.Cronometro c = Metricas.etapa("carga.operadoras").iniciar();
+             Reader reader = Files.newBufferedReader(cadop, StandardCharsets.ISO_8859_1);
+             CSVParser parser = FORMATO.parse(reader);
+             Connection conexao = conectar();
+             PreparedStatement ps = conexao.prepareStatement(sql.toString())) {
+            conexao.setAutoCommit(false);
+            int noLote = 0;
+            int pendentes = 0;
+            for (CSVRecord registro : parser) {
+                int registroAns = inteiro(campo(registro, 0));
+                if (registroAns <= 0) continue;
+
+                ps.setInt(1, registroAns);
+                ps.setString(2, somenteDigitos(campo(registro, 1)));
+                for (int col = 2; col < COLUNAS_OPERADORA.length - 1; col++) {
+                    ps.setString(col + 1, campo(registro, col));
+                }
+                ps.setDate(COLUNAS_OPERADORA.length, data(campo(registro, COLUNAS_OPERADORA.length - 1)));
+                ps.addBatch();
+                gravadas++;
+                if (++noLote == tamanhoLote) {
+                    ps.executeBatch();
+                    pendentes += noLote;
+                    noLote = 0;
+                    if (pendentes >= linhasPorCommit) {
+                        conexao.commit();
+                        pendentes = 0;
+                    }
+                }
+            }
+            if (noLote > 0) ps.executeBatch();
+            conexao.commit();
+            c.itens(gravadas).bytes(Files.size(cadop));
+        }
+        System.out.println("  Operadoras gravadas: " + gravadas);
+        return gravadas;
+    }
+
+    /**
+     * Carrega o consolidado.csv em {@code demonstracoes_contabeis}. A leitura (esta thread) valida as linhas
+     * e monta lotes por trimestre; os escritores gravam em paralelo. Linhas de operadoras que não estão na tabela
+     * {@code operadoras} são descartadas (a chave estrangeira recusaria o lote inteiro).
+     * @return Despesas gravadas
+     */
+    public long carregarDespesas(Path consolidado) throws IOException, SQLException {
+        Set<Integer> cadastradas = registrosCadastrados();
+
+        // Todas as conexões são abertas antes de qualquer thread: se uma falhar (ex: max_connections),
+        // nenhum escritor fica esperando na fila um FIM que não viria
+        Connection[] conexoes = new Connection[escritores];
+        try {
+            for (int e = 0; e < escritores; e++) conexoes[e] = conectar();
+        } catch (SQLException e) {
+            for (Connection aberta : conexoes) {
+                if (aberta == null) continue;
+                try {
+                    aberta.close();
+                } catch (SQLException fechar) {
+                    e.addSuppressed(fechar);
+                }
+            }
+            throw e;
+        }
+
+        Escritor[] escritor = new Escritor[escritores];
+        Thread[] threads = new Thread[escritores];
+        for (int e = 0; e < escritores; e++) {
+            escritor[e] = new Escritor(conexoes[e]);
+            threads[e] = Thread.ofPlatform().name("carga-escritor-" + e).start(escritor[e]);
+        }
+
+        // Trimestre (ano * 10 + trimestre) -> lote em montagem; o escritor do trimestre é fixo (round-robin)
+        Map<Integer, Lote> lotes = new HashMap<>();
+        Map<Integer, Integer> escritorDoTrimestre = new HashMap<>();
+        LinhasDescartadas descartadas = new LinhasDescartadas();
+        long linha = 0;
+        long gravadas = 0;
+        try (Metricas.Cronometro c = Metricas.etapa("carga.despesas").iniciar();
+             Reader reader = Files.newBufferedReader(consolidado, StandardCharsets.UTF_8);
+             CSVParser parser = FORMATO.parse(reader)) {
+            boolean cabecalho = true;
+            for (CSVRecord registro : parser) {
+                if (cabecalho) {
+                    cabecalho = false;
+                    continue;
+                }
+                linha++;
+
+                // RazaoSocial;CNPJ(Registro ANS);Trimestre;Ano;ValorDespesas
+                int registroAns = inteiro(campo(registro, 1));
+                int trimestre = trimestre(campo(registro, 2));
+                int ano = inteiro(campo(registro, 3));
+                long centavos;
+                try {
+                    centavos = Centavos.parse(campo(registro, 4) == null ? "" : campo(registro, 4));
+                } catch (NumberFormatException e) {
+                    descartadas.adicionar(linha);
+                    continue;
+                }
+                if (trimestre <= 0 || ano <= 0) {
+                    descartadas.adicionar(linha);
+                    continue;
+                }
+                if (!cadastradas.contains(registroAns)) {
+                    Metricas.contar("carga.foraDoCadastro", 1);
+                    descartadas.adicionar(linha);
+                    continue;
+                }
+
+                int periodo = ano * 10 + trimestre;
+                Lote lote = lotes.get(periodo);
+                if (lote == null) {
+                    escritorDoTrimestre.put(periodo, escritorDoTrimestre.size() % escritores);
+                    lote = new Lote(fimDoTrimestre(ano, trimestre), tamanhoLote);
+                    lotes.put(periodo, lote);
+                }
+                lote.adicionar(registroAns, centavos, linha);
+                gravadas++;
+                if (lote.tamanho == tamanhoLote) {
+                    escritor[escritorDoTrimestre.get(periodo)].enviar(lote);
+                    lotes.put(periodo, new Lote(lote.data, tamanhoLote));
+                }
+            }
+
+            for (Map.Entry<Integer, Lote> restante : lotes.entrySet()) {
+                if (restante.getValue().tamanho > 0) escritor[escritorDoTrimestre.get(restante.getKey())].enviar(restante.getValue());
+            }
+            c.itens(linha).bytes(Files.size(consolidado));
+        } finally {
+            for (Escritor e : escritor) e.enviar(Lote.FIM);
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Carga interrompida", e);
+                }
+            }
+        }
+        for (Escritor e : escritor) {
+            if (e.falha != null) throw e.falha;
+        }
+
+        apagarLinhasAntigas(linha, descartadas);
+        Metricas.contar("carga.despesas", gravadas);
+        Metricas.contar("carga.descartadas", descartadas.tamanho);
+        System.out.println("  Despesas gravadas: " + gravadas + " (" + descartadas.tamanho + " linhas descartadas, "
+                + escritorDoTrimestre.size() + " trimestres, " + escritores + " escritores)");
+        return gravadas;
+    }
+
+    /**
+     * Remove despesas de cargas anteriores que não correspondem mais a uma linha válida do arquivo:
+     * linhas além do fim do arquivo atual e linhas descartadas nesta carga.
+     */
+    private void apagarLinhasAntigas(long totalLinhas, LinhasDescartadas descartadas) throws SQLException {
+        try (Connection conexao = conectar()) {
+            conexao.setAutoCommit(false);
+            try (PreparedStatement ps = conexao.prepareStatement(
+                    "DELETE FROM demonstracoes_contabeis WHERE cd_conta_contabil = ? AND linha_origem > ?")) {
+                ps.setString(1, CONTA_CONSOLIDADA);
+                ps.setLong(2, totalLinhas);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conexao.prepareStatement(
+                    "DELETE FROM demonstracoes_contabeis WHERE cd_conta_contabil = ? AND linha_origem = ?")) {
+                for (int i = 0; i < descartadas.tamanho; i++) {
+                    ps.setString(1, CONTA_CONSOLIDADA);
+                    ps.setLong(2, descartadas.linhas[i]);
+                    ps.addBatch();
+                    if ((i + 1) % tamanhoLote == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            conexao.commit();
+        }
+    }
+
+    private Set<Integer> registrosCadastrados() throws SQLException {
+        Set<Integer> registros = new HashSet<>();
+        try (Connection conexao = conectar();
+             Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT registro_ans FROM operadoras")) {
+            while (rs.next()) registros.add(rs.getInt(1));
+        }
+        return registros;
+    }
+
+    private Connection conectar() throws SQLException {
+        return DriverManager.getConnection(url, usuario, senha);
+    }
+
+    /**
+     * Lote de despesas de um único trimestre, em arrays paralelos.
+     */
+    private static final class Lote {
+        // Sinal de fim para os escritores
+        static final Lote FIM = new Lote(null, 0);
+
+        final Date data;
+        final int[] registros;
+        final long[] centavos;
+        final long[] linhas;
+        int tamanho;
+
+        Lote(Date data, int capacidade) {
+            this.data = data;
+            this.registros = new int[capacidade];
+            this.centavos = new long[capacidade];
+            this.linhas = new long[capacidade];
+        }
+
+        void adicionar(int registroAns, long valor, long linha) {
+            registros[tamanho] = registroAns;
+            centavos[tamanho] = valor;
+            linhas[tamanho] = linha;
+            tamanho++;
+        }
+    }
+
+    /**
+     * Grava os lotes recebidos numa conexão própria, com commit a cada {@code linhasPorCommit}.
+     * Se o banco falhar, guarda o erro e continua consumindo a fila (sem gravar) para a leitura não travar.
+     */
+    private final class Escritor implements Runnable {
+        private final Connection conexao;
+        // Poucos lotes de folga: se o banco for mais lento que a leitura, a leitura espera
+        private final BlockingQueue<Lote> fila = new ArrayBlockingQueue<>(4);
+        private volatile SQLException falha;
+
+        Escritor(Connection conexao) {
+            this.conexao = conexao;
+        }
+
+        void enviar(Lote lote) throws IOException {
+            try {
+                fila.put(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Carga interrompida", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            PreparedStatement ps = null;
+            try {
+                conexao.setAutoCommit(false);
+                ps = conexao.prepareStatement(UPSERT_DESPESA);
+            } catch (SQLException e) {
+                falha = e;
+            }
+
+            try {
+                long pendentes = 0;
+                Lote lote;
+                while ((lote = fila.take()) != Lote.FIM) {
+                    if (falha != null) continue;
+                    try {
+                        for (int i = 0; i < lote.tamanho; i++) {
+                            ps.setInt(1, lote.registros[i]);
+                            ps.setDate(2, lote.data);
+                            ps.setString(3, CONTA_CONSOLIDADA);
+                            ps.setString(4, DESCRICAO_CONSOLIDADA);
+                            ps.setBigDecimal(5, BigDecimal.ZERO);
+                            ps.setBigDecimal(6, BigDecimal.valueOf(lote.centavos[i], 2));
+                            ps.setLong(7, lote.linhas[i]);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                        pendentes += lote.tamanho;
+                        if (pendentes >= linhasPorCommit) {
+                            conexao.commit();
+                            pendentes = 0;
+                        }
+                    } catch (SQLException e) {
+                        falha = e;
+                    }
+                }
+                if (falha == null) conexao.commit();
+            } catch (SQLException e) {
+                falha = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    if (falha != null) conexao.rollback();
+                    conexao.close();
+                } catch (SQLException e) {
+                    System.err.println("  Erro ao fechar conexão: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Números das linhas descartadas (array crescente).
+     */
+    private static final class LinhasDescartadas {
+        long[] linhas = new long[1024];
+        int tamanho;
+
+        void adicionar(long linha) {
+            if (tamanho == linhas.length) linhas = Arrays.copyOf(linhas, tamanho * 2);
+            linhas[tamanho++] = linha;
+        }
+    }
+
+    private static String campo(CSVRecord registro, int indice) {
+        return indice < registro.size() ? registro.get(indice).strip() : null;
+    }
+
+    private static int inteiro(String texto) {
+        if (texto == null || texto.isEmpty() || texto.length() > 9) return -1;
+        int valor = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * "3T" (ou "3") -> 3; qualquer outra coisa -> -1.
+     */
+    private static int trimestre(String texto) {
+        if (texto == null || texto.isEmpty()) return -1;
+        int t = texto.charAt(0) - '0';
+        return t >= 1 && t <= 4 ? t : -1;
+    }
+
+    /**
+     * Data de referência do trimestre: o último dia (1T2023 -> 2023-03-31), como no script 02.
+     */
+    static Date fimDoTrimestre(int ano, int trimestre) {
+        return Date.valueOf(LocalDate.of(ano, trimestre * 3, 1).with(TemporalAdjusters.lastDayOfMonth()));
+    }
+
+    private static Date data(String texto) {
+        if (texto == null || texto.isEmpty()) return null;
+        try {
+            return Date.valueOf(LocalDate.parse(texto, texto.indexOf('/') > 0 ? DATA_BR : DateTimeFormatter.ISO_LOCAL_DATE));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String somenteDigitos(String texto) {
+        return texto == null ? null : texto.replaceAll("\\D", "");
+    }
+}
@@ -0,0 +1,175 @@
+package com.intuitivecare.questao4;
+
+import com.intuitivecare.questao1.Centavos;
+import com.intuitivecare.questao2.DespesasStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Respostas JSON da API montadas a partir de uma versão da {@link DespesasStore}.
+ * Mesmas rotas e mesmo formato de envelope do backend em Python (backend/main.py), com duas diferenças
+ * de contrato deliberadas (ver README, Questão 4):
+ *
+ * - {@code /api/operadoras?page=&limit=}: {"data": [...], "total", "page", "limit"}. Cada item traz só
+ *   "Registro_ANS", "CNPJ", "Razao_Social", "Modalidade" e "UF" (o que a base guarda e o frontend usa),
+ *   e não todas as colunas do Relatorio_Cadop.csv; "total" conta as operadoras da base;
+ * - {@code /api/operadoras/{cnpj}/despesas}: lista de {"RazaoSocial", "CNPJ", "Trimestre", "Ano", "ValorDespesas",
+ *   "QuantidadeLancamentos"}, um item por trimestre com o total do trimestre, da operadora cujo CNPJ ou Registro ANS
+ *   é igual ao informado. O Python devolve as linhas cruas do consolidado em que qualquer coluna contém o texto;
+ * - {@code /api/estatisticas}: {"total_operadoras", "modalidades", "top_5_estados"}.
+ *
+ * As estatísticas são montadas uma vez, na criação; páginas e históricos são montados na primeira
+ * requisição e guardados (até {@value #MAX_CACHE} de cada). Cada resposta já sai em bytes, com ETag.
+ * Uma instância nunca muda: quando a base é recarregada, o servidor troca por uma nova (e o cache vai junto).
+ */
+final class RespostasApi {
+
+    // Limite de respostas guardadas por tipo (páginas, históricos); acima disso, monta a cada requisição
+    private static final int MAX_CACHE = 4096;
+
+    /**
+     * Corpo JSON (UTF-8) pronto para enviar e sua ETag.
+     */
+    record Resposta(byte[] corpo, String etag) {
+        static Resposta de(String json) {
+            byte[] corpo = json.getBytes(StandardCharsets.UTF_8);
+            CRC32 crc = new CRC32();
+            crc.update(corpo);
+            return new Resposta(corpo, "\"" + Long.toHexString(crc.getValue()) + "-" + corpo.length + "\"");
+        }
+    }
+
+    private final DespesasStore store;
+    private final Resposta estatisticas;
+    private final Map<Long, Resposta> paginas = new ConcurrentHashMap<>();
+    private final Map<String, Resposta> historicos = new ConcurrentHashMap<>();
+
+    RespostasApi(DespesasStore store) {
+        this.store = store;
+        this.estatisticas = Resposta.de(montarEstatisticas());
+    }
+
+    int totalOperadoras() {
+        return store.totalOperadoras();
+    }
+
+    Resposta estatisticas() {
+        return estatisticas;
+    }
+
+    Resposta operadoras(int pagina, int limite) {
+        long chave = ((long) pagina << 32) | (limite & 0xFFFFFFFFL);
+        Resposta resposta = paginas.get(chave);
+        if (resposta == null) {
+            resposta = Resposta.de(montarOperadoras(pagina, limite));
+            if (paginas.size() < MAX_CACHE) paginas.put(chave, resposta);
+        }
+        return resposta;
+    }
+
+    /**
+     * Histórico de despesas por trimestre. Aceita o CNPJ (com ou sem pontuação) ou, se nenhum CNPJ bater,
+     * o Registro ANS (o consolidado identifica a operadora pelo registro).
+     */
+    Resposta despesas(String cnpj) {
+        Resposta resposta = historicos.get(cnpj);
+        if (resposta == null) {
+            resposta = Resposta.de(montarDespesas(cnpj));
+            if (historicos.size() < MAX_CACHE) historicos.put(cnpj, resposta);
+        }
+        return resposta;
+    }
+
+    private String montarOperadoras(int pagina, int limite) {
+        DespesasStore.Pagina<DespesasStore.Operadora> resultado = store.listarOperadoras(pagina, limite);
+        StringBuilder sb = new StringBuilder(128 + resultado.dados().size() * 160).append("{\"data\":[");
+        for (int i = 0; i < resultado.dados().size(); i++) {
+            DespesasStore.Operadora op = resultado.dados().get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"Registro_ANS\":").append(op.registroAns())
+                    .append(",\"CNPJ\":").append(texto(op.cnpj()))
+                    .append(",\"Razao_Social\":").append(texto(op.razaoSocial()))
+                    .append(",\"Modalidade\":").append(texto(op.modalidade()))
+                    .append(",\"UF\":").append(texto(op.uf()))
+                    .append('}');
+        }
+        return sb.append("],\"total\":").append(resultado.total())
+                .append(",\"page\":").append(pagina)
+                .append(",\"limit\":").append(limite)
+                .append('}').toString();
+    }
+
+    private String montarDespesas(String cnpj) {
+        DespesasStore.Operadora op = store.buscarPorCnpj(cnpj);
+        List<DespesasStore.DespesaTrimestre> historico;
+        if (op != null) {
+            historico = store.historicoPorCnpj(cnpj);
+        } else {
+            int registro = registro(cnpj);
+            op = registro > 0 ? store.buscarPorRegistro(registro) : null;
+            historico = op != null ? store.historicoPorRegistro(registro) : List.of();
+        }
+
+        StringBuilder sb = new StringBuilder(32 + historico.size() * 160).append('[');
+        for (int i = 0; i < historico.size(); i++) {
+            DespesasStore.DespesaTrimestre d = historico.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"RazaoSocial\":").append(texto(op.razaoSocial()))
+                    .append(",\"CNPJ\":").append(texto(op.cnpj()))
+                    .append(",\"Trimestre\":").append(texto(d.trimestre() + "T"))
+                    .append(",\"Ano\":").append(d.ano())
+                    .append(",\"ValorDespesas\":").append(Centavos.formatar(d.totalCentavos()))
+                    .append(",\"QuantidadeLancamentos\":").append(d.quantidade())
+                    .append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private String montarEstatisticas() {
+        StringBuilder sb = new StringBuilder(1024)
+                .append("{\"total_operadoras\":").append(store.totalOperadoras())
+                .append(",\"modalidades\":{");
+        List<DespesasStore.Distribuicao> modalidades = store.estatisticasPorModalidade();
+        for (int i = 0; i < modalidades.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(texto(modalidades.get(i).chave())).append(':').append(modalidades.get(i).operadoras());
+        }
+        sb.append("},\"top_5_estados\":{");
+        List<DespesasStore.Distribuicao> ufs = store.estatisticasPorUf();
+        for (int i = 0; i < Math.min(5, ufs.size()); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(texto(ufs.get(i).chave())).append(':').append(ufs.get(i).operadoras());
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * Registro ANS escrito só com dígitos (até 9), ou -1.
+     */
+    private static int registro(String texto) {
+        if (texto.isEmpty() || texto.length() > 9) return -1;
+        int valor = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    private static String texto(String valor) {
+        if (valor == null) return "null";
+        StringBuilder sb = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < ' ') sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,219 @@
+package com.intuitivecare.questao4;
+
+import com.intuitivecare.questao2.DespesasStore;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API da Questão 4 em Java: mesmo contrato do backend em Python, servido pelo {@link HttpServer} do JDK
+ * com uma virtual thread por requisição.
+ *
+ * Os dados vêm da base gravada no fim da Questão 2 ({@code despesas.store}), carregada uma vez em memória.
+ * Um verificador olha a data do {@code despesas_agregadas.csv} e da base a cada poucos segundos: quando uma
+ * nova execução do ETL termina (a base é gravada logo depois do CSV), a base é recarregada e trocada por
+ * inteiro, sem parar o servidor. Requisições em andamento continuam com a versão anterior.
+ *
+ * Configuração: -Dans.api.porta (padrão 8000, a mesma do frontend), -Dans.store, -Dans.api.recarga (segundos, 0 = desliga).
+ */
+public class ServidorApi implements Closeable {
+
+    private static final String ARQUIVO_RELATORIO = "despesas_agregadas.csv";
+    private static final int LIMITE_PADRAO = 10;
+    private static final int LIMITE_MAXIMO = 1000;
+
+    static {
+        // Sem TCP_NODELAY, cabeçalhos e corpo saem em escritas separadas e o Nagle + ACK atrasado do cliente
+        // somam ~40 ms em cada resposta. Precisa ser definido antes do primeiro HttpServer.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Path arquivoStore;
+    private final Path arquivoRelatorio;
+    private final HttpServer servidor;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService verificador = Executors.newSingleThreadScheduledExecutor();
+
+    // Versão atual das respostas; trocada por inteiro na recarga
+    private volatile RespostasApi respostas;
+    private FileTime versaoStore;
+    private FileTime versaoRelatorio;
+
+    /**
+     * Carrega a base e abre o servidor (ainda parado; veja {@link #iniciar(int)}).
+     * @param porta Porta TCP (0 = qualquer porta livre)
+     */
+    public ServidorApi(Path arquivoStore, Path arquivoRelatorio, int porta) throws IOException {
+        this.arquivoStore = arquivoStore;
+        this.arquivoRelatorio = arquivoRelatorio;
+        recarregar();
+
+        this.servidor = HttpServer.create(new InetSocketAddress(porta), 0);
+        servidor.createContext("/api/", this::atender);
+        servidor.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Iniciando API (Questão 4) ===");
+        int porta = Integer.getInteger("ans.api.porta", 8000);
+        ServidorApi api = new ServidorApi(Paths.get(System.getProperty("ans.store", "despesas.store")),
+                Paths.get(ARQUIVO_RELATORIO), porta);
+        api.iniciar(Integer.getInteger("ans.api.recarga", 5));
+        System.out.println("  API no ar: http://127.0.0.1:" + api.getPorta() + "/api/operadoras");
+    }
+
+    /**
+     * Começa a atender e, com {@code segundosRecarga > 0}, a verificar se o ETL gerou uma base nova.
+     */
+    public void iniciar(int segundosRecarga) {
+        servidor.start();
+        if (segundosRecarga > 0) {
+            verificador.scheduleWithFixedDelay(this::verificarAlteracao, segundosRecarga, segundosRecarga, TimeUnit.SECONDS);
+        }
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        verificador.shutdownNow();
+        servidor.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Recarrega se o relatório ou a base mudaram e a base é pelo menos tão nova quanto o relatório
+     * (o ETL terminou). Erros só são registrados: o servidor segue com a versão anterior.
+     */
+    private void verificarAlteracao() {
+        try {
+            FileTime store = Files.getLastModifiedTime(arquivoStore);
+            FileTime relatorio = Files.exists(arquivoRelatorio) ? Files.getLastModifiedTime(arquivoRelatorio) : null;
+            boolean mudou = !store.equals(versaoStore) || (relatorio != null && !relatorio.equals(versaoRelatorio));
+            if (mudou && (relatorio == null || store.compareTo(relatorio) >= 0)) {
+                recarregar();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("  Erro ao recarregar a base: " + e.getMessage());
+        }
+    }
+
+    private void recarregar() throws IOException {
+        FileTime store = Files.getLastModifiedTime(arquivoStore);
+        FileTime relatorio = Files.exists(arquivoRelatorio) ? Files.getLastModifiedTime(arquivoRelatorio) : null;
+        respostas = new RespostasApi(DespesasStore.abrir(arquivoStore));
+        versaoStore = store;
+        versaoRelatorio = relatorio;
+        System.out.println("  Base carregada: " + arquivoStore + " (" + respostas.totalOperadoras() + " operadoras)");
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            Headers cabecalhos = troca.getResponseHeaders();
+            // CORS liberado, como no backend em Python (o frontend roda em outra porta)
+            cabecalhos.set("Access-Control-Allow-Origin", "*");
+            if (troca.getRequestMethod().equals("OPTIONS")) {
+                cabecalhos.set("Access-Control-Allow-Methods", "GET, OPTIONS");
+                cabecalhos.set("Access-Control-Allow-Headers", "*");
+                troca.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!troca.getRequestMethod().equals("GET")) {
+                erro(troca, 405, "Método não permitido");
+                return;
+            }
+
+            RespostasApi atual = respostas;
+            String caminho = troca.getRequestURI().getPath();
+            RespostasApi.Resposta resposta;
+            if (caminho.equals("/api/operadoras")) {
+                String consulta = troca.getRequestURI().getRawQuery();
+                int pagina = parametro(consulta, "page", 1);
+                int limite = parametro(consulta, "limit", LIMITE_PADRAO);
+                if (pagina < 1 || limite < 1 || limite > LIMITE_MAXIMO) {
+                    erro(troca, 400, "Parâmetros inválidos: page >= 1 e 1 <= limit <= " + LIMITE_MAXIMO);
+                    return;
+                }
+                resposta = atual.operadoras(pagina, limite);
+            } else if (caminho.equals("/api/estatisticas")) {
+                resposta = atual.estatisticas();
+            } else if (caminho.startsWith("/api/operadoras/") && caminho.endsWith("/despesas")) {
+                String cnpj = caminho.substring("/api/operadoras/".length(), caminho.length() - "/despesas".length());
+                if (cnpj.isEmpty() || cnpj.indexOf('/') >= 0) {
+                    erro(troca, 404, "Recurso não encontrado");
+                    return;
+                }
+                resposta = atual.despesas(cnpj);
+            } else {
+                erro(troca, 404, "Recurso não encontrado");
+                return;
+            }
+            enviar(troca, resposta);
+        }
+    }
+
+    /**
+     * Envia a resposta, ou só 304 se o cliente já tem a mesma versão (If-None-Match).
+     */
+    private static void enviar(HttpExchange troca, RespostasApi.Resposta resposta) throws IOException {
+        Headers cabecalhos = troca.getResponseHeaders();
+        cabecalhos.set("ETag", resposta.etag());
+        cabecalhos.set("Cache-Control", "no-cache");
+        String etagCliente = troca.getRequestHeaders().getFirst("If-None-Match");
+        if (resposta.etag().equals(etagCliente)) {
+            troca.sendResponseHeaders(304, -1);
+            return;
+        }
+        cabecalhos.set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(200, resposta.corpo().length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(resposta.corpo());
+        }
+    }
+
+    private static void erro(HttpExchange troca, int status, String mensagem) throws IOException {
+        byte[] corpo = ("{\"detail\":\"" + mensagem + "\"}").getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, corpo.length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+
+    /**
+     * Valor inteiro de um parâmetro da query string, o padrão se ele não vier, ou -1 se não for um número.
+     */
+    private static int parametro(String consulta, String nome, int padrao) {
+        if (consulta == null) return padrao;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0 && par.substring(0, igual).equals(nome)) {
+                try {
+                    return Integer.parseInt(URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    return -1;
+                }
+            }
+        }
+        return padrao;
+    }
+}
@@ -0,0 +1,57 @@
+package com.intuitivecare.questao1;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Linhas vazias no meio e no fim do arquivo (com "\n" ou "\r\n") não entram na contagem de lidas,
+ * assim como no caminho commons-csv, e não atrapalham a leitura das linhas seguintes.
+ */
+class AnsCsvScannerTest {
+
+    private static final String[] CABECALHO = {"DATA", "REG_ANS", "CD_CONTA_CONTABIL", "DESCRICAO",
+            "VL_SALDO_INICIAL", "VL_SALDO_FINAL"};
+
+    @Test
+    void linhasVaziasNaoSaoContadas() {
+        String dados = "2025-01-01;100001;411;EVENTOS CONHECIDOS;1,00;10,50\r\n"
+                + "\r\n"
+                + "2025-01-01;100002;311;RECEITAS;1,00;2,00\n"
+                + "\n"
+                + "\n"
+                + "2025-02-01;100003;411;\"SINISTROS \"\"A LIQUIDAR\"\"\";0;-3,25\r\n"
+                + "\r\n"
+                + "\r";
+
+        List<FiltroDespesas.Linha> saida = new ArrayList<>();
+        long lidas = scanner().varrer(buffer(dados), new String[]{"1T", "2025"}, false, saida);
+
+        assertEquals(3, lidas);
+        assertEquals(2, saida.size());
+        assertArrayEquals(new String[]{"Operadora 100001", "100001", "1T", "2025", "10,50"}, saida.get(0).campos());
+        assertArrayEquals(new String[]{"Operadora 100003", "100003", "1T", "2025", "-3,25"}, saida.get(1).campos());
+    }
+
+    @Test
+    void somenteLinhasVazias() {
+        List<FiltroDespesas.Linha> saida = new ArrayList<>();
+        assertEquals(0, scanner().varrer(buffer("\n\r\n\n"), new String[]{"1T", "2025"}, false, saida));
+        assertEquals(List.of(), saida);
+    }
+
+    private static AnsCsvScanner scanner() {
+        return new AnsCsvScanner(EsquemaAns.resolver(CABECALHO),
+                FiltroDespesas.compilar(List.of(FiltroDespesas.Regra.porTermos("consolidado", List.of("EVENTOS", "SINISTROS")))));
+    }
+
+    private static ByteBuffer buffer(String dados) {
+        return ByteBuffer.wrap(dados.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
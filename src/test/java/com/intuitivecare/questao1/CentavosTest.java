@@ -0,0 +1,53 @@
+package com.intuitivecare.questao1;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Limite da parte inteira: até 16 dígitos o valor cabe num long em centavos; acima disso é inválido,
+ * pelos dois caminhos (texto e bytes), em vez de virar um número negativo.
+ */
+class CentavosTest {
+
+    @Test
+    void dezesseisDigitosCabem() {
+        assertEquals(999_999_999_999_999_999L, parse("9999999999999999,99"));
+        assertEquals(-999_999_999_999_999_999L, parse("-9.999.999.999.999.999,99"));
+        // Arredondamento na terceira casa no maior valor aceito
+        assertEquals(1_000_000_000_000_000_000L, parse("9999999999999999,995"));
+        assertEquals(999_999_999_999_999_900L, parse("9999999999999999"));
+    }
+
+    @Test
+    void maisDeDezesseisDigitosSaoInvalidos() {
+        for (String texto : new String[]{"99999999999999999", "12345678901234567,00", "123456789012345678,99",
+                "-99.999.999.999.999.999,99", "9223372036854775807"}) {
+            assertThrows(NumberFormatException.class, () -> Centavos.parse(texto), texto);
+            byte[] bytes = texto.getBytes(StandardCharsets.ISO_8859_1);
+            assertThrows(NumberFormatException.class, () -> Centavos.parse(bytes, 0, bytes.length), texto);
+        }
+    }
+
+    @Test
+    void valoresComuns() {
+        assertEquals(123456, parse("1.234,56"));
+        assertEquals(-1230, parse("-12,3"));
+        assertEquals(123456, parse("1234.56"));
+        assertEquals(123400, parse("\" 1234 \""));
+        assertEquals(-550, parse("-5.50"));
+    }
+
+    /**
+     * Converte pelos dois caminhos e confere que dão o mesmo resultado.
+     */
+    private static long parse(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.ISO_8859_1);
+        long porBytes = Centavos.parse(bytes, 0, bytes.length);
+        assertEquals(porBytes, Centavos.parse(texto), texto);
+        return porBytes;
+    }
+}
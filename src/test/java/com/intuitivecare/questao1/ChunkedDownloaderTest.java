@@ -0,0 +1,270 @@
+package com.intuitivecare.questao1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Downloads contra um HttpServer local que atende Range/If-Range e pode cortar ou travar uma resposta
+ * no meio, uma única vez.
+ */
+class ChunkedDownloaderTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final int TAMANHO = 3 * 1024 * 1024;
+    private static final int SEGMENTOS = 3;
+    private static final int POR_SEGMENTO = TAMANHO / SEGMENTOS;
+
+    @TempDir
+    Path pasta;
+
+    private final byte[] conteudo = new byte[TAMANHO];
+    // "HEAD " / "GET bytes=a-b", na ordem em que chegaram
+    private final List<String> pedidos = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean falhou = new AtomicBoolean();
+    private volatile long falharNoByte = -1;
+    private volatile boolean travar;
+    // Se positivo, todo GET recebe esse status
+    private volatile int statusGet;
+    // Responde 416 ao primeiro GET com Range, uma única vez
+    private final AtomicBoolean recusarRange = new AtomicBoolean();
+
+    private HttpServer servidor;
+    private ExecutorService atendimento;
+    private HttpClient cliente;
+    private String url;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        new Random(42).nextBytes(conteudo);
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.createContext("/arquivo.zip", this::responder);
+        atendimento = Executors.newCachedThreadPool();
+        servidor.setExecutor(atendimento);
+        servidor.start();
+        url = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/arquivo.zip";
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void pararServidor() {
+        servidor.stop(0);
+        atendimento.shutdownNow();
+        cliente.close();
+    }
+
+    @Test
+    void segmentoCortadoRetomaDeOndeParou() throws IOException {
+        // Corta o segundo segmento na metade
+        long inicioSegmento = POR_SEGMENTO;
+        falharNoByte = inicioSegmento + POR_SEGMENTO / 2;
+
+        Path destino = pasta.resolve("arquivo.zip");
+        ChunkedDownloader.Resultado resultado = downloader(Duration.ofSeconds(10)).baixar(url, destino, Map.of());
+
+        assertTrue(falhou.get());
+        assertArrayEquals(conteudo, Files.readAllBytes(destino));
+        assertEquals(ETAG, resultado.etag());
+        // O mesmo segmento foi pedido de novo a partir do que já estava na parte, e não do início
+        List<Long> inicios = iniciosPedidosAte(inicioSegmento + POR_SEGMENTO - 1);
+        assertEquals(2, inicios.size(), pedidos.toString());
+        assertEquals(inicioSegmento, inicios.get(0));
+        assertTrue(inicios.get(1) > inicioSegmento && inicios.get(1) <= falharNoByte, pedidos.toString());
+        assertSemPartes(destino);
+    }
+
+    @Test
+    void leituraSemDadosEAbortadaERepetida() throws IOException {
+        travar = true;
+        falharNoByte = TAMANHO / 2;
+
+        Path destino = pasta.resolve("arquivo.zip");
+        long inicio = System.nanoTime();
+        // Sem segmentos: um único GET, que trava na metade do corpo
+        new ChunkedDownloader(cliente, Duration.ofMillis(300), 1, Long.MAX_VALUE, 3).baixar(url, destino, Map.of());
+
+        assertTrue(falhou.get());
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(10), "A leitura travada não foi abortada");
+        assertArrayEquals(conteudo, Files.readAllBytes(destino));
+        assertEquals(3, pedidos.size(), pedidos.toString());
+        assertTrue(pedidos.get(2).startsWith("GET bytes="), pedidos.toString());
+        assertSemPartes(destino);
+    }
+
+    @Test
+    void parteDaMesmaVersaoEReaproveitada() throws IOException {
+        Path destino = pasta.resolve("arquivo.zip");
+        Files.write(pasta.resolve("arquivo.zip.parte0"), Arrays.copyOf(conteudo, 1000));
+        Files.writeString(pasta.resolve("arquivo.zip.versao"), ETAG);
+
+        ChunkedDownloader.Resultado resultado = new ChunkedDownloader(cliente, Duration.ofSeconds(10), 1, Long.MAX_VALUE, 1)
+                .baixar(url, destino, Map.of());
+
+        assertArrayEquals(conteudo, Files.readAllBytes(destino));
+        assertEquals(TAMANHO - 1000, resultado.bytes());
+        assertEquals(List.of("HEAD ", "GET bytes=1000-" + (TAMANHO - 1)), pedidos);
+    }
+
+    @Test
+    void parteDeOutraVersaoEDescartada() throws IOException {
+        Path destino = pasta.resolve("arquivo.zip");
+        Files.write(pasta.resolve("arquivo.zip.parte0"), new byte[1000]);
+        Files.writeString(pasta.resolve("arquivo.zip.versao"), "\"v0\"");
+
+        ChunkedDownloader.Resultado resultado = new ChunkedDownloader(cliente, Duration.ofSeconds(10), 1, Long.MAX_VALUE, 1)
+                .baixar(url, destino, Map.of());
+
+        assertArrayEquals(conteudo, Files.readAllBytes(destino));
+        assertEquals(TAMANHO, resultado.bytes());
+        assertEquals(List.of("HEAD ", "GET "), pedidos);
+    }
+
+    @Test
+    void erroDoClienteNaoERepetido() {
+        statusGet = 404;
+        Path destino = pasta.resolve("arquivo.zip");
+
+        long inicio = System.nanoTime();
+        IOException erro = assertThrows(IOException.class,
+                () -> new ChunkedDownloader(cliente, Duration.ofSeconds(10), 1, Long.MAX_VALUE, 5).baixar(url, destino, Map.of()));
+
+        assertTrue(erro.getMessage().startsWith("HTTP 404"), erro.getMessage());
+        // Sem retentativas nem backoff (a primeira espera já seria de 0,5s)
+        assertEquals(List.of("HEAD ", "GET "), pedidos);
+        assertTrue(System.nanoTime() - inicio < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    void rangeRecusadoRecomecaDoZero() throws IOException {
+        recusarRange.set(true);
+        Path destino = pasta.resolve("arquivo.zip");
+        Files.write(pasta.resolve("arquivo.zip.parte0"), Arrays.copyOf(conteudo, 1000));
+        Files.writeString(pasta.resolve("arquivo.zip.versao"), ETAG);
+
+        ChunkedDownloader.Resultado resultado = new ChunkedDownloader(cliente, Duration.ofSeconds(10), 1, Long.MAX_VALUE, 3)
+                .baixar(url, destino, Map.of());
+
+        assertArrayEquals(conteudo, Files.readAllBytes(destino));
+        assertEquals(TAMANHO, resultado.bytes());
+        assertEquals(List.of("HEAD ", "GET bytes=1000-" + (TAMANHO - 1), "GET "), pedidos);
+        assertSemPartes(destino);
+    }
+
+    @Test
+    void naoModificadoNaoBaixaNada() throws IOException {
+        Path destino = pasta.resolve("arquivo.zip");
+        ChunkedDownloader.Resultado resultado = downloader(Duration.ofSeconds(10))
+                .baixar(url, destino, Map.of("If-None-Match", ETAG));
+
+        assertTrue(resultado.naoModificado());
+        assertFalse(Files.exists(destino));
+        assertEquals(List.of("HEAD "), pedidos);
+    }
+
+    private ChunkedDownloader downloader(Duration timeout) {
+        return new ChunkedDownloader(cliente, timeout, SEGMENTOS, 1, 3);
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        try (troca) {
+            String range = troca.getRequestHeaders().getFirst("Range");
+            pedidos.add(troca.getRequestMethod() + " " + (range == null ? "" : range));
+            troca.getResponseHeaders().set("ETag", ETAG);
+            troca.getResponseHeaders().set("Accept-Ranges", "bytes");
+
+            if (ETAG.equals(troca.getRequestHeaders().getFirst("If-None-Match"))) {
+                troca.sendResponseHeaders(304, -1);
+                return;
+            }
+            if (troca.getRequestMethod().equals("HEAD")) {
+                troca.getResponseHeaders().set("Content-Length", String.valueOf(TAMANHO));
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            if (statusGet > 0) {
+                troca.sendResponseHeaders(statusGet, -1);
+                return;
+            }
+            if (range != null && recusarRange.compareAndSet(true, false)) {
+                troca.getResponseHeaders().set("Content-Range", "bytes */" + TAMANHO);
+                troca.sendResponseHeaders(416, -1);
+                return;
+            }
+
+            int primeiro = 0;
+            int ultimo = TAMANHO - 1;
+            String ifRange = troca.getRequestHeaders().getFirst("If-Range");
+            boolean parcial = range != null && (ifRange == null || ifRange.equals(ETAG));
+            if (parcial) {
+                String[] limites = range.substring("bytes=".length()).split("-", -1);
+                primeiro = Integer.parseInt(limites[0]);
+                if (!limites[1].isEmpty()) ultimo = Integer.parseInt(limites[1]);
+                troca.getResponseHeaders().set("Content-Range", "bytes " + primeiro + "-" + ultimo + "/" + TAMANHO);
+            }
+            troca.sendResponseHeaders(parcial ? 206 : 200, ultimo - primeiro + 1);
+
+            OutputStream corpo = troca.getResponseBody();
+            long corte = falharNoByte;
+            if (corte > primeiro && corte <= ultimo && falhou.compareAndSet(false, true)) {
+                corpo.write(conteudo, primeiro, (int) (corte - primeiro));
+                corpo.flush();
+                if (travar) {
+                    try {
+                        Thread.sleep(30_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                // Fechar antes de mandar tudo derruba a conexão
+                return;
+            }
+            corpo.write(conteudo, primeiro, ultimo - primeiro + 1);
+        } catch (IOException e) {
+            // Esperado na resposta cortada
+        }
+    }
+
+    /**
+     * Inícios dos GETs com Range cujo início cai no segmento que termina em {@code ultimoDoSegmento}.
+     */
+    private List<Long> iniciosPedidosAte(long ultimoDoSegmento) {
+        return pedidos.stream()
+                .filter(p -> p.startsWith("GET bytes="))
+                .filter(p -> p.endsWith("-" + ultimoDoSegmento))
+                .map(p -> Long.parseLong(p.substring("GET bytes=".length(), p.indexOf('-'))))
+                .toList();
+    }
+
+    private void assertSemPartes(Path destino) throws IOException {
+        try (var arquivos = Files.list(pasta)) {
+            assertEquals(List.of(destino), arquivos.toList());
+        }
+    }
+}
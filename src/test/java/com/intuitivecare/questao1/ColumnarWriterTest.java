@@ -0,0 +1,46 @@
+package com.intuitivecare.questao1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Linhas inválidas do consolidado são contadas como descartadas em vez de derrubar a gravação.
+ */
+class ColumnarWriterTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void linhasInvalidasSaoDescartadas() throws IOException {
+        Path arquivo = pasta.resolve("consolidado.col");
+        try (ColumnarWriter writer = new ColumnarWriter(arquivo)) {
+            writer.adicionar(new String[]{"OPERADORA UM", "100001", "3T", "2025", "1234,56"});
+            writer.adicionar(new String[]{"OPERADORA UM", "100001", "", "2025", "10,00"});
+            writer.adicionar(new String[]{"OPERADORA UM", "100001", "XT", "2025", "10,00"});
+            writer.adicionar(new String[]{"OPERADORA UM", "100001", "1T", "", "10,00"});
+            writer.adicionar(new String[]{"OPERADORA UM", "100001", "1T", "2025", "abc"});
+            writer.adicionar(new String[]{"OPERADORA DOIS", "", "1T", "2025", "10,00"});
+            writer.adicionar(new String[]{"OPERADORA DOIS", "100002", "1T", "2024", "-5.50"});
+
+            assertEquals(2, writer.getTotalLinhas());
+            assertEquals(5, writer.getDescartadas());
+        }
+
+        try (ColumnarReader reader = ColumnarReader.abrir(arquivo)) {
+            assertEquals(2, reader.getTotalLinhas());
+            ColumnarReader.Bloco bloco = reader.bloco(0);
+            assertEquals(2, bloco.linhas());
+            assertEquals(20253, bloco.periodos().get(0));
+            assertEquals(123456, bloco.valores().get(0));
+            assertEquals(20241, bloco.periodos().get(1));
+            assertEquals(100002, bloco.registros().get(1));
+            assertEquals(-550, bloco.valores().get(1));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.intuitivecare.questao1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Download concorrente com extração contra um HttpServer local: limite de conexões, arquivos extraídos
+ * e falhas de um arquivo reunidas na lista sem interromper os outros.
+ */
+class FileDownloaderTest {
+
+    @TempDir
+    Path pasta;
+
+    private final Map<String, byte[]> arquivos = new ConcurrentHashMap<>();
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final AtomicInteger maximoSimultaneo = new AtomicInteger();
+
+    private HttpServer servidor;
+    private ExecutorService atendimento;
+    private String base;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.createContext("/", this::responder);
+        atendimento = Executors.newCachedThreadPool();
+        servidor.setExecutor(atendimento);
+        servidor.start();
+        base = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void pararServidor() {
+        servidor.stop(0);
+        atendimento.shutdownNow();
+    }
+
+    @Test
+    void baixaEExtraiEmParaleloEJuntaAsFalhas() throws IOException {
+        Map<String, String> csvs = Map.of(
+                "1T2025", "DATA;REG_ANS\n2025-01-01;100001\n",
+                "2T2025", "DATA;REG_ANS\n2025-04-01;100002\n",
+                "3T2025", "DATA;REG_ANS\n2025-07-01;100003\n");
+        csvs.forEach((trimestre, csv) -> arquivos.put(trimestre + ".zip",
+                zip(trimestre + ".csv", csv.getBytes(StandardCharsets.UTF_8))));
+        // ZIP cortado no meio: o download funciona, a extração não
+        byte[] aleatorio = new byte[256 * 1024];
+        new Random(7).nextBytes(aleatorio);
+        byte[] completo = zip("quebrado.csv", aleatorio);
+        arquivos.put("quebrado.zip", Arrays.copyOf(completo, completo.length / 2));
+
+        List<String> links = List.of(base + "1T2025.zip", base + "2T2025.zip", base + "quebrado.zip",
+                base + "3T2025.zip", base + "link invalido.zip");
+        List<String> falhas = new FileDownloader(pasta.toFile()).baixarEExtrairConcorrente(links, 2);
+
+        for (Map.Entry<String, String> csv : csvs.entrySet()) {
+            String trimestre = csv.getKey();
+            assertTrue(Files.exists(pasta.resolve(trimestre + ".zip")));
+            assertEquals(csv.getValue(), Files.readString(pasta.resolve(trimestre).resolve(trimestre + ".csv")));
+        }
+        assertEquals(2, falhas.size(), falhas.toString());
+        assertTrue(falhas.stream().anyMatch(f -> f.startsWith("quebrado.zip: ")), falhas.toString());
+        assertTrue(falhas.stream().anyMatch(f -> f.startsWith("link invalido.zip: ")), falhas.toString());
+        assertEquals(2, maximoSimultaneo.get());
+    }
+
+    @Test
+    void semExtracaoSoOsZipsFicamEmDisco() throws IOException {
+        arquivos.put("4T2024.zip", zip("4T2024.csv", "DATA;REG_ANS\n".getBytes(StandardCharsets.UTF_8)));
+
+        List<String> falhas = new FileDownloader(pasta.toFile()).baixarConcorrente(List.of(base + "4T2024.zip"), 1, false);
+
+        assertEquals(List.of(), falhas);
+        try (var conteudo = Files.list(pasta)) {
+            assertEquals(List.of(pasta.resolve("4T2024.zip")), conteudo.toList());
+        }
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        int agora = emAndamento.incrementAndGet();
+        maximoSimultaneo.accumulateAndGet(agora, Math::max);
+        try (troca) {
+            byte[] corpo = arquivos.get(troca.getRequestURI().getPath().substring(1));
+            if (corpo == null) {
+                troca.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (troca.getRequestMethod().equals("HEAD")) {
+                troca.getResponseHeaders().set("Content-Length", String.valueOf(corpo.length));
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            // Segura a resposta um pouco para os downloads se sobreporem
+            Thread.sleep(200);
+            troca.sendResponseHeaders(200, corpo.length);
+            troca.getResponseBody().write(corpo);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            emAndamento.decrementAndGet();
+        }
+    }
+
+    private static byte[] zip(String nome, byte[] conteudo) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bytes)) {
+            zos.putNextEntry(new ZipEntry(nome));
+            zos.write(conteudo);
+            zos.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,174 @@
+package com.intuitivecare.questao1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Execuções incrementais seguidas contra um HttpServer local que responde 304 quando o If-None-Match
+ * bate com o ETag atual: o que é baixado de novo, o que o manifesto guarda e quando o parcial é reaproveitado.
+ */
+class ManifestoIncrementalTest {
+
+    private static final String TRIMESTRE = "1T2025";
+    private static final String FILTRO = "contas=;regras=";
+
+    @TempDir
+    Path pasta;
+
+    private final AtomicInteger gets = new AtomicInteger();
+    private volatile byte[] conteudo = "versao 1".getBytes(StandardCharsets.UTF_8);
+    private volatile String etag = "\"a\"";
+
+    private HttpServer servidor;
+    private String link;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.createContext("/", this::responder);
+        servidor.start();
+        link = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/" + TRIMESTRE + ".zip";
+    }
+
+    @AfterEach
+    void pararServidor() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void naoModificadoPulaODownloadEReaproveitaOParcial() throws IOException {
+        Path zip = pasta.resolve(TRIMESTRE + ".zip");
+        Path parcial = pasta.resolve("parciais").resolve(TRIMESTRE + ".csv");
+
+        ManifestoIncremental manifesto = executar();
+        assertEquals(1, gets.get());
+        assertEquals("\"a\"", manifesto.getEtag(TRIMESTRE));
+        assertEquals(ManifestoIncremental.sha256(zip), manifesto.getSha256(TRIMESTRE));
+        assertFalse(manifesto.parcialAtualizado(TRIMESTRE, parcial, FILTRO));
+
+        Files.createDirectories(parcial.getParent());
+        Files.writeString(parcial, "OPERADORA;100001;1T;2025;10.00\n");
+        manifesto.registrarParcial(TRIMESTRE, parcial, FILTRO);
+        manifesto.salvar();
+
+        // Mesmo ETag: HEAD responde 304, nada é baixado e o parcial continua válido
+        manifesto = executar();
+        assertEquals(1, gets.get());
+        assertArrayEquals(conteudo, Files.readAllBytes(zip));
+        assertTrue(manifesto.parcialAtualizado(TRIMESTRE, parcial, FILTRO));
+
+        // Parcial alterado em disco não é reaproveitado
+        Files.writeString(parcial, "OPERADORA;100001;1T;2025;99.00\n");
+        assertFalse(manifesto.parcialAtualizado(TRIMESTRE, parcial, FILTRO));
+    }
+
+    @Test
+    void etagNovoBaixaDeNovoEInvalidaOParcial() throws IOException {
+        Path zip = pasta.resolve(TRIMESTRE + ".zip");
+        Path parcial = pasta.resolve("parciais").resolve(TRIMESTRE + ".csv");
+
+        ManifestoIncremental manifesto = executar();
+        Files.createDirectories(parcial.getParent());
+        Files.writeString(parcial, "OPERADORA;100001;1T;2025;10.00\n");
+        manifesto.registrarParcial(TRIMESTRE, parcial, FILTRO);
+        manifesto.salvar();
+        String shaAnterior = manifesto.getSha256(TRIMESTRE);
+
+        conteudo = "versao 2, com outro tamanho".getBytes(StandardCharsets.UTF_8);
+        etag = "\"b\"";
+        manifesto = executar();
+
+        assertEquals(2, gets.get());
+        assertArrayEquals(conteudo, Files.readAllBytes(zip));
+        assertEquals("\"b\"", manifesto.getEtag(TRIMESTRE));
+        assertEquals(ManifestoIncremental.sha256(zip), manifesto.getSha256(TRIMESTRE));
+        assertNotEquals(shaAnterior, manifesto.getSha256(TRIMESTRE));
+        assertFalse(manifesto.parcialAtualizado(TRIMESTRE, parcial, FILTRO));
+    }
+
+    @Test
+    void parcialDeOutroFiltroNaoEReaproveitado() throws IOException {
+        Path parcial = pasta.resolve("parciais").resolve(TRIMESTRE + ".csv");
+
+        ManifestoIncremental manifesto = executar();
+        Files.createDirectories(parcial.getParent());
+        Files.writeString(parcial, "OPERADORA;100001;1T;2025;10.00\n");
+        manifesto.registrarParcial(TRIMESTRE, parcial, FILTRO);
+        manifesto.salvar();
+
+        // Mesmo ZIP (304) e parcial intacto, mas a execução seguinte usa outro filtro
+        manifesto = executar();
+        assertEquals(1, gets.get());
+        assertTrue(manifesto.parcialAtualizado(TRIMESTRE, parcial, FILTRO));
+        assertFalse(manifesto.parcialAtualizado(TRIMESTRE, parcial, "contas=41;regras="));
+        assertFalse(manifesto.parcialAtualizado(TRIMESTRE, parcial, "contas=;regras=" + "0".repeat(64)));
+
+        // Regerado com o filtro novo, o parcial passa a valer só para ele
+        manifesto.registrarParcial(TRIMESTRE, parcial, "contas=41;regras=");
+        manifesto.salvar();
+        manifesto = executar();
+        assertTrue(manifesto.parcialAtualizado(TRIMESTRE, parcial, "contas=41;regras="));
+        assertFalse(manifesto.parcialAtualizado(TRIMESTRE, parcial, FILTRO));
+    }
+
+    @Test
+    void zipApagadoEBaixadoMesmoComEtagIgual() throws IOException {
+        Path zip = pasta.resolve(TRIMESTRE + ".zip");
+        executar();
+        Files.delete(zip);
+
+        executar();
+
+        assertEquals(2, gets.get());
+        assertArrayEquals(conteudo, Files.readAllBytes(zip));
+    }
+
+    /**
+     * Uma execução: carrega o manifesto do disco, baixa de forma condicional e salva.
+     */
+    private ManifestoIncremental executar() throws IOException {
+        ManifestoIncremental manifesto = ManifestoIncremental.carregar(pasta.resolve("manifesto.properties"));
+        List<String> falhas = new FileDownloader(pasta.toFile()).baixarConcorrente(List.of(link), 1, false, manifesto);
+        assertEquals(List.of(), falhas);
+        manifesto.salvar();
+        return manifesto;
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        try (troca) {
+            byte[] corpo = conteudo;
+            troca.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(troca.getRequestHeaders().getFirst("If-None-Match"))) {
+                troca.sendResponseHeaders(304, -1);
+                return;
+            }
+            if (troca.getRequestMethod().equals("HEAD")) {
+                troca.getResponseHeaders().set("Content-Length", String.valueOf(corpo.length));
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            gets.incrementAndGet();
+            troca.sendResponseHeaders(200, corpo.length);
+            troca.getResponseBody().write(corpo);
+        }
+    }
+}
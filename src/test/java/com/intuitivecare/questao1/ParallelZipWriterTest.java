@@ -0,0 +1,172 @@
+package com.intuitivecare.questao1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ida e volta do ZIP gravado em paralelo: em cada nível (0, padrão, 1 e 9), entradas de vários blocos,
+ * do tamanho exato de um bloco, um byte acima e vazias são lidas de volta pelo {@link ZipFile} (diretório
+ * central) e pelo {@link ZipInputStream} (cabeçalhos locais, sem data descriptor).
+ */
+class ParallelZipWriterTest {
+
+    // Mesmo tamanho de bloco do ParallelZipWriter
+    private static final int BLOCO = 1024 * 1024;
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void zipLidoDeVoltaEmTodosOsNiveis() throws IOException {
+        Map<String, byte[]> conteudos = new LinkedHashMap<>();
+        conteudos.put("consolidado.csv", csv(5 * 1024 * 1024 + 123));
+        conteudos.put("vazio.csv", new byte[0]);
+        conteudos.put("um_bloco.bin", aleatorio(BLOCO, 1));
+        conteudos.put("bloco_e_um_byte.bin", aleatorio(BLOCO + 1, 2));
+        conteudos.put("aleatório.bin", aleatorio(2 * BLOCO + 777, 3));
+        // Última entrada vem de um arquivo do disco
+        Path solto = Files.writeString(pasta.resolve("solto.txt"), "arquivo do disco\n");
+        conteudos.put("solto.txt", Files.readAllBytes(solto));
+
+        for (int nivel : new int[]{0, -1, 1, 9}) {
+            Path arquivo = pasta.resolve("nivel" + nivel + ".zip");
+            try (ParallelZipWriter zip = new ParallelZipWriter(arquivo, nivel, 3)) {
+                for (Map.Entry<String, byte[]> entrada : conteudos.entrySet()) {
+                    if (entrada.getKey().equals("solto.txt")) {
+                        zip.adicionarArquivo(solto);
+                        continue;
+                    }
+                    try (OutputStream out = zip.novaEntrada(entrada.getKey())) {
+                        escreverEmPedacos(out, entrada.getValue());
+                    }
+                }
+            }
+
+            String contexto = "nível " + nivel;
+            int metodo = nivel == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED;
+            try (ZipFile zipFile = new ZipFile(arquivo.toFile())) {
+                assertEquals(conteudos.size(), zipFile.size(), contexto);
+                for (Map.Entry<String, byte[]> esperado : conteudos.entrySet()) {
+                    ZipEntry entrada = zipFile.getEntry(esperado.getKey());
+                    assertEquals(metodo, entrada.getMethod(), contexto);
+                    assertEquals(esperado.getValue().length, entrada.getSize(), contexto);
+                    assertEquals(crc(esperado.getValue()), entrada.getCrc(), contexto);
+                    try (InputStream in = zipFile.getInputStream(entrada)) {
+                        assertArrayEquals(esperado.getValue(), in.readAllBytes(), contexto + ": " + esperado.getKey());
+                    }
+                }
+            }
+
+            List<String> nomes = new ArrayList<>();
+            try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(arquivo))) {
+                for (ZipEntry entrada; (entrada = zis.getNextEntry()) != null; ) {
+                    nomes.add(entrada.getName());
+                    assertArrayEquals(conteudos.get(entrada.getName()), zis.readAllBytes(), contexto + ": " + entrada.getName());
+                }
+            }
+            assertEquals(List.copyOf(conteudos.keySet()), nomes, contexto);
+
+            conferirCabecalhosLocais(arquivo, contexto);
+        }
+    }
+
+    @Test
+    void zipSemEntradas() throws IOException {
+        Path arquivo = pasta.resolve("vazio.zip");
+        new ParallelZipWriter(arquivo, -1, 2).close();
+
+        try (ZipFile zipFile = new ZipFile(arquivo.toFile())) {
+            assertEquals(0, zipFile.size());
+        }
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(arquivo))) {
+            assertNull(zis.getNextEntry());
+        }
+    }
+
+    /**
+     * Percorre os cabeçalhos locais em sequência: nenhum usa data descriptor (bit 3) e o tamanho comprimido
+     * já vem corrigido, então cada entrada começa logo depois dos dados da anterior e o diretório central
+     * logo depois da última. (CRC e tamanho original locais são conferidos pelo ZipInputStream.)
+     */
+    private static void conferirCabecalhosLocais(Path arquivo, String contexto) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(arquivo)).order(ByteOrder.LITTLE_ENDIAN);
+        int entradas = 0;
+        while (b.getInt(b.position()) == 0x04034b50) {
+            int inicio = b.position();
+            int flags = b.getShort(inicio + 6) & 0xFFFF;
+            long comprimido = b.getInt(inicio + 18) & 0xFFFFFFFFL;
+            int nome = b.getShort(inicio + 26) & 0xFFFF;
+            int extra = b.getShort(inicio + 28) & 0xFFFF;
+            assertEquals(0, flags & 0x08, contexto);
+            b.position((int) (inicio + 30 + nome + extra + comprimido));
+            entradas++;
+        }
+        assertEquals(0x02014b50, b.getInt(b.position()), contexto + ": diretório central fora do lugar");
+        assertTrue(entradas > 0, contexto);
+    }
+
+    /**
+     * Escreve em pedaços de tamanhos variados, alguns byte a byte, para os cortes não coincidirem com os blocos.
+     */
+    private static void escreverEmPedacos(OutputStream out, byte[] dados) throws IOException {
+        Random random = new Random(dados.length);
+        int pos = 0;
+        while (pos < dados.length) {
+            if (random.nextInt(8) == 0) {
+                out.write(dados[pos++]);
+                continue;
+            }
+            int n = Math.min(dados.length - pos, 1 + random.nextInt(200_000));
+            out.write(dados, pos, n);
+            pos += n;
+        }
+    }
+
+    private static byte[] csv(int tamanho) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(tamanho + 64);
+        while (sb.length() < tamanho) {
+            sb.append("OPERADORA ").append(random.nextInt(1000)).append(';')
+                    .append(100000 + random.nextInt(900000)).append(';')
+                    .append(1 + random.nextInt(4)).append("T;2025;")
+                    .append(random.nextInt(1_000_000)).append(',').append(random.nextInt(100)).append('\n');
+        }
+        sb.setLength(tamanho);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] aleatorio(int tamanho, long semente) {
+        byte[] dados = new byte[tamanho];
+        new Random(semente).nextBytes(dados);
+        return dados;
+    }
+
+    private static long crc(byte[] dados) {
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        return crc.getValue();
+    }
+}
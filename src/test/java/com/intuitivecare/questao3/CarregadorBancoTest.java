@@ -0,0 +1,150 @@
+package com.intuitivecare.questao3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Carga da Questão 3 num H2 em memória (modo MySQL), com o DDL de sql/01_criacao_tabelas.sql.
+ * Lotes de 2 linhas e 2 escritores para passar pelos lotes cheios, pelos restos e pela divisão por trimestre.
+ */
+class CarregadorBancoTest {
+
+    private static final AtomicInteger BANCOS = new AtomicInteger();
+
+    @TempDir
+    Path pasta;
+
+    private String url;
+    private CarregadorBanco carregador;
+
+    @BeforeEach
+    void criarBanco() throws Exception {
+        // DB_CLOSE_DELAY=-1: o banco em memória sobrevive entre as conexões da carga
+        url = "jdbc:h2:mem:carga" + BANCOS.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        carregador = new CarregadorBanco(url, "sa", "", 2, 4, 2);
+        carregador.criarTabelas(Paths.get("sql", "01_criacao_tabelas.sql"));
+    }
+
+    @Test
+    void recargaDoMesmoArquivoNaoDuplica() throws Exception {
+        Path cadop = cadop("Operadora Um");
+        Path consolidado = consolidado(
+                "OPERADORA UM;100001;1T;2025;1500.50",
+                "OPERADORA DOIS;100002;1T;2025;200,00",
+                "OPERADORA UM;100001;2T;2025;300.00",
+                "FORA DO CADASTRO;999999;2T;2025;10.00",
+                "OPERADORA TRES;100003;3T;2025;abc",
+                "OPERADORA TRES;100003;3T;2025;42.10");
+
+        for (int carga = 0; carga < 2; carga++) {
+            assertEquals(3, carregador.carregarOperadoras(cadop));
+            assertEquals(4, carregador.carregarDespesas(consolidado));
+
+            assertEquals(3, contar("SELECT COUNT(*) FROM operadoras"));
+            assertEquals(4, contar("SELECT COUNT(*) FROM demonstracoes_contabeis"));
+            assertEquals(new BigDecimal("2042.60"), soma());
+            assertEquals(List.of(1L, 2L, 3L, 6L), linhasOrigem());
+        }
+        assertEquals("12345678000101", texto("SELECT cnpj FROM operadoras WHERE registro_ans = 100001"));
+        assertEquals(Date.valueOf("2025-06-30"),
+                valor("SELECT data_referencia FROM demonstracoes_contabeis WHERE linha_origem = 3"));
+    }
+
+    @Test
+    void recargaAtualizaEApagaLinhasQueSumiram() throws Exception {
+        carregador.carregarOperadoras(cadop("Operadora Um"));
+        carregador.carregarDespesas(consolidado(
+                "OPERADORA UM;100001;1T;2025;1500.50",
+                "OPERADORA DOIS;100002;1T;2025;200.00",
+                "OPERADORA UM;100001;2T;2025;300.00",
+                "OPERADORA TRES;100003;3T;2025;42.10"));
+        assertEquals(4, contar("SELECT COUNT(*) FROM demonstracoes_contabeis"));
+
+        // Cadastro com a razão social alterada: upsert pela chave, sem linha nova
+        assertEquals(3, carregador.carregarOperadoras(cadop("Operadora Um Renomeada")));
+        assertEquals(3, contar("SELECT COUNT(*) FROM operadoras"));
+        assertEquals("Operadora Um Renomeada", texto("SELECT razao_social FROM operadoras WHERE registro_ans = 100001"));
+
+        // Linha 1 com valor novo, linha 2 agora inválida, linha 4 saiu do arquivo
+        assertEquals(2, carregador.carregarDespesas(consolidado(
+                "OPERADORA UM;100001;1T;2025;1600.00",
+                "OPERADORA DOIS;100002;1T;2025;",
+                "OPERADORA UM;100001;2T;2025;300.00")));
+
+        assertEquals(2, contar("SELECT COUNT(*) FROM demonstracoes_contabeis"));
+        assertEquals(List.of(1L, 3L), linhasOrigem());
+        assertEquals(new BigDecimal("1600.00"),
+                valor("SELECT saldo_final FROM demonstracoes_contabeis WHERE linha_origem = 1"));
+        assertEquals(new BigDecimal("1900.00"), soma());
+    }
+
+    private Path cadop(String razaoSocialUm) throws Exception {
+        Path arquivo = pasta.resolve("Relatorio_Cadop.csv");
+        Files.write(arquivo, List.of(
+                "RELATÓRIO DE OPERADORAS ATIVAS",
+                "Registro_ANS;CNPJ;Razao_Social;Nome_Fantasia;Modalidade;Logradouro;Numero;Complemento;Bairro;Cidade;UF;CEP;DDD;Telefone;Fax;Endereco_eletronico;Representante;Cargo_Representante;Data_Registro_ANS",
+                "100001;12.345.678/0001-01;" + razaoSocialUm + ";UM;Medicina de Grupo;Rua A;1;;Centro;São Paulo;SP;01000000;11;99999999;;um@exemplo.com;Fulano;Diretor;01/02/2000",
+                "100002;\"23456789000102\";Operadora Dois;;Cooperativa Médica;Rua B;2;Sala 3;Centro;Belo Horizonte;MG;30000000;31;88888888;;;Ciclano;Presidente;2001-03-04",
+                "100003;34567890000103;Operadora Três;;Autogestão;Rua C;3;;Centro;Recife;PE;50000000;81;77777777;;;Beltrano;Diretor;"),
+                StandardCharsets.ISO_8859_1);
+        return arquivo;
+    }
+
+    private Path consolidado(String... linhas) throws Exception {
+        Path arquivo = pasta.resolve("consolidado.csv");
+        StringBuilder conteudo = new StringBuilder("RazaoSocial;CNPJ;Trimestre;Ano;ValorDespesas\n");
+        for (String linha : linhas) conteudo.append(linha).append('\n');
+        Files.writeString(arquivo, conteudo, StandardCharsets.UTF_8);
+        return arquivo;
+    }
+
+    private long contar(String sql) throws SQLException {
+        return ((Number) valor(sql)).longValue();
+    }
+
+    private String texto(String sql) throws SQLException {
+        return (String) valor(sql);
+    }
+
+    private BigDecimal soma() throws SQLException {
+        return (BigDecimal) valor("SELECT SUM(saldo_final) FROM demonstracoes_contabeis");
+    }
+
+    private List<Long> linhasOrigem() throws SQLException {
+        List<Long> linhas = new ArrayList<>();
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement ps = conexao.prepareStatement(
+                     "SELECT linha_origem FROM demonstracoes_contabeis ORDER BY linha_origem");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) linhas.add(rs.getLong(1));
+        }
+        return linhas;
+    }
+
+    private Object valor(String sql) throws SQLException {
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement ps = conexao.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getObject(1);
+        }
+    }
+}